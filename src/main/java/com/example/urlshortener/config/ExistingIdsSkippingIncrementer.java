@@ -0,0 +1,87 @@
+package com.example.urlshortener.config;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+
+/**
+ * The id block sequence, with every block above the ids that are already in
+ * url_mapping.
+ *
+ * Before the IdBlockAllocator, ids came from an IDENTITY column. On a database
+ * upgraded from that version, the new sequence starts at 1 while the table
+ * already holds ids up to MAX(id), so the first blocks would collide with them.
+ * On its first use, this reads MAX(id) once and from then on skips sequence values
+ * whose block starts at or below it. Skipped values are lost, like the unused ids
+ * of a stopped instance.
+ *
+ * Only the first instance started after the upgrade skips anything: it moves the
+ * shared sequence past MAX(id), one value per block, and later starts only pay for
+ * the MAX(id) query. Drawing values with nextval is safe with several instances
+ * starting at once, unlike setting the sequence.
+ */
+class ExistingIdsSkippingIncrementer implements DataFieldMaxValueIncrementer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExistingIdsSkippingIncrementer.class);
+
+    private final DataFieldMaxValueIncrementer sequence;
+    private final JdbcTemplate jdbcTemplate;
+    private final long blockSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    // The first sequence value whose block lies above MAX(id); -1 until it was read.
+    private volatile long firstFreeValue = -1;
+
+    ExistingIdsSkippingIncrementer(DataFieldMaxValueIncrementer sequence, JdbcTemplate jdbcTemplate, long blockSize) {
+        this.sequence = sequence;
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public long nextLongValue() {
+        long firstFree = firstFreeValue();
+        long value = sequence.nextLongValue();
+        long skipped = 0;
+        while (value < firstFree) {
+            value = sequence.nextLongValue();
+            skipped++;
+        }
+        if (skipped > 0) {
+            logger.info("Skipped {} id blocks that overlap the ids already in url_mapping (below {}).", skipped,
+                    firstFree * blockSize);
+        }
+        return value;
+    }
+
+    @Override
+    public int nextIntValue() {
+        return Math.toIntExact(nextLongValue());
+    }
+
+    @Override
+    public String nextStringValue() {
+        return Long.toString(nextLongValue());
+    }
+
+    private long firstFreeValue() {
+        long firstFree = firstFreeValue;
+        if (firstFree >= 0) {
+            return firstFree;
+        }
+        lock.lock();
+        try {
+            if (firstFreeValue < 0) {
+                // Read on first use rather than at startup: the table and the sequence
+                // only exist once Hibernate and schema.sql have run.
+                Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM url_mapping", Long.class);
+                firstFreeValue = maxId == null ? 0 : maxId / blockSize + 1;
+            }
+            return firstFreeValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.urlshortener.config;
+
+import java.sql.DatabaseMetaData;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.H2SequenceMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.PostgresSequenceMaxValueIncrementer;
+
+/**
+ * Configures access to the database sequence that hands out blocks of ids to the
+ * IdBlockAllocator.
+ *
+ * The SQL to read the next value of a sequence differs between databases
+ * ("NEXT VALUE FOR ..." in H2, "nextval(...)" in PostgreSQL), so we pick the
+ * matching Spring incrementer based on the database we are connected to.
+ *
+ * The sequence itself is created by 'schema.sql'. Its blocks skip the ids that
+ * are already in the table (see ExistingIdsSkippingIncrementer). With the
+ * 'embedded-store' profile there is no database, and EmbeddedIdBlockSequence
+ * takes its place.
+ */
+@Configuration
+@Profile("!embedded-store")
+public class IdGenerationConfig {
+
+    public static final String ID_BLOCK_SEQUENCE = "url_mapping_id_block_seq";
+
+    @Bean
+    public DataFieldMaxValueIncrementer idBlockSequence(DataSource dataSource,
+                                                        @Value("${app.id-allocator.block-size:1000}") long blockSize)
+            throws MetaDataAccessException {
+        return new ExistingIdsSkippingIncrementer(sequence(dataSource), new JdbcTemplate(dataSource), blockSize);
+    }
+
+    private static DataFieldMaxValueIncrementer sequence(DataSource dataSource) throws MetaDataAccessException {
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if ("PostgreSQL".equals(product)) {
+            return new PostgresSequenceMaxValueIncrementer(dataSource, ID_BLOCK_SEQUENCE);
+        }
+        if ("H2".equals(product)) {
+            return new H2SequenceMaxValueIncrementer(dataSource, ID_BLOCK_SEQUENCE);
+        }
+        throw new IllegalStateException("No id sequence support for database: " + product);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.urlshortener.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import com.example.urlshortener.metrics.RequestDbTime;
+
+/**
+ * Wires the application's metrics into Spring Data.
+ *
+ * Spring Boot already times every repository method ('spring.data.repository.invocations').
+ * In addition, RequestDbTime is added as an invocation listener to every repository
+ * factory, so the time of those calls can be summed up per HTTP request.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * A BeanPostProcessor that registers RequestDbTime with each repository factory
+     * bean before it creates its repository.
+     *
+     * The method is static because BeanPostProcessors are created before regular
+     * beans, and must not force this configuration class to be created early.
+     */
+    @Bean
+    public static BeanPostProcessor requestDbTimeRepositoryListener() {
+        RequestDbTime listener = new RequestDbTime();
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(listener));
+                }
+                return bean;
+            }
+        };
+    }
+}
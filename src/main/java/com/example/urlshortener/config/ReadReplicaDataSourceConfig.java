@@ -0,0 +1,77 @@
+package com.example.urlshortener.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import com.example.urlshortener.repository.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Replaces Spring Boot's single connection pool with one pool for the primary
+ * database and one for its read replica (profile 'read-replica').
+ *
+ * Both pools are beans of their own, so their metrics are published per pool,
+ * e.g. hikaricp_connections_active{pool="replica"}. JPA, the JdbcTemplate and
+ * everything else use the @Primary DataSource, which sends each connection to the
+ * primary unless ReadReplicaUrlMappingStore asks for the replica
+ * (see ReadWriteRoutingDataSource).
+ */
+@Configuration
+@Profile("read-replica")
+public class ReadReplicaDataSourceConfig {
+
+    /**
+     * The primary, configured with the usual 'spring.datasource.*' properties.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * @param url              The replica's JDBC URL ('app.read-replica.url').
+     * @param poolSize         Connections to the replica ('app.read-replica.pool-size').
+     * @param initializeSchema Whether 'shard-schema.sql' creates the url_mapping table on
+     *                         the replica at startup, for a local H2 replica
+     *                         ('app.read-replica.initialize-schema').
+     */
+    @Bean
+    public HikariDataSource replicaDataSource(@Value("${app.read-replica.url}") String url,
+                                              @Value("${app.read-replica.username:sa}") String username,
+                                              @Value("${app.read-replica.password:}") String password,
+                                              @Value("${app.read-replica.pool-size:20}") int poolSize,
+                                              @Value("${app.read-replica.initialize-schema:false}") boolean initializeSchema) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setReadOnly(true);
+        if (initializeSchema) {
+            new ResourceDatabasePopulator(new ClassPathResource("shard-schema.sql")).execute(dataSource);
+        }
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.urlshortener.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports at startup whether requests and scheduled jobs run on virtual threads.
+ *
+ * The 'virtual-threads' profile sets 'spring.threads.virtual.enabled=true'. Spring
+ * Boot silently ignores that property on a JVM older than 21, because virtual
+ * threads do not exist there, so we log a warning instead of failing quietly.
+ */
+@Component
+public class VirtualThreadsStartupCheck {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsStartupCheck.class);
+
+    private final boolean virtualThreadsRequested;
+
+    public VirtualThreadsStartupCheck(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsRequested) {
+        this.virtualThreadsRequested = virtualThreadsRequested;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportThreadingMode() {
+        if (!virtualThreadsRequested) {
+            logger.info("Serving requests on platform threads.");
+        } else if (Runtime.version().feature() >= 21) {
+            logger.info("Serving requests and scheduled jobs on virtual threads.");
+        } else {
+            logger.warn("spring.threads.virtual.enabled is set, but Java {} has no virtual threads. "
+                    + "Serving requests on platform threads; run on Java 21 or later to use them.",
+                    Runtime.version().feature());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.urlshortener.controller;
+
+import java.time.Instant;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.urlshortener.dto.BloomFilterStatsResponse;
+import com.example.urlshortener.dto.CacheStatsResponse;
+import com.example.urlshortener.dto.ClickLogReplayResponse;
+import com.example.urlshortener.dto.HeavyHittersResponse;
+import com.example.urlshortener.dto.WarmupStatsResponse;
+import com.example.urlshortener.service.CacheWarmer;
+import com.example.urlshortener.service.ClickLogReplayer;
+import com.example.urlshortener.service.HeavyHitters;
+import com.example.urlshortener.service.RedirectCache;
+import com.example.urlshortener.service.ShortCodeBloomFilter;
+
+/**
+ * Operational endpoints that expose the internal state of the service.
+ * They are namespaced under /api/v1/admin so they can be restricted separately
+ * from the public API (e.g. at the reverse proxy).
+ */
+@RestController
+@RequestMapping("/api/v1/admin")
+public class AdminController {
+
+    private final RedirectCache redirectCache;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final HeavyHitters heavyHitters;
+    private final ClickLogReplayer clickLogReplayer;
+    private final CacheWarmer cacheWarmer;
+
+    public AdminController(RedirectCache redirectCache, ShortCodeBloomFilter shortCodeBloomFilter,
+                           HeavyHitters heavyHitters, ClickLogReplayer clickLogReplayer, CacheWarmer cacheWarmer) {
+        this.redirectCache = redirectCache;
+        this.shortCodeBloomFilter = shortCodeBloomFilter;
+        this.heavyHitters = heavyHitters;
+        this.clickLogReplayer = clickLogReplayer;
+        this.cacheWarmer = cacheWarmer;
+    }
+
+    /**
+     * @return The hit/miss/eviction counters of the redirect cache.
+     */
+    @GetMapping("/cache")
+    public CacheStatsResponse cacheStats() {
+        return redirectCache.stats();
+    }
+
+    /**
+     * @return Where the redirect cache was warmed up from at startup, how long it
+     *         took, and the hit rate of the cache since.
+     */
+    @GetMapping("/warmup")
+    public WarmupStatsResponse warmupStats() {
+        return cacheWarmer.stats();
+    }
+
+    /**
+     * @return The size and the estimated and observed false-positive rate of the
+     *         Bloom filter of known short codes.
+     */
+    @GetMapping("/bloom-filter")
+    public BloomFilterStatsResponse bloomFilterStats() {
+        return shortCodeBloomFilter.stats();
+    }
+
+    /**
+     * @return The links that currently receive the most redirects, with their
+     *         estimated click counts. These links are served from the pinned tier.
+     */
+    @GetMapping("/heavy-hitters")
+    public HeavyHittersResponse heavyHitters() {
+        return heavyHitters.stats();
+    }
+
+    /**
+     * Sets the click count of every link to the number of its events in the click
+     * event log. Only exact while the log holds the complete history; see
+     * ClickLogReplayer.rebuildClickCounts().
+     */
+    @PostMapping("/click-log/rebuild-click-counts")
+    public ClickLogReplayResponse rebuildClickCounts() {
+        return clickLogReplayer.rebuildClickCounts();
+    }
+
+    /**
+     * Adds the click events in [from, to) to the click time series, e.g. the
+     * minutes lost in a crash before they were rolled up.
+     *
+     * @param from The start of the range (ISO-8601 instant).
+     * @param to   The end of the range (exclusive).
+     */
+    @PostMapping("/click-log/replay-analytics")
+    public ClickLogReplayResponse replayAnalytics(@RequestParam Instant from, @RequestParam Instant to) {
+        return clickLogReplayer.replayAnalytics(from, to);
+    }
+}
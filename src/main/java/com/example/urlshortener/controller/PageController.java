@@ -5,22 +5,30 @@ package com.example.urlshortener.controller;
 import com.example.urlshortener.dto.UrlStatsResponse;
 import com.example.urlshortener.exception.AliasAlreadyExistsException;
 import com.example.urlshortener.exception.UrlNotFoundException;
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.metrics.ShortenerMetrics.PageHandler;
 import com.example.urlshortener.service.UrlShortenerService;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
+// The form binds servlet request parameters, so the page is not served in the 'reactive' profile.
 @Controller
+@Profile("!reactive")
 public class PageController {
 
     private final UrlShortenerService urlShortenerService;
+    private final ShortenerMetrics metrics;
 
-    public PageController(UrlShortenerService urlShortenerService) {
+    public PageController(UrlShortenerService urlShortenerService, ShortenerMetrics metrics) {
         this.urlShortenerService = urlShortenerService;
+        this.metrics = metrics;
     }
 
+    // Timed by IndexPageTimerFilter, together with rendering the view.
     @GetMapping("/")
     public String indexPage() {
         return "index";
@@ -40,6 +48,7 @@ public class PageController {
         // is preserved on the page even if there's an error.
         model.addAttribute("originalUrl", longUrl);
 
+        long start = System.nanoTime();
         try {
             // The web form doesn't support expiration yet, so we explicitly pass 'null'
             // for the hoursToExpire parameter. The service will see this null and correctly
@@ -54,8 +63,11 @@ public class PageController {
             // If the service throws our custom exception, we catch it.
             // We add a user-friendly error message to the model for Thymeleaf to display.
             model.addAttribute("aliasError", e.getMessage());
+            metrics.aliasAlreadyExists();
+        } finally {
+            metrics.recordPage(PageHandler.SHORTEN_FORM, start);
         }
-        
+
         return "index";
     }
 
@@ -78,6 +90,7 @@ public class PageController {
      */
     @PostMapping("/check-stats")
     public String handleStatsCheckForm(@RequestParam("checkShortCode") String shortCode, Model model) {
+        long start = System.nanoTime();
         try {
             // 1. Call the service to get the statistics. If successful, this returns our DTO.
             UrlStatsResponse stats = urlShortenerService.getStats(shortCode);
@@ -90,6 +103,9 @@ public class PageController {
             // Instead, we add a user-friendly error message to the model.
             // We will use the key "statsError" to check for this message in our HTML.
             model.addAttribute("statsError", "Statistics not found for short code: " + shortCode);
+            metrics.urlNotFound();
+        } finally {
+            metrics.recordPage(PageHandler.STATS_FORM, start);
         }
         return "index";
     }
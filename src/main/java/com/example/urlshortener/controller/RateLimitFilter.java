@@ -0,0 +1,102 @@
+package com.example.urlshortener.controller;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.metrics.ShortenerMetrics.RateLimitedEndpoint;
+import com.example.urlshortener.service.RateLimiter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Rejects requests to the shorten endpoints with '429 Too Many Requests' once
+ * their client has used up its RateLimiter bucket. The 'Retry-After' header says
+ * how many seconds the client has to wait, and the body has the same fields as
+ * the errors of GlobalExceptionHandler.
+ *
+ * Running as a filter, a rejected request never reaches Spring MVC: its body is
+ * not parsed and no database work is done. Every other request only pays for the
+ * check of its method and path.
+ *
+ * The path is matched the way Spring MVC matches it: decoded, without ';'
+ * parameters and with duplicate slashes removed. Matching the raw request URI
+ * would let '/api/v1/url/shorten;x=1' or '/api/v1/url/%73horten' through.
+ *
+ * A client is its IP address, as seen by the servlet container (behind a reverse
+ * proxy, set 'server.forward-headers-strategy'). If 'app.rate-limit.client-key-header'
+ * names a header, e.g. X-API-Key, requests that carry it are limited per key
+ * instead. Only use this when a gateway validates the keys; otherwise a client can
+ * send a new key with every request.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Map<String, RateLimitedEndpoint> ENDPOINTS = Map.of(
+            "/api/v1/url/shorten", RateLimitedEndpoint.SHORTEN,
+            "/api/v1/url/shorten/batch", RateLimitedEndpoint.SHORTEN_BATCH,
+            "/shorten-web", RateLimitedEndpoint.SHORTEN_WEB);
+
+    // Decodes the path and removes ';' content, like the handler mapping does.
+    private static final UrlPathHelper PATHS = new UrlPathHelper();
+
+    private final RateLimiter rateLimiter;
+    private final ShortenerMetrics metrics;
+    private final String clientKeyHeader;
+
+    public RateLimitFilter(RateLimiter rateLimiter, ShortenerMetrics metrics,
+                           @Value("${app.rate-limit.client-key-header:}") String clientKeyHeader) {
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+        this.clientKeyHeader = StringUtils.hasText(clientKeyHeader) ? clientKeyHeader : null;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !ENDPOINTS.containsKey(PATHS.getPathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = PATHS.getPathWithinApplication(request);
+        RateLimitedEndpoint endpoint = ENDPOINTS.get(path);
+        long waitNanos = rateLimiter.tryAcquire(endpoint, client(request));
+        if (waitNanos == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+        metrics.throttled(endpoint);
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"timestamp\":\"" + LocalDateTime.now()
+                + "\",\"status\":429,\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded, retry in "
+                + retryAfterSeconds + " s\",\"path\":\"" + path + "\"}");
+    }
+
+    private String client(HttpServletRequest request) {
+        if (clientKeyHeader != null) {
+            String key = request.getHeader(clientKeyHeader);
+            if (key != null) {
+                return "key:" + key;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.urlshortener.controller;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.metrics.ShortenerMetrics.RedirectCaching;
+import com.example.urlshortener.model.RedirectPolicy;
+import com.example.urlshortener.model.RedirectTarget;
+
+/**
+ * Builds the HTTP response of a redirect, including how browsers and CDNs may cache it.
+ *
+ * - A PERMANENT link without an expiration date is answered with
+ *   'app.redirect.permanent-status' (301 or 308) and
+ *   'Cache-Control: public, max-age=<app.redirect.permanent-max-age-seconds>'.
+ *   Repeat clicks are then served by the cache and never reach us, so they are
+ *   not counted.
+ * - A link with an expiration date is answered with a 302 that may be cached for
+ *   'app.redirect.expiring-max-age-seconds', but never past its expiration.
+ * - Any other link (TEMPORARY) is answered with a 302 and 'Cache-Control: no-cache',
+ *   so every click is counted.
+ *
+ * The 'urlshortener.redirect.responses' counter shows how many redirects went out
+ * with each kind of caching, i.e. how much of the traffic may go uncounted.
+ */
+@Component
+public class RedirectResponses {
+
+    private final ShortenerMetrics metrics;
+    private final RedirectPolicy defaultPolicy;
+    private final HttpStatus permanentStatus;
+    private final CacheControl permanentCacheControl;
+    private final long expiringMaxAgeSeconds;
+
+    /**
+     * @param defaultPolicy          The policy of links without one of their own
+     *                               ('app.redirect.default-policy').
+     * @param permanentStatus        301 or 308 ('app.redirect.permanent-status').
+     * @param permanentMaxAgeSeconds How long permanent redirects may be cached
+     *                               ('app.redirect.permanent-max-age-seconds').
+     * @param expiringMaxAgeSeconds  How long redirects of expiring links may be cached
+     *                               ('app.redirect.expiring-max-age-seconds').
+     */
+    public RedirectResponses(ShortenerMetrics metrics,
+                             @Value("${app.redirect.default-policy:TEMPORARY}") RedirectPolicy defaultPolicy,
+                             @Value("${app.redirect.permanent-status:301}") int permanentStatus,
+                             @Value("${app.redirect.permanent-max-age-seconds:86400}") long permanentMaxAgeSeconds,
+                             @Value("${app.redirect.expiring-max-age-seconds:60}") long expiringMaxAgeSeconds) {
+        if (permanentStatus != HttpStatus.MOVED_PERMANENTLY.value()
+                && permanentStatus != HttpStatus.PERMANENT_REDIRECT.value()) {
+            throw new IllegalArgumentException("app.redirect.permanent-status must be 301 or 308, not " + permanentStatus);
+        }
+        this.metrics = metrics;
+        this.defaultPolicy = defaultPolicy;
+        this.permanentStatus = HttpStatus.valueOf(permanentStatus);
+        this.permanentCacheControl = CacheControl.maxAge(Duration.ofSeconds(permanentMaxAgeSeconds)).cachePublic();
+        this.expiringMaxAgeSeconds = expiringMaxAgeSeconds;
+    }
+
+    /**
+     * @param target A link that is not expired.
+     */
+    public ResponseEntity<Void> redirectTo(RedirectTarget target) {
+        URI location = URI.create(target.originalUrl());
+        if (target.expirationDate() != null) {
+            long secondsLeft = Duration.between(LocalDateTime.now(), target.expirationDate()).getSeconds();
+            long maxAge = Math.max(0, Math.min(expiringMaxAgeSeconds, secondsLeft));
+            CacheControl cacheControl;
+            if (maxAge > 0) {
+                metrics.redirectResponse(RedirectCaching.EXPIRING);
+                cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAge)).cachePublic();
+            } else {
+                metrics.redirectResponse(RedirectCaching.UNCACHED);
+                cacheControl = CacheControl.noCache();
+            }
+            return ResponseEntity.status(HttpStatus.FOUND).location(location).cacheControl(cacheControl).build();
+        }
+        RedirectPolicy policy = target.redirectPolicy() != null ? target.redirectPolicy() : defaultPolicy;
+        if (policy == RedirectPolicy.PERMANENT) {
+            metrics.redirectResponse(RedirectCaching.PERMANENT);
+            return ResponseEntity.status(permanentStatus).location(location).cacheControl(permanentCacheControl).build();
+        }
+        metrics.redirectResponse(RedirectCaching.UNCACHED);
+        return ResponseEntity.status(HttpStatus.FOUND).location(location).cacheControl(CacheControl.noCache()).build();
+    }
+}
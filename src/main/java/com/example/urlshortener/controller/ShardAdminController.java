@@ -0,0 +1,48 @@
+package com.example.urlshortener.controller;
+
+import java.util.Map;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.urlshortener.dto.ShardRebalanceResponse;
+import com.example.urlshortener.repository.sharded.ShardRebalancer;
+import com.example.urlshortener.repository.sharded.ShardedUrlMappingStore;
+
+/**
+ * Operational endpoints of the sharded store, next to those of AdminController.
+ * Only registered with the 'sharded' profile.
+ */
+@RestController
+@Profile("sharded")
+@RequestMapping("/api/v1/admin/shards")
+public class ShardAdminController {
+
+    private final ShardedUrlMappingStore shardedUrlMappingStore;
+    private final ShardRebalancer shardRebalancer;
+
+    public ShardAdminController(ShardedUrlMappingStore shardedUrlMappingStore, ShardRebalancer shardRebalancer) {
+        this.shardedUrlMappingStore = shardedUrlMappingStore;
+        this.shardRebalancer = shardRebalancer;
+    }
+
+    /**
+     * @return The number of mappings stored on each shard.
+     */
+    @GetMapping
+    public Map<String, Long> mappingsByShard() {
+        return shardedUrlMappingStore.countByShard();
+    }
+
+    /**
+     * Moves every mapping to the shard that owns it on the current hash ring, e.g.
+     * after a shard was added. Blocks until the run is done; see ShardRebalancer.
+     */
+    @PostMapping("/rebalance")
+    public ShardRebalanceResponse rebalance() {
+        return shardRebalancer.rebalance();
+    }
+}
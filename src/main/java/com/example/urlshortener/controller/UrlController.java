@@ -2,32 +2,64 @@
 
 package com.example.urlshortener.controller;
 
+import com.example.urlshortener.dto.BatchShortenResult;
 import com.example.urlshortener.dto.ShortenUrlRequest;
 import com.example.urlshortener.dto.ShortenUrlResponse;
 import com.example.urlshortener.dto.UrlStatsResponse;
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.model.ClickResolution;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.service.BulkShortenService;
 import com.example.urlshortener.service.UrlShortenerService;
+import jakarta.servlet.http.HttpServletResponse;
 // NEW: Import the @Valid annotation for triggering validation
 import jakarta.validation.Valid;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 // NEW: Import the necessary HTTP and web-related classes
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import java.net.URI;
-
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+
+/**
+ * The servlet (Spring MVC) API. In the 'reactive' profile, ReactiveUrlController
+ * serves the redirect and shorten endpoints instead.
+ */
 @RestController
+@Profile("!reactive")
 //@RequestMapping("/api/v1/url")
 public class UrlController {
 
     private final UrlShortenerService urlShortenerService;
+    private final BulkShortenService bulkShortenService;
+    private final ObjectMapper objectMapper;
+    private final ShortenerMetrics metrics;
+    private final RedirectResponses redirectResponses;
 
-    public UrlController(UrlShortenerService urlShortenerService) {
+    public UrlController(UrlShortenerService urlShortenerService, BulkShortenService bulkShortenService,
+                         ObjectMapper objectMapper, ShortenerMetrics metrics, RedirectResponses redirectResponses) {
         this.urlShortenerService = urlShortenerService;
+        this.bulkShortenService = bulkShortenService;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.redirectResponses = redirectResponses;
     }
 
     // This is the method we created in the previous task.
@@ -36,7 +68,15 @@ public class UrlController {
     public ResponseEntity<ShortenUrlResponse> shortenUrl(@Valid @RequestBody ShortenUrlRequest request) {
         
         // Step 1: Delegate to the service to get the unique code.
-        String shortCode = urlShortenerService.shortenUrl(request.url(), request.CustomAlias(),request.hoursToExpire());
+        // The call is timed here, so a rejected alias is measured as well.
+        long start = System.nanoTime();
+        String shortCode;
+        try {
+            shortCode = urlShortenerService.shortenUrl(request.url(), request.CustomAlias(),request.hoursToExpire(),
+                    request.redirectPolicy());
+        } finally {
+            metrics.recordShorten(start);
+        }
 
         // Step 2: Construct the full, user-facing URL.
         String fullShortUrl = "http://localhost:8080/" + shortCode;
@@ -57,6 +97,47 @@ public class UrlController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Shortens many URLs in a single request.
+     *
+     * The body is either a JSON array of ShortenUrlRequest objects or NDJSON (one
+     * object per line). It is read incrementally with a Jackson MappingIterator, and
+     * one BatchShortenResult per item is streamed back as NDJSON after each chunk has
+     * been stored. Neither the request nor the response is ever held in memory as a
+     * whole, so imports of millions of URLs are possible.
+     *
+     * Items are validated and rejected individually: an invalid URL or an alias
+     * conflict is reported in that item's result and does not fail the request.
+     *
+     * @param body     The raw request body.
+     * @param response The servlet response the results are written to.
+     */
+    @PostMapping(value = "/api/v1/url/shorten/batch",
+            consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public void shortenUrlBatch(InputStream body, HttpServletResponse response) throws IOException {
+        long start = System.nanoTime();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        try (MappingIterator<ShortenUrlRequest> requests =
+                     objectMapper.readerFor(ShortenUrlRequest.class).readValues(body)) {
+            bulkShortenService.shortenAll(requests, results -> {
+                try {
+                    for (BatchShortenResult result : results) {
+                        out.write(objectMapper.writeValueAsBytes(result));
+                        out.write('\n');
+                    }
+                    // Push each chunk to the client as soon as it is committed.
+                    out.flush();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } finally {
+            metrics.recordShortenBatch(start);
+        }
+    }
+
     /**
      * This method handles the redirection from a short URL to the original URL.
      *
@@ -69,18 +150,26 @@ public class UrlController {
      * For a request to /aB1cDe, the value of the 'shortCode' parameter will be "aB1cDe".
      *
      * @return A ResponseEntity<Void>. For a redirect, we don't send a body, so the generic type
-     * is Void. The entire response is communicated through the HTTP status code (302 Found)
-     * and the 'Location' header, which we will implement in a later task.
+     * is Void. The entire response is communicated through the HTTP status code, the
+     * 'Location' header and the 'Cache-Control' header, which RedirectResponses chooses
+     * from the link's redirect policy and expiration date.
+     *
+     * The optional 'Referer' and 'User-Agent' headers are recorded in the click event log.
      */
     @GetMapping("/{shortCode}")
-    public ResponseEntity<Void> redirect(@PathVariable String shortCode) {
+    public ResponseEntity<Void> redirect(@PathVariable String shortCode,
+                                         @RequestHeader(name = HttpHeaders.REFERER, required = false) String referrer,
+                                         @RequestHeader(name = HttpHeaders.USER_AGENT, required = false) String userAgent) {
         // The controller's job is to delegate the business logic to the service layer.
         // We pass the shortCode captured from the URL path to our new service method.
-        String originalUrl = urlShortenerService.getOriginalUrlAndIncrementClicks(shortCode);
-
-
-
-        return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(originalUrl)).build();
+        // The whole lookup is timed, including unknown and expired codes.
+        long start = System.nanoTime();
+        try {
+            RedirectTarget target = urlShortenerService.resolveRedirect(shortCode, referrer, userAgent);
+            return redirectResponses.redirectTo(target);
+        } finally {
+            metrics.recordRedirect(start);
+        }
     }
 
     /**
@@ -91,18 +180,45 @@ public class UrlController {
      *   - 'stats' clearly indicates the purpose of the endpoint.
      *   - {shortCode} is a path variable to specify which URL's stats to fetch.
      *
-     * @param shortCode The short code captured from the URL path via @PathVariable.
+     * The response includes a time series of clicks, e.g.
+     * /api/v1/url/stats/aB1cDe?resolution=HOUR&from=2026-10-01T00:00:00Z&to=2026-10-02T00:00:00Z
+     *
+     * @param shortCode  The short code captured from the URL path via @PathVariable.
+     * @param resolution The bucket size of the series: MINUTE, HOUR (default) or DAY.
+     * @param from       The start of the series (ISO-8601 instant). Defaults to one hour,
+     *                   one day or 30 days before 'to', depending on the resolution.
+     * @param to         The end of the series. Defaults to now. The minute it falls
+     *                   in is included, so the current minute counts.
      * @return A ResponseEntity containing the statistics in a UrlStatsResponse DTO.
-     *         The actual implementation will be built in the following tasks.
+     *
+     * The response carries an ETag of the click count and series, and 'Cache-Control:
+     * no-cache', so clients and CDNs revalidate on every use. Spring answers a request
+     * whose 'If-None-Match' matches the ETag with 304 Not Modified and no body.
      */
     @GetMapping("/api/v1/url/stats/{shortCode}")
-    public ResponseEntity<UrlStatsResponse> getUrlStats(@PathVariable String shortCode) {
-        // In the next tasks, we will:
-        // 1. Create the UrlStatsResponse DTO.
-        // 2. Add a new method to the UrlShortenerService to fetch the stats.
-        // 3. Call that service method here and return its result.
-        
-        // For now, returning null is a placeholder for the logic to come.
-        return null; 
+    public ResponseEntity<UrlStatsResponse> getUrlStats(@PathVariable String shortCode,
+                                                        @RequestParam(defaultValue = "HOUR") ClickResolution resolution,
+                                                        @RequestParam(required = false) Instant from,
+                                                        @RequestParam(required = false) Instant to) {
+        // A UrlNotFoundException from the service is turned into a 404 by GlobalExceptionHandler.
+        UrlStatsResponse stats = urlShortenerService.getStats(shortCode, resolution, from, to);
+        return ResponseEntity.ok()
+                .eTag(etagOf(stats))
+                .cacheControl(CacheControl.noCache())
+                .body(stats);
+    }
+
+    /**
+     * A weak ETag over the parts of the statistics that change: the click count and
+     * the series. The URL and creation date of a short code never change.
+     */
+    private static String etagOf(UrlStatsResponse stats) {
+        long hash = stats.clickCount();
+        hash = 31 * hash + (stats.resolution() == null ? 0 : stats.resolution().name().hashCode());
+        for (UrlStatsResponse.Point point : stats.series()) {
+            hash = 31 * hash + point.start().getEpochSecond();
+            hash = 31 * hash + point.clicks();
+        }
+        return "W/\"" + Long.toHexString(hash) + "\"";
     }
 }
\ No newline at end of file
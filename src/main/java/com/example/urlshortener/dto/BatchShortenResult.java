@@ -0,0 +1,43 @@
+package com.example.urlshortener.dto;
+
+/**
+ * A Data Transfer Object (DTO) describing the outcome of one item of a bulk
+ * shorten request. The batch endpoint streams one of these per input item, as a
+ * line of NDJSON, in the same order as the input.
+ *
+ * For example:
+ * {"index":0,"status":"CREATED","shortUrl":"http://localhost:8080/aB1cDe","error":null}
+ * {"index":1,"status":"CONFLICT","shortUrl":null,"error":"Alias 'promo' is already in use."}
+ *
+ * @param index    The zero-based position of the item in the request.
+ * @param status   Whether the item was stored, or why it was rejected.
+ * @param shortUrl The full short URL if the item was created, otherwise null.
+ * @param error    A human-readable reason if the item was rejected, otherwise null.
+ */
+public record BatchShortenResult(
+        long index,
+        Status status,
+        String shortUrl,
+        String error) {
+
+    public enum Status {
+        /** The link was created. */
+        CREATED,
+        /** The item failed validation, e.g. the URL is malformed. */
+        INVALID,
+        /** The requested custom alias is already in use. */
+        CONFLICT
+    }
+
+    public static BatchShortenResult created(long index, String shortUrl) {
+        return new BatchShortenResult(index, Status.CREATED, shortUrl, null);
+    }
+
+    public static BatchShortenResult invalid(long index, String error) {
+        return new BatchShortenResult(index, Status.INVALID, null, error);
+    }
+
+    public static BatchShortenResult conflict(long index, String error) {
+        return new BatchShortenResult(index, Status.CONFLICT, null, error);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.urlshortener.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A Data Transfer Object (DTO) describing the Bloom filter of known short codes.
+ *
+ * @param ready                      false until the first build from the database has finished.
+ * @param configuredFalsePositiveRate The target rate from 'app.bloom.false-positive-rate'.
+ * @param bitCount                   The size of the bit array.
+ * @param hashFunctions              How many bits each short code sets.
+ * @param insertions                 How many short codes were added since the last rebuild.
+ * @param estimatedFalsePositiveRate The rate expected from the current fill of the bit array.
+ * @param observedFalsePositiveRate  falsePositives / all lookups of codes that did not exist.
+ * @param negatives                  Lookups answered "definitely not" without the database.
+ * @param positives                  Lookups answered "maybe", which went to the database.
+ * @param falsePositives             "Maybe" answers for codes the database did not have.
+ * @param lastRebuild                When the filter was last rebuilt, or null.
+ */
+public record BloomFilterStatsResponse(
+        boolean ready,
+        double configuredFalsePositiveRate,
+        long bitCount,
+        int hashFunctions,
+        long insertions,
+        double estimatedFalsePositiveRate,
+        double observedFalsePositiveRate,
+        long negatives,
+        long positives,
+        long falsePositives,
+        LocalDateTime lastRebuild) {
+}
@@ -0,0 +1,20 @@
+package com.example.urlshortener.dto;
+
+/**
+ * A Data Transfer Object (DTO) describing the current state of the in-process
+ * redirect cache. It is returned by the admin endpoint so operators can decide
+ * whether the cache is large enough for the working set of hot links.
+ *
+ * @param size          The approximate number of short codes currently cached.
+ * @param hitCount      How many lookups were answered from memory.
+ * @param missCount     How many lookups had to go to the database.
+ * @param evictionCount How many entries were evicted because the cache was full.
+ * @param hitRate       hitCount / (hitCount + missCount), or 1.0 if there were no lookups yet.
+ */
+public record CacheStatsResponse(
+        long size,
+        long hitCount,
+        long missCount,
+        long evictionCount,
+        double hitRate) {
+}
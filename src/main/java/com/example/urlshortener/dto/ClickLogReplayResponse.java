@@ -0,0 +1,12 @@
+package com.example.urlshortener.dto;
+
+/**
+ * A Data Transfer Object (DTO) describing the result of replaying the click event log.
+ *
+ * @param eventsReplayed The click events that were counted.
+ * @param rowsWritten    The database rows that were updated or created.
+ */
+public record ClickLogReplayResponse(
+        long eventsReplayed,
+        long rowsWritten) {
+}
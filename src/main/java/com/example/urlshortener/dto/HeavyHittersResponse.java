@@ -0,0 +1,27 @@
+package com.example.urlshortener.dto;
+
+import java.util.List;
+
+/**
+ * A Data Transfer Object (DTO) describing the links that currently receive the most
+ * redirects, and are therefore served from the pinned tier.
+ *
+ * @param topK               How many links are tracked ('app.heavy-hitters.top-k').
+ * @param admissionThreshold The estimated click count a link needs to become a candidate.
+ * @param pinnedHits         Redirects answered from the pinned tier since startup.
+ * @param heavyHitters       The current top links, most clicked first.
+ */
+public record HeavyHittersResponse(
+        int topK,
+        long admissionThreshold,
+        long pinnedHits,
+        List<Entry> heavyHitters) {
+
+    /**
+     * @param shortCode       The short code of the link.
+     * @param estimatedClicks The Count-Min estimate of its clicks in the current decay
+     *                        window. It may overestimate, but never underestimates.
+     */
+    public record Entry(String shortCode, long estimatedClicks) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.urlshortener.dto;
+
+import java.util.Map;
+
+/**
+ * A Data Transfer Object (DTO) describing the result of a ShardRebalancer run.
+ *
+ * @param mappingsScanned The mappings that were read from all shards.
+ * @param movedToShard    The mappings moved onto each shard, by shard name.
+ * @param durationMillis  How long the run took.
+ */
+public record ShardRebalanceResponse(
+        long mappingsScanned,
+        Map<String, Long> movedToShard,
+        long durationMillis) {
+}
@@ -1,5 +1,7 @@
 package com.example.urlshortener.dto;
 
+import com.example.urlshortener.model.RedirectPolicy;
+
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import org.hibernate.validator.constraints.URL;
@@ -26,6 +28,7 @@ import org.hibernate.validator.constraints.URL;
  *                      empty and is well-formed.
  * @param customAlias   An optional user-defined alias for the short URL.
  * @param hoursToExpire An OPTIONAL time-to-live (TTL) in hours. If provided, the link will expire after this many hours. If null, the link is permanent.
+ * @param redirectPolicy An optional PERMANENT or TEMPORARY redirect for this link. If null, 'app.redirect.default-policy' applies.
  */
 public record ShortenUrlRequest(
         // The @NotEmpty annotation ensures that the provided URL string is not null and
@@ -48,5 +51,6 @@ public record ShortenUrlRequest(
         * violated.
                  */
         @Min(value = 1, message = "Hours to expire must be a positive number")
-        Integer hoursToExpire) {
+        Integer hoursToExpire,
+        RedirectPolicy redirectPolicy) {
 }
\ No newline at end of file
@@ -2,7 +2,11 @@
 
 package com.example.urlshortener.dto;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.List;
+
+import com.example.urlshortener.model.ClickResolution;
 
 /**
  * A Data Transfer Object (DTO) for returning statistics about a specific URL
@@ -24,10 +28,30 @@ import java.time.LocalDateTime;
  * @param creationDate The timestamp when the short URL was originally created.
  * @param clickCount   The total number of times the short URL has been clicked
  *                     (redirected).
+ * @param resolution   The bucket size of 'series', or null if no series was requested.
+ * @param series       The clicks per time bucket in the requested range, oldest first.
  */
 public record UrlStatsResponse(
         String originalUrl,
         String shortUrl,
         LocalDateTime creationDate,
-        long clickCount) {
+        long clickCount,
+        ClickResolution resolution,
+        List<Point> series) {
+
+    /**
+     * Statistics without a time series, as shown on the web page.
+     */
+    public UrlStatsResponse(String originalUrl, String shortUrl, LocalDateTime creationDate, long clickCount) {
+        this(originalUrl, shortUrl, creationDate, clickCount, null, List.of());
+    }
+
+    /**
+     * One bucket of the time series.
+     *
+     * @param start  The start of the bucket (UTC).
+     * @param clicks The clicks in the bucket.
+     */
+    public record Point(Instant start, long clicks) {
+    }
 }
\ No newline at end of file
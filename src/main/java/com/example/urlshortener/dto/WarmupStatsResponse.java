@@ -0,0 +1,24 @@
+package com.example.urlshortener.dto;
+
+/**
+ * A Data Transfer Object (DTO) describing the redirect cache warm-up of this
+ * instance and how well the cache has done since.
+ *
+ * @param source          Where the links came from: "snapshot", "database", or "none"
+ *                        while the warm-up is running or when it is disabled.
+ * @param linksLoaded     The links put into the redirect cache.
+ * @param durationMillis  How long the instance was not ready because of the warm-up.
+ * @param completed       false if the time budget ran out before all links were loaded.
+ * @param hitCount        Redirect cache hits since the warm-up.
+ * @param missCount       Redirect cache misses since the warm-up.
+ * @param hitRate         hitCount / (hitCount + missCount), or 1.0 if there were no lookups yet.
+ */
+public record WarmupStatsResponse(
+        String source,
+        long linksLoaded,
+        long durationMillis,
+        boolean completed,
+        long hitCount,
+        long missCount,
+        double hitRate) {
+}
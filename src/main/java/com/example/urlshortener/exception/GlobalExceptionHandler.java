@@ -3,6 +3,9 @@
 package com.example.urlshortener.exception;
 
 
+import com.example.urlshortener.metrics.ShortenerMetrics;
+
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -13,10 +16,17 @@ import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+// Uses the servlet WebRequest; ReactiveExceptionHandler takes over in the 'reactive' profile.
 @ControllerAdvice
+@Profile("!reactive")
 public class GlobalExceptionHandler {
 
+    // Every API error passes through this class, so this is where they are counted.
+    private final ShortenerMetrics metrics;
 
+    public GlobalExceptionHandler(ShortenerMetrics metrics) {
+        this.metrics = metrics;
+    }
 
     /**
      * This method is a dedicated handler for the UrlNotFoundException.
@@ -39,6 +49,8 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(UrlNotFoundException.class)
     public ResponseEntity<Object> handleUrlNotFoundException(UrlNotFoundException ex, WebRequest request) {
+        metrics.urlNotFound();
+
         // Create a structured, map-based body for our JSON response.
         // Using a LinkedHashMap preserves the insertion order of the keys.        Map<String, Object> body = new LinkedHashMap<>();
         Map<String, Object> body = new LinkedHashMap<>();
@@ -59,7 +71,7 @@ public class GlobalExceptionHandler {
     
     @ExceptionHandler(AliasAlreadyExistsException.class)
     public ResponseEntity<Object> handleAliasAlreadyExistsException(AliasAlreadyExistsException ex, WebRequest request) {
-        
+        metrics.aliasAlreadyExists();
         
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("timestamp", LocalDateTime.now());
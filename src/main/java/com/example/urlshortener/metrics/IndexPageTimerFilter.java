@@ -0,0 +1,50 @@
+package com.example.urlshortener.metrics;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import com.example.urlshortener.metrics.ShortenerMetrics.PageHandler;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Times GET / in the 'index' page timer. The handler only names the view, and
+ * Thymeleaf renders it after the handler has returned, so the time is taken
+ * around the whole filter chain instead of inside PageController.
+ *
+ * Spring's 'http.server.requests' observation is disabled (see
+ * application.properties), so this is the only timer of the index page.
+ */
+@Component
+public class IndexPageTimerFilter extends OncePerRequestFilter {
+
+    private static final UrlPathHelper PATHS = new UrlPathHelper();
+
+    private final ShortenerMetrics metrics;
+
+    public IndexPageTimerFilter(ShortenerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !"/".equals(PATHS.getPathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            metrics.recordPage(PageHandler.INDEX, start);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.urlshortener.metrics;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records the time each HTTP request spent in repository calls, as summed up by
+ * RequestDbTime. Requests served entirely from the caches record zero, so the
+ * distribution also shows how often the redirect path reaches the database.
+ *
+ * Spring Boot registers every Filter bean with the servlet container.
+ */
+@Component
+public class RequestDbTimeFilter extends OncePerRequestFilter {
+
+    private final ShortenerMetrics metrics;
+
+    public RequestDbTimeFilter(ShortenerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Prometheus scrapes are not application traffic.
+        return request.getRequestURI().startsWith("/actuator/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestDbTime.reset();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            metrics.recordRequestDbTime(RequestDbTime.nanos());
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.urlshortener.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * The application's own meters for the request handlers and background jobs.
+ *
+ * Every meter is registered once, in the constructor, and kept in a field. Looking
+ * a meter up by name and tags on each request would allocate a Meter.Id (and its
+ * tag list) per call; recording on a pre-registered Timer or Counter does not, so
+ * the measurement does not add garbage to the redirect path it measures.
+ *
+ * Callers take a start time with System.nanoTime() and hand it to the matching
+ * record method. The request rate of each handler is the rate of its timer's
+ * count, e.g. rate(urlshortener_redirect_seconds_count[1m]) in Prometheus.
+ *
+ * @Component: Registered as a Spring bean so it can be injected wherever
+ *             something needs to be measured.
+ */
+@Component
+public class ShortenerMetrics {
+
+    /**
+     * The handlers of PageController, used as the 'handler' tag of its timer.
+     */
+    public enum PageHandler {
+        INDEX("index"),
+        SHORTEN_FORM("shorten-form"),
+        STATS_FORM("stats-form");
+
+        private final String tag;
+
+        PageHandler(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * How a redirect response may be cached, used as the 'caching' tag of its counter.
+     */
+    public enum RedirectCaching {
+        PERMANENT("permanent"),
+        EXPIRING("expiring"),
+        UNCACHED("uncached");
+
+        private final String tag;
+
+        RedirectCaching(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * The rate-limited endpoints, used as the 'endpoint' tag of the throttled counter.
+     */
+    public enum RateLimitedEndpoint {
+        SHORTEN("shorten"),
+        SHORTEN_BATCH("shorten-batch"),
+        SHORTEN_WEB("shorten-web");
+
+        private final String tag;
+
+        RateLimitedEndpoint(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final Timer redirect;
+    private final Counter[] redirectResponses;
+    private final Timer shorten;
+    private final Timer shortenBatch;
+    private final Counter shortenDeduplicated;
+    private final Timer[] pages;
+    private final Timer cleanup;
+    private final Timer cleanupChunk;
+    private final Counter cleanupDeletedRows;
+    private volatile double cleanupRowsPerSecond;
+    private final Counter urlNotFound;
+    private final Counter aliasAlreadyExists;
+    private final Timer requestDbTime;
+    private final Counter replicaHits;
+    private final Counter replicaFallbacks;
+    private final Counter[] throttled;
+    private final Timer warmup;
+    private final Counter invalidationsSent;
+    private final Counter invalidationsReceived;
+    private final Counter invalidationResyncs;
+
+    public ShortenerMetrics(MeterRegistry registry) {
+        this.redirect = latencyTimer("urlshortener.redirect", "Redirects from a short code to its URL.", registry);
+        this.redirectResponses = new Counter[RedirectCaching.values().length];
+        for (RedirectCaching caching : RedirectCaching.values()) {
+            redirectResponses[caching.ordinal()] = Counter.builder("urlshortener.redirect.responses")
+                    .description("Redirect responses by how long browsers and CDNs may cache them.")
+                    .tag("caching", caching.tag)
+                    .register(registry);
+        }
+        this.shorten = latencyTimer("urlshortener.shorten", "Requests to POST /api/v1/url/shorten.", registry);
+        this.shortenBatch = latencyTimer("urlshortener.shorten.batch",
+                "Requests to POST /api/v1/url/shorten/batch.", registry);
+        this.shortenDeduplicated = Counter.builder("urlshortener.shorten.deduplicated")
+                .description("Shorten requests answered with the existing short code of the same URL.")
+                .register(registry);
+        this.pages = new Timer[PageHandler.values().length];
+        for (PageHandler handler : PageHandler.values()) {
+            pages[handler.ordinal()] = Timer.builder("urlshortener.page")
+                    .description("Requests to the web page handlers.")
+                    .tag("handler", handler.tag)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        this.cleanup = Timer.builder("urlshortener.cleanup")
+                .description("Runs of the expired link cleanup job.")
+                .register(registry);
+        this.cleanupChunk = latencyTimer("urlshortener.cleanup.chunk",
+                "Transactions of the cleanup job, each deleting one chunk of expired links.", registry);
+        this.cleanupDeletedRows = Counter.builder("urlshortener.cleanup.deleted")
+                .description("Expired links deleted by the cleanup job.")
+                .baseUnit("rows")
+                .register(registry);
+        Gauge.builder("urlshortener.cleanup.throughput", this, metrics -> metrics.cleanupRowsPerSecond)
+                .description("Rows per second deleted by the last cleanup run, pauses included.")
+                .baseUnit("rows.per.second")
+                .register(registry);
+        this.urlNotFound = errorCounter("UrlNotFoundException", registry);
+        this.aliasAlreadyExists = errorCounter("AliasAlreadyExistsException", registry);
+        this.requestDbTime = latencyTimer("urlshortener.request.db",
+                "Time spent in repository calls per HTTP request.", registry);
+        this.replicaHits = replicaLookupCounter("hit", registry);
+        this.replicaFallbacks = replicaLookupCounter("fallback", registry);
+        this.warmup = Timer.builder("urlshortener.warmup")
+                .description("The redirect cache warm-up at startup, during which the instance is not ready.")
+                .register(registry);
+        this.invalidationsSent = invalidationCounter("sent", registry);
+        this.invalidationsReceived = invalidationCounter("received", registry);
+        this.invalidationResyncs = Counter.builder("urlshortener.invalidation.resyncs")
+                .description("Times the in-process caches were dropped because invalidations may have been lost.")
+                .register(registry);
+        this.throttled = new Counter[RateLimitedEndpoint.values().length];
+        for (RateLimitedEndpoint endpoint : RateLimitedEndpoint.values()) {
+            throttled[endpoint.ordinal()] = Counter.builder("urlshortener.ratelimit.throttled")
+                    .description("Requests rejected with 429 because their client exceeded its rate limit.")
+                    .tag("endpoint", endpoint.tag)
+                    .register(registry);
+        }
+    }
+
+    private static Timer latencyTimer(String name, String description, MeterRegistry registry) {
+        // The percentiles are computed in the application (for dashboards without
+        // histogram support); the histogram buckets let Prometheus aggregate
+        // percentiles across instances with histogram_quantile().
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Counter errorCounter(String exception, MeterRegistry registry) {
+        return Counter.builder("urlshortener.errors")
+                .description("Requests that failed with a business exception.")
+                .tag("exception", exception)
+                .register(registry);
+    }
+
+    private static Counter invalidationCounter(String direction, MeterRegistry registry) {
+        return Counter.builder("urlshortener.invalidation.codes")
+                .description("Short codes sent to or received from the other instances on the invalidation bus.")
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    private static Counter replicaLookupCounter(String result, MeterRegistry registry) {
+        return Counter.builder("urlshortener.replica.lookups")
+                .description("Lookups on the read replica; a 'fallback' was repeated on the primary.")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public void recordRedirect(long startNanos) {
+        redirect.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void redirectResponse(RedirectCaching caching) {
+        redirectResponses[caching.ordinal()].increment();
+    }
+
+    public void recordShorten(long startNanos) {
+        shorten.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordShortenBatch(long startNanos) {
+        shortenBatch.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void shortenDeduplicated() {
+        shortenDeduplicated.increment();
+    }
+
+    public void recordPage(PageHandler handler, long startNanos) {
+        pages[handler.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCleanupChunk(long startNanos, long deletedRows) {
+        cleanupChunk.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        cleanupDeletedRows.increment(deletedRows);
+    }
+
+    public void recordCleanup(long startNanos, long deletedRows) {
+        long nanos = System.nanoTime() - startNanos;
+        cleanup.record(nanos, TimeUnit.NANOSECONDS);
+        cleanupRowsPerSecond = nanos == 0 ? 0 : deletedRows * 1e9 / nanos;
+    }
+
+    public void recordRequestDbTime(long nanos) {
+        requestDbTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void urlNotFound() {
+        urlNotFound.increment();
+    }
+
+    public void aliasAlreadyExists() {
+        aliasAlreadyExists.increment();
+    }
+
+    /**
+     * @param hit Whether the replica had the link, or the lookup falls back to the primary.
+     */
+    public void replicaLookup(boolean hit) {
+        (hit ? replicaHits : replicaFallbacks).increment();
+    }
+
+    public void invalidationsSent(int codes) {
+        invalidationsSent.increment(codes);
+    }
+
+    public void invalidationsReceived(int codes) {
+        invalidationsReceived.increment(codes);
+    }
+
+    public void invalidationResync() {
+        invalidationResyncs.increment();
+    }
+
+    public void recordWarmup(long startNanos) {
+        warmup.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void throttled(RateLimitedEndpoint endpoint) {
+        throttled[endpoint.ordinal()].increment();
+    }
+}
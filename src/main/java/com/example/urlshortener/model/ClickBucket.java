@@ -0,0 +1,17 @@
+package com.example.urlshortener.model;
+
+/**
+ * The number of clicks a link received in one time bucket, as stored in the
+ * 'click_bucket' table.
+ *
+ * @param shortCode   The short code of the link.
+ * @param resolution  The size of the bucket.
+ * @param startMinute The first minute of the bucket, in minutes since the epoch (UTC).
+ * @param clicks      The clicks in the bucket.
+ */
+public record ClickBucket(
+        String shortCode,
+        ClickResolution resolution,
+        long startMinute,
+        long clicks) {
+}
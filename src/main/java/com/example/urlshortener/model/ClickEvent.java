@@ -0,0 +1,18 @@
+package com.example.urlshortener.model;
+
+import java.time.Instant;
+
+/**
+ * One redirect, as recorded in the click event log.
+ *
+ * @param timestamp When the redirect happened.
+ * @param shortCode The short code that was resolved.
+ * @param referrer  The 'Referer' header of the request, or null. Truncated to fit the record.
+ * @param userAgent The 'User-Agent' header of the request, or null. Truncated to fit the record.
+ */
+public record ClickEvent(
+        Instant timestamp,
+        String shortCode,
+        String referrer,
+        String userAgent) {
+}
@@ -0,0 +1,47 @@
+package com.example.urlshortener.model;
+
+import java.time.Duration;
+
+/**
+ * The bucket sizes in which clicks are counted over time.
+ *
+ * Buckets are aligned to UTC: an hour bucket starts at a full hour and a day
+ * bucket at midnight UTC. Times are handled as "epoch minutes", the number of
+ * whole minutes since 1970-01-01T00:00Z.
+ */
+public enum ClickResolution {
+
+    MINUTE(1, Duration.ofHours(1)),
+    HOUR(60, Duration.ofDays(1)),
+    DAY(24 * 60, Duration.ofDays(30));
+
+    private final int minutes;
+    private final Duration defaultRange;
+
+    ClickResolution(int minutes, Duration defaultRange) {
+        this.minutes = minutes;
+        this.defaultRange = defaultRange;
+    }
+
+    /**
+     * @return The length of one bucket in minutes.
+     */
+    public int minutes() {
+        return minutes;
+    }
+
+    /**
+     * @return The time range returned when a request does not specify one.
+     */
+    public Duration defaultRange() {
+        return defaultRange;
+    }
+
+    /**
+     * @param epochMinute Any minute.
+     * @return The first minute of the bucket that contains it.
+     */
+    public long bucketOf(long epochMinute) {
+        return Math.floorDiv(epochMinute, minutes) * minutes;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.urlshortener.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A short code together with its redirect target: one entry of the hot set that
+ * the CacheWarmer saves from the redirect cache and loads back into it.
+ *
+ * @param shortCode The short code of the link.
+ * @param target    Where the link redirects to.
+ */
+public record HotLink(String shortCode, RedirectTarget target) {
+
+    /**
+     * The flat form, for JPQL constructor expressions and JDBC rows.
+     */
+    public HotLink(String shortCode, String originalUrl, LocalDateTime expirationDate, RedirectPolicy redirectPolicy) {
+        this(shortCode, new RedirectTarget(originalUrl, expirationDate, redirectPolicy));
+    }
+}
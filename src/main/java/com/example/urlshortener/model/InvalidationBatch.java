@@ -0,0 +1,18 @@
+package com.example.urlshortener.model;
+
+import java.util.List;
+
+/**
+ * One message on the InvalidationBus: the short codes that changed on one
+ * instance since its last message.
+ *
+ * @param origin      The id of the instance that sent the message.
+ * @param invalidated Codes whose cached targets are stale, e.g. deleted links.
+ * @param created     New codes, which the other instances add to their Bloom filters.
+ */
+public record InvalidationBatch(String origin, List<String> invalidated, List<String> created) {
+
+    public boolean isEmpty() {
+        return invalidated.isEmpty() && created.isEmpty();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.urlshortener.model;
+
+/**
+ * How a redirect may be cached by browsers and CDNs (see RedirectResponses).
+ *
+ * A link without a policy of its own follows 'app.redirect.default-policy'.
+ */
+public enum RedirectPolicy {
+
+    /**
+     * A permanent redirect (301 or 308) that caches may keep for
+     * 'app.redirect.permanent-max-age-seconds'. Clicks served from a cache are not
+     * counted. Only applies to links without an expiration date.
+     */
+    PERMANENT,
+
+    /**
+     * A 302 that is not cached, so every click reaches the application and is counted.
+     */
+    TEMPORARY
+}
@@ -0,0 +1,35 @@
+package com.example.urlshortener.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The minimal, immutable view of a UrlMapping that the redirect path needs:
+ * where to send the user, and until when the link is valid.
+ *
+ * Unlike the UrlMapping entity, this record is not managed by JPA, so it can be
+ * cached and shared between threads safely.
+ *
+ * @param originalUrl    The destination URL of the short link.
+ * @param expirationDate When the link stops being active, or null for a permanent link.
+ * @param redirectPolicy How the redirect may be cached, or null for the default policy.
+ */
+public record RedirectTarget(
+        String originalUrl,
+        LocalDateTime expirationDate,
+        RedirectPolicy redirectPolicy) {
+
+    /**
+     * A target that follows the default redirect policy.
+     */
+    public RedirectTarget(String originalUrl, LocalDateTime expirationDate) {
+        this(originalUrl, expirationDate, null);
+    }
+
+    /**
+     * @param now The reference time, usually LocalDateTime.now().
+     * @return true if the link has an expiration date and it lies before 'now'.
+     */
+    public boolean isExpiredAt(LocalDateTime now) {
+        return expirationDate != null && expirationDate.isBefore(now);
+    }
+}
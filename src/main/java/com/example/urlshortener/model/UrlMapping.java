@@ -1,16 +1,24 @@
 package com.example.urlshortener.model;
 
 import java.time.LocalDateTime;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;  
 
+import org.springframework.data.domain.Persistable;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 /**
  * This class represents the core data model for our URL Shortener. It is a POJO
@@ -38,12 +46,21 @@ import jakarta.persistence.Lob;
  * The @NoArgsConstructor annotation generates a no-argument constructor. This is
  * often required by persistence frameworks like JPA/Hibernate to instantiate the
  * entity when fetching it from the database.
+ *
+ * @Table(indexes = ...): The index on 'expiration_date' lets CleanupService find
+ * expired links without scanning the whole table, and the one on 'url_hash' lets
+ * the UrlDeduplicator find an existing link for a URL. (schema.sql creates the
+ * same indexes on databases whose schema is not generated by Hibernate.)
  */
 @Getter
 @Setter
 @NoArgsConstructor
 @Entity
-public class UrlMapping {
+@Table(indexes = {
+        @Index(name = "idx_url_mapping_expiration_date", columnList = "expiration_date"),
+        @Index(name = "idx_url_mapping_url_hash", columnList = "url_hash")
+})
+public class UrlMapping implements Persistable<Long> {
     /**
      * The unique identifier for each URL mapping. This will serve as the Primary Key
      * in our database table. A primary key is a special column that uniquely
@@ -59,15 +76,14 @@ public class UrlMapping {
      * @Id: This annotation, from jakarta.persistence, explicitly marks this field
      *      as the primary key of the entity. Every entity MUST have a primary key.
      *
-     * @GeneratedValue: This annotation specifies that the primary key value will be
-     *                  generated automatically. We don't need to set it manually.
-     *      strategy = GenerationType.IDENTITY: This strategy tells Hibernate to rely
-     *      on an auto-incrementing column in the database. When we save a new entity,
-     *      the database assigns the next available ID. This is a common and efficient
-     *      strategy for many databases, including H2, MySQL, and PostgreSQL.
+     * The id is assigned by the application before the entity is saved, using the
+     * IdBlockAllocator. The allocator reserves whole ranges of ids from a database
+     * sequence, so the short code (which is derived from the id) is already known
+     * when the row is inserted, and a new link needs a single INSERT. A database
+     * generated IDENTITY would force an INSERT followed by an UPDATE of the short
+     * code, and also prevents Hibernate from batching inserts.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     /**
@@ -126,4 +142,50 @@ public class UrlMapping {
      */
     private LocalDateTime expirationDate;
 
+    /**
+     * The SHA-256 of the normalised original URL, as 64 hex characters, set only on
+     * mappings that other requests for the same URL may share (see UrlDeduplicator).
+     * Null for mappings with a custom alias or an expiration, and when
+     * deduplication is off.
+     *
+     * Unlike the @Lob original URL, this fixed-width column can be indexed.
+     */
+    @Column(length = 64)
+    private String urlHash;
+
+    /**
+     * How browsers and CDNs may cache the redirect of this link, or null to follow
+     * 'app.redirect.default-policy'.
+     *
+     * @Enumerated(EnumType.STRING): Stores the name of the constant, so reordering
+     * the enum does not change the meaning of existing rows.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(length = 9)
+    private RedirectPolicy redirectPolicy;
+
+    /**
+     * Tells Spring Data whether this entity still has to be inserted.
+     *
+     * Because the id is assigned before saving, Spring Data cannot use 'id == null'
+     * to detect a new entity. Without this flag, save() would call merge() and
+     * issue a SELECT before every INSERT. The flag is not persisted (@Transient)
+     * and is cleared once the entity has been stored or loaded.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity = true;
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+
 }
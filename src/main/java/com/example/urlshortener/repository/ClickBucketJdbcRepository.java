@@ -0,0 +1,125 @@
+package com.example.urlshortener.repository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.urlshortener.model.ClickBucket;
+import com.example.urlshortener.model.ClickResolution;
+
+/**
+ * Plain JDBC access to the 'click_bucket' table, which holds the clicks of each
+ * link per minute, hour and day.
+ *
+ * Bucket start times are stored as UTC timestamps without a time zone, so that
+ * every minute maps to exactly one value, also around daylight saving changes.
+ */
+@Repository
+@Profile("!embedded-store")
+public class ClickBucketJdbcRepository implements ClickBucketStore {
+
+    // Creates the rows that do not exist yet with zero clicks. A portable
+    // alternative to 'INSERT ... ON CONFLICT', which H2 does not support.
+    private static final String INSERT_MISSING_SQL =
+            "INSERT INTO click_bucket (short_code, resolution, bucket_start, clicks) "
+            + "SELECT CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(6)), CAST(? AS TIMESTAMP), 0 "
+            + "WHERE NOT EXISTS (SELECT 1 FROM click_bucket "
+            + "WHERE short_code = ? AND resolution = ? AND bucket_start = ?)";
+
+    private static final String INCREMENT_SQL =
+            "UPDATE click_bucket SET clicks = clicks + ? "
+            + "WHERE short_code = ? AND resolution = ? AND bucket_start = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public ClickBucketJdbcRepository(JdbcTemplate jdbcTemplate,
+                                     @Value("${app.jdbc.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds the clicks of each given bucket to the stored bucket, creating it if needed.
+     *
+     * Everything runs in one transaction. If two instances create the same bucket
+     * at the same moment, one of them fails on the primary key and rolls back; its
+     * caller keeps the clicks and retries.
+     *
+     * @param buckets The clicks to add, at most one entry per bucket.
+     */
+    @Override
+    @Transactional
+    public void incrementBuckets(Collection<ClickBucket> buckets) {
+        List<Object[]> inserts = new ArrayList<>(Math.min(buckets.size(), batchSize));
+        List<Object[]> increments = new ArrayList<>(Math.min(buckets.size(), batchSize));
+        for (ClickBucket bucket : buckets) {
+            LocalDateTime start = toTimestamp(bucket.startMinute());
+            String resolution = bucket.resolution().name();
+            inserts.add(new Object[] { bucket.shortCode(), resolution, start, bucket.shortCode(), resolution, start });
+            increments.add(new Object[] { bucket.clicks(), bucket.shortCode(), resolution, start });
+            if (inserts.size() == batchSize) {
+                flush(inserts, increments);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            flush(inserts, increments);
+        }
+    }
+
+    private void flush(List<Object[]> inserts, List<Object[]> increments) {
+        jdbcTemplate.batchUpdate(INSERT_MISSING_SQL, inserts);
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, increments);
+        inserts.clear();
+        increments.clear();
+    }
+
+    /**
+     * @param fromMinute The first minute of the range (inclusive).
+     * @param toMinute   The end of the range (exclusive).
+     * @return The stored clicks per bucket start minute. Buckets without clicks are missing.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Long> findClicks(String shortCode, ClickResolution resolution, long fromMinute, long toMinute) {
+        Map<Long, Long> clicks = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT bucket_start, clicks FROM click_bucket "
+                + "WHERE short_code = ? AND resolution = ? AND bucket_start >= ? AND bucket_start < ?",
+                (RowCallbackHandler) resultSet -> clicks.put(
+                        toEpochMinute(resultSet.getObject(1, LocalDateTime.class)), resultSet.getLong(2)),
+                shortCode, resolution.name(), toTimestamp(fromMinute), toTimestamp(toMinute));
+        return clicks;
+    }
+
+    /**
+     * Deletes the buckets of a resolution that start before the given minute.
+     *
+     * @return The number of deleted rows.
+     */
+    @Override
+    @Transactional
+    public int deleteBucketsBefore(ClickResolution resolution, long beforeMinute) {
+        return jdbcTemplate.update("DELETE FROM click_bucket WHERE resolution = ? AND bucket_start < ?",
+                resolution.name(), toTimestamp(beforeMinute));
+    }
+
+    private static LocalDateTime toTimestamp(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static long toEpochMinute(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+}
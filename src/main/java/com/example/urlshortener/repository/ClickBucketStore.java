@@ -0,0 +1,37 @@
+package com.example.urlshortener.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.example.urlshortener.model.ClickBucket;
+import com.example.urlshortener.model.ClickResolution;
+
+/**
+ * Storage of the click time series buckets (see ClickTimeSeries).
+ *
+ * Implementations: ClickBucketJdbcRepository (default) and InMemoryClickBucketStore
+ * (profile 'embedded-store').
+ */
+public interface ClickBucketStore {
+
+    /**
+     * Adds the clicks of each given bucket to the stored bucket, creating it if needed.
+     *
+     * @param buckets The clicks to add, at most one entry per bucket.
+     */
+    void incrementBuckets(Collection<ClickBucket> buckets);
+
+    /**
+     * @param fromMinute The first minute of the range (inclusive).
+     * @param toMinute   The end of the range (exclusive).
+     * @return The stored clicks per bucket start minute. Buckets without clicks are missing.
+     */
+    Map<Long, Long> findClicks(String shortCode, ClickResolution resolution, long fromMinute, long toMinute);
+
+    /**
+     * Deletes the buckets of a resolution that start before the given minute.
+     *
+     * @return The number of deleted buckets.
+     */
+    int deleteBucketsBefore(ClickResolution resolution, long beforeMinute);
+}
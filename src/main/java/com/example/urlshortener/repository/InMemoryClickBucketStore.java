@@ -0,0 +1,60 @@
+package com.example.urlshortener.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.example.urlshortener.model.ClickBucket;
+import com.example.urlshortener.model.ClickResolution;
+
+/**
+ * Keeps the click time series buckets in memory, for deployments without a
+ * database. The series starts over when the application restarts; the lifetime
+ * click counts are kept by the UrlMappingStore.
+ */
+@Repository
+@Profile("embedded-store")
+public class InMemoryClickBucketStore implements ClickBucketStore {
+
+    private record Series(String shortCode, ClickResolution resolution) {
+    }
+
+    private final ConcurrentHashMap<Series, ConcurrentSkipListMap<Long, Long>> series = new ConcurrentHashMap<>();
+
+    @Override
+    public void incrementBuckets(Collection<ClickBucket> buckets) {
+        for (ClickBucket bucket : buckets) {
+            series.computeIfAbsent(new Series(bucket.shortCode(), bucket.resolution()),
+                            key -> new ConcurrentSkipListMap<>())
+                    .merge(bucket.startMinute(), bucket.clicks(), Long::sum);
+        }
+    }
+
+    @Override
+    public Map<Long, Long> findClicks(String shortCode, ClickResolution resolution, long fromMinute, long toMinute) {
+        NavigableMap<Long, Long> buckets = series.get(new Series(shortCode, resolution));
+        return buckets == null ? new HashMap<>() : new HashMap<>(buckets.subMap(fromMinute, true, toMinute, false));
+    }
+
+    @Override
+    public int deleteBucketsBefore(ClickResolution resolution, long beforeMinute) {
+        int deleted = 0;
+        for (Map.Entry<Series, ConcurrentSkipListMap<Long, Long>> entry : series.entrySet()) {
+            if (entry.getKey().resolution() == resolution) {
+                NavigableMap<Long, Long> expired = entry.getValue().headMap(beforeMinute, false);
+                deleted += expired.size();
+                expired.clear();
+                if (entry.getValue().isEmpty()) {
+                    series.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return deleted;
+    }
+}
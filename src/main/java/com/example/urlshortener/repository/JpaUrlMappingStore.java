@@ -0,0 +1,113 @@
+package com.example.urlshortener.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.urlshortener.model.HotLink;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.model.UrlMapping;
+
+/**
+ * The default UrlMappingStore: single-row operations go through Spring Data JPA,
+ * bulk operations through plain JDBC.
+ *
+ * @Profile("!embedded-store & !sharded"): Active unless the embedded or the
+ * sharded store is selected.
+ */
+@Repository
+@Profile("!embedded-store & !sharded")
+public class JpaUrlMappingStore implements UrlMappingStore {
+
+    private final UrlMappingRepository urlMappingRepository;
+    private final UrlMappingJdbcRepository urlMappingJdbcRepository;
+
+    public JpaUrlMappingStore(UrlMappingRepository urlMappingRepository,
+                              UrlMappingJdbcRepository urlMappingJdbcRepository) {
+        this.urlMappingRepository = urlMappingRepository;
+        this.urlMappingJdbcRepository = urlMappingJdbcRepository;
+    }
+
+    @Override
+    public Optional<UrlMapping> findByShortCode(String shortCode) {
+        return urlMappingRepository.findByShortCode(shortCode);
+    }
+
+    @Override
+    public Optional<RedirectTarget> findRedirectTarget(String shortCode) {
+        return urlMappingRepository.findRedirectTargetByShortCode(shortCode);
+    }
+
+    @Override
+    public Optional<RedirectTarget> findRedirectTargetById(long id, String shortCode) {
+        return urlMappingRepository.findRedirectTargetById(id, shortCode);
+    }
+
+    @Override
+    public List<String> findExistingShortCodes(Collection<String> shortCodes) {
+        return urlMappingRepository.findExistingShortCodes(shortCodes);
+    }
+
+    @Override
+    public Optional<String> findShortCodeByUrlHash(String urlHash) {
+        return urlMappingRepository.findShortCodesByUrlHash(urlHash, Limit.of(1)).stream().findFirst();
+    }
+
+    @Override
+    public UrlMapping save(UrlMapping urlMapping) {
+        return urlMappingRepository.save(urlMapping);
+    }
+
+    @Override
+    public List<UrlMapping> saveAll(List<UrlMapping> urlMappings) {
+        // SimpleJpaRepository.saveAll runs in one transaction.
+        return urlMappingRepository.saveAll(urlMappings);
+    }
+
+    @Override
+    public List<String> deleteExpiredChunk(LocalDateTime now, int limit) {
+        return urlMappingJdbcRepository.deleteExpiredChunk(now, limit);
+    }
+
+    @Override
+    public void incrementClickCounts(Map<String, Long> deltas) {
+        urlMappingJdbcRepository.incrementClickCounts(deltas);
+    }
+
+    @Override
+    public int setClickCounts(Map<String, Long> counts) {
+        return urlMappingJdbcRepository.setClickCounts(counts);
+    }
+
+    @Override
+    public long count() {
+        return urlMappingJdbcRepository.countAll();
+    }
+
+    @Override
+    public void forEachShortCode(Consumer<String> action) {
+        urlMappingJdbcRepository.forEachShortCode(action);
+    }
+
+    @Override
+    public void forEachShortCodeCreatedSince(LocalDateTime since, Consumer<String> action) {
+        urlMappingJdbcRepository.forEachShortCodeCreatedSince(since, action);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachMostClicked(int limit, Consumer<HotLink> action) {
+        try (Stream<HotLink> hotLinks = urlMappingRepository.streamMostClicked(Limit.of(limit))) {
+            hotLinks.forEach(action);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.urlshortener.repository;
+
+import java.util.Map;
+
+import org.springframework.dao.DataAccessException;
+
+/**
+ * Thrown by a UrlMappingStore whose click count update is not one transaction,
+ * e.g. one that spans several databases, when only part of the deltas could be
+ * applied.
+ *
+ * The deltas that were committed must not be retried, or their clicks would be
+ * counted twice. The caller retries only getUnappliedDeltas().
+ */
+public class PartialClickCountUpdateException extends DataAccessException {
+
+    private final Map<String, Long> unappliedDeltas;
+
+    /**
+     * @param unappliedDeltas The clicks that were not added, keyed by short code.
+     * @param cause           The first failure.
+     */
+    public PartialClickCountUpdateException(Map<String, Long> unappliedDeltas, Throwable cause) {
+        super("Failed to add clicks for " + unappliedDeltas.size() + " short codes", cause);
+        this.unappliedDeltas = Map.copyOf(unappliedDeltas);
+    }
+
+    /**
+     * @return The clicks that were not added, keyed by short code.
+     */
+    public Map<String, Long> getUnappliedDeltas() {
+        return unappliedDeltas;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.urlshortener.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.model.HotLink;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.model.UrlMapping;
+
+/**
+ * Sends the lookups of a single link, i.e. the redirect lookup and the stats
+ * lookup, to the read replica, and everything else to the primary, through
+ * JpaUrlMappingStore.
+ *
+ * A replica lags behind the primary, so a link created a moment ago may not be
+ * on it yet. A lookup that finds nothing on the replica is therefore repeated on
+ * the primary (read-your-writes). The Bloom filter already rejects codes that were
+ * never created, so these second lookups are mostly for fresh links and Bloom
+ * filter false positives. The outcome of each replica lookup is counted in
+ * 'urlshortener.replica.lookups'.
+ *
+ * A lookup inside a caller's transaction stays on that transaction's connection
+ * to the primary.
+ *
+ * @Primary: Injected wherever a UrlMappingStore is needed, in place of the
+ * JpaUrlMappingStore it wraps.
+ */
+@Repository
+@Primary
+@Profile("read-replica")
+public class ReadReplicaUrlMappingStore implements UrlMappingStore {
+
+    private final JpaUrlMappingStore primary;
+    private final TransactionTemplate replicaTransaction;
+    private final ShortenerMetrics metrics;
+
+    public ReadReplicaUrlMappingStore(JpaUrlMappingStore primary, PlatformTransactionManager transactionManager,
+                                      ShortenerMetrics metrics) {
+        this.primary = primary;
+        this.replicaTransaction = new TransactionTemplate(transactionManager);
+        this.replicaTransaction.setReadOnly(true);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Optional<UrlMapping> findByShortCode(String shortCode) {
+        return readWithFallback(() -> primary.findByShortCode(shortCode));
+    }
+
+    @Override
+    public Optional<RedirectTarget> findRedirectTarget(String shortCode) {
+        return readWithFallback(() -> primary.findRedirectTarget(shortCode));
+    }
+
+    @Override
+    public Optional<RedirectTarget> findRedirectTargetById(long id, String shortCode) {
+        return readWithFallback(() -> primary.findRedirectTargetById(id, shortCode));
+    }
+
+    /**
+     * Runs the lookup on the replica, in a transaction of its own so that the
+     * replica connection is returned before a fallback to the primary takes one.
+     */
+    private <T> Optional<T> readWithFallback(Supplier<Optional<T>> lookup) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return lookup.get();
+        }
+        Optional<T> result = ReadWriteRoutingDataSource.onReplica(() -> replicaTransaction.execute(status -> lookup.get()));
+        if (result != null && result.isPresent()) {
+            metrics.replicaLookup(true);
+            return result;
+        }
+        metrics.replicaLookup(false);
+        return lookup.get();
+    }
+
+    @Override
+    public List<String> findExistingShortCodes(Collection<String> shortCodes) {
+        return primary.findExistingShortCodes(shortCodes);
+    }
+
+    @Override
+    public Optional<String> findShortCodeByUrlHash(String urlHash) {
+        return primary.findShortCodeByUrlHash(urlHash);
+    }
+
+    @Override
+    public UrlMapping save(UrlMapping urlMapping) {
+        return primary.save(urlMapping);
+    }
+
+    @Override
+    public List<UrlMapping> saveAll(List<UrlMapping> urlMappings) {
+        return primary.saveAll(urlMappings);
+    }
+
+    @Override
+    public List<String> deleteExpiredChunk(LocalDateTime now, int limit) {
+        return primary.deleteExpiredChunk(now, limit);
+    }
+
+    @Override
+    public void incrementClickCounts(Map<String, Long> deltas) {
+        primary.incrementClickCounts(deltas);
+    }
+
+    @Override
+    public int setClickCounts(Map<String, Long> counts) {
+        return primary.setClickCounts(counts);
+    }
+
+    @Override
+    public long count() {
+        return primary.count();
+    }
+
+    @Override
+    public void forEachShortCode(Consumer<String> action) {
+        primary.forEachShortCode(action);
+    }
+
+    @Override
+    public void forEachShortCodeCreatedSince(LocalDateTime since, Consumer<String> action) {
+        primary.forEachShortCodeCreatedSince(since, action);
+    }
+
+    @Override
+    public void forEachMostClicked(int limit, Consumer<HotLink> action) {
+        primary.forEachMostClicked(limit, action);
+    }
+}
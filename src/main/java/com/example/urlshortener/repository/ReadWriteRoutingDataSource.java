@@ -0,0 +1,61 @@
+package com.example.urlshortener.repository;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * A DataSource that hands out connections of the primary database, or of its read
+ * replica inside onReplica(...).
+ *
+ * The target is chosen when a connection is taken from the pool. Spring and
+ * Hibernate take one when a transaction begins, often before anything is known
+ * about the statements in it, so the 'read-replica' profile wraps this class in a
+ * LazyConnectionDataSourceProxy, which only takes the real connection at the
+ * first statement (see ReadReplicaDataSourceConfig).
+ *
+ * Only ReadReplicaUrlMappingStore routes to the replica, for its lookups. All
+ * other statements go to the primary, including reads that must not miss recent
+ * writes, such as the Bloom filter rebuild.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * The database a connection comes from, used as the lookup key.
+     */
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Target> CURRENT = ThreadLocal.withInitial(() -> Target.PRIMARY);
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        // Not a bean of its own, so Spring does not call this for us.
+        afterPropertiesSet();
+    }
+
+    /**
+     * Runs the lookup with connections of the replica. The lookup must take and
+     * release its connection inside, i.e. run in a transaction of its own.
+     */
+    public static <T> T onReplica(Supplier<T> lookup) {
+        Target previous = CURRENT.get();
+        CURRENT.set(Target.REPLICA);
+        try {
+            return lookup.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.urlshortener.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Plain JDBC access to the 'url_mapping' table for the bulk operations that
+ * Spring Data JPA cannot express efficiently.
+ *
+ * Derived query methods in UrlMappingRepository work on one managed entity at a
+ * time. The statements in this class instead send many rows to the database in
+ * a single JDBC batch and never load entities into the persistence context.
+ *
+ * @Repository: Marks the class as a data access component. Spring translates
+ *              any SQLException thrown here into its DataAccessException hierarchy.
+ */
+@Repository
+@Profile("!embedded-store")
+public class UrlMappingJdbcRepository {
+
+    private static final String INCREMENT_CLICKS_SQL =
+            "UPDATE url_mapping SET click_count = click_count + ? WHERE short_code = ?";
+
+    private static final String SET_CLICKS_SQL =
+            "UPDATE url_mapping SET click_count = ? WHERE short_code = ?";
+
+    // Rows fetched per round trip when streaming the whole table.
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    /**
+     * @param jdbcTemplate The JdbcTemplate auto-configured by Spring Boot for our DataSource.
+     * @param batchSize    How many statements are sent to the database per JDBC batch,
+     *                     configured with 'app.jdbc.batch-size'.
+     */
+    public UrlMappingJdbcRepository(JdbcTemplate jdbcTemplate,
+                                    @Value("${app.jdbc.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds the given number of clicks to each short code's counter.
+     *
+     * Each row is updated with 'click_count = click_count + ?', so the database
+     * applies the delta atomically and concurrent writers (e.g. other application
+     * instances) never overwrite each other's increments. All batches run in one
+     * transaction: either every delta is applied, or none is.
+     *
+     * @param deltas The number of clicks to add, keyed by short code.
+     * @return The short codes that matched no row, e.g. because they were deleted.
+     */
+    @Transactional
+    public List<String> incrementClickCounts(Map<String, Long> deltas) {
+        List<Object[]> batch = new ArrayList<>(Math.min(deltas.size(), batchSize));
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            batch.add(new Object[] { delta.getValue(), delta.getKey() });
+            if (batch.size() == batchSize) {
+                collectMissing(batch, jdbcTemplate.batchUpdate(INCREMENT_CLICKS_SQL, batch), missing);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            collectMissing(batch, jdbcTemplate.batchUpdate(INCREMENT_CLICKS_SQL, batch), missing);
+        }
+        return missing;
+    }
+
+    private static void collectMissing(List<Object[]> batch, int[] updateCounts, List<String> missing) {
+        for (int i = 0; i < updateCounts.length; i++) {
+            // SUCCESS_NO_INFO (-2) gives no row count; the row is assumed to exist.
+            if (updateCounts[i] == 0) {
+                missing.add((String) batch.get(i)[1]);
+            }
+        }
+    }
+
+    /**
+     * Overwrites the click count of each short code, e.g. with counts rebuilt from
+     * the click event log. Short codes that no longer exist are ignored.
+     *
+     * @param counts The new click counts, keyed by short code.
+     * @return The number of rows that were updated.
+     */
+    @Transactional
+    public int setClickCounts(Map<String, Long> counts) {
+        List<Object[]> batch = new ArrayList<>(Math.min(counts.size(), batchSize));
+        int updated = 0;
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            batch.add(new Object[] { count.getValue(), count.getKey() });
+            if (batch.size() == batchSize) {
+                updated += sum(jdbcTemplate.batchUpdate(SET_CLICKS_SQL, batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            updated += sum(jdbcTemplate.batchUpdate(SET_CLICKS_SQL, batch));
+        }
+        return updated;
+    }
+
+    private static int sum(int[] updateCounts) {
+        int sum = 0;
+        for (int count : updateCounts) {
+            // Drivers may report SUCCESS_NO_INFO (-2) instead of a row count.
+            sum += Math.max(count, 0);
+        }
+        return sum;
+    }
+
+    /**
+     * Deletes up to 'limit' expired rows in one short transaction.
+     *
+     * The oldest expired rows are selected through the index on 'expiration_date'
+     * and then deleted by primary key, so each call locks at most 'limit' rows and
+     * never loads the (possibly large) original URLs. Unlike a single
+     * 'DELETE ... WHERE expiration_date < ?', the caller can pause between chunks
+     * and stop at any time.
+     *
+     * @param now   Rows that expired before this time are deleted.
+     * @param limit The maximum number of rows to delete.
+     * @return The short codes of the deleted rows. Fewer than 'limit' means there
+     *         are no expired rows left.
+     */
+    @Transactional
+    public List<String> deleteExpiredChunk(LocalDateTime now, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        List<String> shortCodes = new ArrayList<>(limit);
+        jdbcTemplate.query(
+                "SELECT id, short_code FROM url_mapping WHERE expiration_date < ? ORDER BY expiration_date LIMIT ?",
+                (RowCallbackHandler) resultSet -> {
+                    ids.add(resultSet.getLong(1));
+                    shortCodes.add(resultSet.getString(2));
+                },
+                Timestamp.valueOf(now), limit);
+        if (ids.isEmpty()) {
+            return shortCodes;
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.update("DELETE FROM url_mapping WHERE id IN (" + placeholders + ")", ids.toArray());
+        return shortCodes;
+    }
+
+    /**
+     * @return The number of rows in the table.
+     */
+    public long countAll() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM url_mapping", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Streams every short code in the table to the given action, without loading
+     * them all into memory.
+     *
+     * The method is transactional because the PostgreSQL driver only uses a
+     * server-side cursor (and honours the fetch size) when auto-commit is off.
+     */
+    @Transactional(readOnly = true)
+    public void forEachShortCode(Consumer<String> action) {
+        streamShortCodes("SELECT short_code FROM url_mapping WHERE short_code IS NOT NULL", null, action);
+    }
+
+    /**
+     * Like forEachShortCode, but only for the rows created at or after the given time.
+     */
+    @Transactional(readOnly = true)
+    public void forEachShortCodeCreatedSince(LocalDateTime since, Consumer<String> action) {
+        streamShortCodes("SELECT short_code FROM url_mapping WHERE short_code IS NOT NULL AND creation_date >= ?",
+                since, action);
+    }
+
+    private void streamShortCodes(String sql, LocalDateTime since, Consumer<String> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            if (since != null) {
+                statement.setTimestamp(1, Timestamp.valueOf(since));
+            }
+            return statement;
+        }, (RowCallbackHandler) resultSet -> action.accept(resultSet.getString(1)));
+    }
+}
@@ -3,14 +3,26 @@
 // principle for building maintainable and scalable applications.
 package com.example.urlshortener.repository;
 
-import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 // NEW: We import Optional, a container object which may or may not contain a non-null value.
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.urlshortener.model.HotLink;
+import com.example.urlshortener.model.RedirectTarget;
 import com.example.urlshortener.model.UrlMapping;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * This interface will serve as our Data Access Layer for the UrlMapping entity.
  * In Java, an interface is a contract that defines a set of method signatures
@@ -59,17 +71,74 @@ public interface UrlMappingRepository extends JpaRepository<UrlMapping, Long> {
     Optional<UrlMapping> findByShortCode(String shortCode);
 
     /**
-     * Defines a derived delete query for bulk deletion of expired URLs.
+     * The lookup of the redirect path: only the columns a redirect needs.
+     *
+     * The "SELECT new ..." constructor expression makes Hibernate build a plain
+     * RedirectTarget record instead of a UrlMapping entity. Nothing is added to
+     * the persistence context, so there is no entity snapshot for dirty checking,
+     * and the creation date and click count are never read.
+     *
+     * @Transactional(readOnly = true): Runs in a read-only transaction, in which
+     * Spring switches the Hibernate session to manual flushing. The flush mode
+     * hint also keeps Hibernate from flushing when the query joins a caller's
+     * read-write transaction.
+     *
+     * @param shortCode The short code to search for in the database.
+     * @return The URL, expiration date and redirect policy of the link, or an empty Optional.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("SELECT new com.example.urlshortener.model.RedirectTarget(u.originalUrl, u.expirationDate, u.redirectPolicy) "
+            + "FROM UrlMapping u WHERE u.shortCode = :shortCode")
+    Optional<RedirectTarget> findRedirectTargetByShortCode(@Param("shortCode") String shortCode);
+
+    /**
+     * Like findRedirectTargetByShortCode, but looks the row up by its primary key,
+     * the id decoded from a generated short code. The short code condition is
+     * checked on the row that was found, so the unique index on short_code is not
+     * used.
+     *
+     * @param id        The id the short code was encoded from.
+     * @param shortCode The short code, to rule out a mapping with a custom alias.
+     * @return The URL, expiration date and redirect policy of the link, or an empty Optional.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("SELECT new com.example.urlshortener.model.RedirectTarget(u.originalUrl, u.expirationDate, u.redirectPolicy) "
+            + "FROM UrlMapping u WHERE u.id = :id AND u.shortCode = :shortCode")
+    Optional<RedirectTarget> findRedirectTargetById(@Param("id") Long id, @Param("shortCode") String shortCode);
+
+    /**
+     * Checks many short codes at once, e.g. all custom aliases of a bulk request.
      *
-     * Spring Data JPA will parse this method name and generate the corresponding
-     * JPQL/SQL 'DELETE' statement: "DELETE FROM UrlMapping u WHERE u.expirationDate < :now"
+     * @param shortCodes The short codes to check.
+     * @return The subset of the given short codes that are already in use.
+     */
+    @Query("SELECT u.shortCode FROM UrlMapping u WHERE u.shortCode IN :shortCodes")
+    List<String> findExistingShortCodes(@Param("shortCodes") Collection<String> shortCodes);
+
+    /**
+     * Finds the links that share a URL hash (see UrlDeduplicator), oldest first.
+     * The index on 'url_hash' makes this one index lookup; the @Lob URL is not read.
      *
-     * This is a highly efficient way to perform a bulk delete, as it executes a single
-     * command in the database without fetching the entities into the application's memory first.
+     * @param urlHash The hash of the normalised URL.
+     * @param limit   How many short codes to return, usually Limit.of(1).
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT u.shortCode FROM UrlMapping u WHERE u.urlHash = :urlHash ORDER BY u.id")
+    List<String> findShortCodesByUrlHash(@Param("urlHash") String urlHash, Limit limit);
+
+    /**
+     * Streams the most clicked links with what a redirect needs, most clicked
+     * first, for the cache warm-up.
      *
-     * @param now The timestamp to compare against. All URLs with an expirationDate
-     *            before this time will be deleted.
-     * @return The number of entities that were deleted. This is very useful for logging.
+     * The rows are fetched from a cursor, HINT_FETCH_SIZE at a time, and the
+     * constructor expression keeps them out of the persistence context, so memory
+     * does not grow with 'limit'. The stream must be consumed and closed inside a
+     * transaction.
      */
-    long deleteByExpirationDateBefore(LocalDateTime now);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.urlshortener.model.HotLink(u.shortCode, u.originalUrl, u.expirationDate, "
+            + "u.redirectPolicy) FROM UrlMapping u WHERE u.shortCode IS NOT NULL ORDER BY u.clickCount DESC")
+    Stream<HotLink> streamMostClicked(Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.example.urlshortener.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.example.urlshortener.model.HotLink;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.model.UrlMapping;
+
+/**
+ * The storage SPI for URL mappings: every operation the services need, and
+ * nothing that ties them to a particular storage technology.
+ *
+ * Implementations:
+ * - JpaUrlMappingStore (default): PostgreSQL or H2 through Spring Data JPA and JDBC.
+ * - EmbeddedUrlMappingStore (profile 'embedded-store'): local files, no database.
+ * - ShardedUrlMappingStore (profile 'sharded'): several databases, routed by short code.
+ * - ReadReplicaUrlMappingStore (profile 'read-replica'): wraps JpaUrlMappingStore and
+ *   reads single links from a replica database.
+ *
+ * Short codes are unique. Saving a mapping whose short code is already taken
+ * throws a DataIntegrityViolationException, like the database's unique constraint.
+ */
+public interface UrlMappingStore {
+
+    Optional<UrlMapping> findByShortCode(String shortCode);
+
+    /**
+     * @return Only the fields a redirect needs.
+     */
+    Optional<RedirectTarget> findRedirectTarget(String shortCode);
+
+    /**
+     * Like findRedirectTarget, but through the primary key: 'id' is the id that a
+     * generated short code was encoded from (see ShortCodeCodec). The short code is
+     * compared as well, because the id of a mapping with a custom alias does not
+     * encode to its alias.
+     *
+     * Stores without a primary key index look the short code up instead.
+     *
+     * @return The target of the mapping with this id, if its short code is 'shortCode'.
+     */
+    default Optional<RedirectTarget> findRedirectTargetById(long id, String shortCode) {
+        return findRedirectTarget(shortCode);
+    }
+
+    /**
+     * @return The subset of the given short codes that are already in use.
+     */
+    List<String> findExistingShortCodes(Collection<String> shortCodes);
+
+    /**
+     * @return The short code of the oldest mapping stored with this URL hash
+     *         (see UrlDeduplicator), if any.
+     */
+    Optional<String> findShortCodeByUrlHash(String urlHash);
+
+    /**
+     * Stores a new mapping.
+     *
+     * @throws org.springframework.dao.DataIntegrityViolationException if the short code is taken.
+     */
+    UrlMapping save(UrlMapping urlMapping);
+
+    /**
+     * Stores new mappings all-or-nothing.
+     *
+     * @throws org.springframework.dao.DataIntegrityViolationException if a short code is taken;
+     *         then none of the mappings is stored.
+     */
+    List<UrlMapping> saveAll(List<UrlMapping> urlMappings);
+
+    /**
+     * Deletes up to 'limit' mappings that expired before 'now'.
+     *
+     * @return The short codes of the deleted mappings. Fewer than 'limit' means
+     *         there are no expired mappings left.
+     */
+    List<String> deleteExpiredChunk(LocalDateTime now, int limit);
+
+    /**
+     * Adds the given number of clicks to each short code's click count.
+     */
+    void incrementClickCounts(Map<String, Long> deltas);
+
+    /**
+     * Overwrites the click count of each short code. Unknown short codes are ignored.
+     *
+     * @return The number of mappings that were updated.
+     */
+    int setClickCounts(Map<String, Long> counts);
+
+    /**
+     * @return The number of stored mappings.
+     */
+    long count();
+
+    /**
+     * Streams every short code to the action, without loading them all into memory.
+     */
+    void forEachShortCode(Consumer<String> action);
+
+    /**
+     * Like forEachShortCode, but only for mappings created at or after 'since'.
+     */
+    void forEachShortCodeCreatedSince(LocalDateTime since, Consumer<String> action);
+
+    /**
+     * Streams the 'limit' mappings with the highest click counts to the action,
+     * most clicked first, e.g. to warm up the redirect cache.
+     */
+    void forEachMostClicked(int limit, Consumer<HotLink> action);
+
+    /**
+     * The independent parts of this store, e.g. the shards of a sharded store, so
+     * that maintenance jobs like the CleanupService can work on them in parallel.
+     * Together they hold every mapping, and each mapping is in exactly one of them.
+     *
+     * @return This store alone, unless the implementation is partitioned.
+     */
+    default List<? extends UrlMappingStore> partitions() {
+        return List.of(this);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.urlshortener.repository.embedded;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * The id block sequence of the IdBlockAllocator when there is no database: the
+ * last handed out value is kept in the file 'id-block.seq' next to the data file
+ * of the EmbeddedUrlMappingStore.
+ *
+ * Each value is forced to disk before it is returned, so a block is never handed
+ * out twice, even after a crash. This costs one fsync per block of ids, not per id.
+ *
+ * Registered under the same bean name as the database sequence in
+ * IdGenerationConfig, which is disabled in the 'embedded-store' profile.
+ */
+@Component("idBlockSequence")
+@Profile("embedded-store")
+public class EmbeddedIdBlockSequence implements DataFieldMaxValueIncrementer {
+
+    static final String SEQUENCE_FILE = "id-block.seq";
+
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocate(8);
+    private long value;
+
+    public EmbeddedIdBlockSequence(@Value("${app.embedded-store.directory:data/store}") Path directory) {
+        try {
+            Files.createDirectories(directory);
+            this.channel = FileChannel.open(directory.resolve(SEQUENCE_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() >= 8) {
+                channel.read(buffer, 0);
+                this.value = buffer.getLong(0);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open the id block sequence in " + directory, ex);
+        }
+    }
+
+    @Override
+    public long nextLongValue() {
+        lock.lock();
+        try {
+            // Starts at 1, like the database sequence.
+            long next = value + 1;
+            buffer.clear();
+            buffer.putLong(0, next);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            channel.force(false);
+            value = next;
+            return next;
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException("Cannot advance the id block sequence", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int nextIntValue() {
+        return Math.toIntExact(nextLongValue());
+    }
+
+    @Override
+    public String nextStringValue() {
+        return Long.toString(nextLongValue());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+}
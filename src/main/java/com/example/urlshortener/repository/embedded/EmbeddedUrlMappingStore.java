@@ -0,0 +1,853 @@
+package com.example.urlshortener.repository.embedded;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import com.example.urlshortener.model.HotLink;
+import com.example.urlshortener.model.RedirectPolicy;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.model.UrlMapping;
+import com.example.urlshortener.repository.UrlMappingStore;
+import com.example.urlshortener.service.ShortCodeHash;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * A UrlMappingStore that keeps the mappings in a local, append-only data file
+ * instead of a database, for single-instance deployments that do not want to run
+ * PostgreSQL.
+ *
+ * Data file: 'urls.dat' in 'app.embedded-store.directory' starts with an 8 byte
+ * header (magic number and format version), followed by records:
+ *
+ *   offset  size  field
+ *        0     4  record length in bytes
+ *        4     4  CRC32C of the bytes from offset 16 to the end
+ *        8     8  click count, updated in place (not covered by the CRC)
+ *       16     1  type: PUT (a new mapping) or DELETE (removes a mapping) in the
+ *                 low 4 bits; the redirect policy of a PUT in the high 4 bits
+ *   PUT:
+ *       17     8  id
+ *       25     8  creation date, epoch milliseconds of the UTC wall clock
+ *       33     8  expiration date, or NO_DATE for a permanent link
+ *       41     2  short code length, then the short code in UTF-8
+ *        -     4  original URL length, then the original URL in UTF-8
+ *   DELETE:
+ *       17     2  short code length, then the short code in UTF-8
+ *
+ * Index: an OffHeapHashIndex maps the hash of each live short code to the offset
+ * of its PUT record, so a lookup is one probe of native memory plus one positional
+ * read of the file (usually served by the page cache). The index is rebuilt from
+ * the file on startup; a torn record at the end, left by a crash during a write,
+ * fails its length or CRC check and is cut off.
+ *
+ * Compaction: deleted mappings stay in the file as garbage. Once more than
+ * 'app.embedded-store.compaction-garbage-ratio' of the file is garbage, the live
+ * records are copied to a new file that atomically replaces the old one. Lookups
+ * and writes wait while the copy runs; hot links are still served by the
+ * heavy-hitter tier and the redirect cache.
+ *
+ * Concurrency: lookups share a read lock; appends, click count updates and
+ * compaction take the write lock.
+ *
+ * Durability: writes go to the page cache and are forced to disk every
+ * 'app.embedded-store.force-interval-ms'. A click count update that was not yet
+ * forced can be lost in a machine crash; the click event log can rebuild the
+ * counts (see ClickLogReplayer).
+ *
+ * Errors are reported with Spring's DataAccessException hierarchy, like the JPA
+ * store: DuplicateKeyException for a taken short code, and
+ * DataAccessResourceFailureException for I/O errors.
+ */
+@Repository
+@Profile("embedded-store")
+public class EmbeddedUrlMappingStore implements UrlMappingStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedUrlMappingStore.class);
+
+    static final String DATA_FILE = "urls.dat";
+    private static final int FILE_MAGIC = 0x55524C53; // "URLS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final int CRC_OFFSET = 4;
+    private static final int CLICK_COUNT_OFFSET = 8;
+    private static final int TYPE_OFFSET = 16;
+    private static final int ID_OFFSET = 17;
+    private static final int CREATION_OFFSET = 25;
+    private static final int EXPIRATION_OFFSET = 33;
+    private static final int PUT_CODE_OFFSET = 41;
+    private static final int DELETE_CODE_OFFSET = 17;
+    private static final int MIN_RECORD_SIZE = DELETE_CODE_OFFSET + 2;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int TYPE_MASK = 0x0F;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    // Most records fit into one read of this size; longer ones need a second read.
+    private static final int READ_AHEAD = 512;
+    // Files smaller than this are not worth compacting.
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+
+    private final Path directory;
+    private final Path dataFile;
+    private final double compactionGarbageRatio;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // All fields below are guarded by 'lock'.
+    private FileChannel channel;
+    private OffHeapHashIndex index;
+    private long end;
+    private long garbageBytes;
+    private long expiringMappings;
+    // Where the next deleteExpiredChunk() continues scanning, and the compaction
+    // count that the position belongs to.
+    private long expiryScanPosition = HEADER_SIZE;
+    private long generation;
+
+    public EmbeddedUrlMappingStore(@Value("${app.embedded-store.directory:data/store}") Path directory,
+                                   @Value("${app.embedded-store.compaction-garbage-ratio:0.5}") double compactionGarbageRatio) {
+        this.directory = directory;
+        this.dataFile = directory.resolve(DATA_FILE);
+        this.compactionGarbageRatio = compactionGarbageRatio;
+        try {
+            Files.createDirectories(directory);
+            this.channel = FileChannel.open(dataFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open the embedded store in " + directory, ex);
+        }
+        logger.info("Embedded store opened: {} mappings, {} bytes, {} bytes of garbage.",
+                index.size(), end, garbageBytes);
+    }
+
+    @Override
+    public Optional<UrlMapping> findByShortCode(String shortCode) {
+        lock.readLock().lock();
+        try {
+            ByteBuffer record = find(shortCode);
+            return record == null ? Optional.empty() : Optional.of(toUrlMapping(record));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<RedirectTarget> findRedirectTarget(String shortCode) {
+        lock.readLock().lock();
+        try {
+            ByteBuffer record = find(shortCode);
+            return record == null
+                    ? Optional.empty()
+                    : Optional.of(new RedirectTarget(originalUrlOf(record), dateAt(record, EXPIRATION_OFFSET),
+                            policyOf(record)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> findExistingShortCodes(Collection<String> shortCodes) {
+        lock.readLock().lock();
+        try {
+            List<String> existing = new ArrayList<>();
+            for (String shortCode : shortCodes) {
+                if (find(shortCode) != null) {
+                    existing.add(shortCode);
+                }
+            }
+            return existing;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The data file has no index of URL hashes, so deduplication with this store
+     * only finds the links in the UrlDeduplicator's in-process cache.
+     */
+    @Override
+    public Optional<String> findShortCodeByUrlHash(String urlHash) {
+        return Optional.empty();
+    }
+
+    @Override
+    public UrlMapping save(UrlMapping urlMapping) {
+        saveAll(List.of(urlMapping));
+        return urlMapping;
+    }
+
+    @Override
+    public List<UrlMapping> saveAll(List<UrlMapping> urlMappings) {
+        lock.writeLock().lock();
+        try {
+            // Check every short code before writing anything, so a conflict stores nothing.
+            Set<String> shortCodes = new HashSet<>();
+            for (UrlMapping urlMapping : urlMappings) {
+                if (!shortCodes.add(urlMapping.getShortCode()) || find(urlMapping.getShortCode()) != null) {
+                    throw new DuplicateKeyException("Short code '" + urlMapping.getShortCode() + "' is already in use.");
+                }
+            }
+            ByteBuffer[] records = new ByteBuffer[urlMappings.size()];
+            for (int i = 0; i < records.length; i++) {
+                records[i] = putRecord(urlMappings.get(i));
+            }
+            long offset = append(records);
+            for (int i = 0; i < records.length; i++) {
+                UrlMapping urlMapping = urlMappings.get(i);
+                index.put(ShortCodeHash.hash64(urlMapping.getShortCode()), offset, candidate -> false);
+                if (urlMapping.getExpirationDate() != null) {
+                    expiringMappings++;
+                }
+                offset += records[i].capacity();
+            }
+            return urlMappings;
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException("Cannot write to the embedded store", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> deleteExpiredChunk(LocalDateTime now, int limit) {
+        long nowMillis = toMillis(now);
+        while (true) {
+            // Find the candidates under the read lock, so redirects are not blocked
+            // while the file is scanned, then delete them under the write lock.
+            List<Long> offsets = new ArrayList<>();
+            long scanGeneration;
+            long resumeAt;
+            lock.readLock().lock();
+            try {
+                if (expiringMappings == 0) {
+                    return List.of();
+                }
+                scanGeneration = generation;
+                resumeAt = collectExpired(nowMillis, limit, offsets);
+            } catch (IOException ex) {
+                throw new DataAccessResourceFailureException("Cannot read the embedded store", ex);
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (generation != scanGeneration) {
+                    continue; // Compacted in between; the offsets are stale.
+                }
+                List<String> deleted = new ArrayList<>(offsets.size());
+                for (long offset : offsets) {
+                    ByteBuffer record = readRecord(offset);
+                    String shortCode = shortCodeOf(record);
+                    // Still live? A concurrent chunk may have deleted it already.
+                    if (index.get(ShortCodeHash.hash64(shortCode), candidate -> candidate == offset) == offset) {
+                        delete(shortCode, record, offset);
+                        deleted.add(shortCode);
+                    }
+                }
+                expiryScanPosition = resumeAt;
+                return deleted;
+            } catch (IOException ex) {
+                throw new DataAccessResourceFailureException("Cannot write to the embedded store", ex);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void incrementClickCounts(Map<String, Long> deltas) {
+        updateClickCounts(deltas, true);
+    }
+
+    @Override
+    public int setClickCounts(Map<String, Long> counts) {
+        return updateClickCounts(counts, false);
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachShortCode(Consumer<String> action) {
+        forEachLiveMapping(Long.MIN_VALUE, action);
+    }
+
+    @Override
+    public void forEachShortCodeCreatedSince(LocalDateTime since, Consumer<String> action) {
+        forEachLiveMapping(toMillis(since), action);
+    }
+
+    /**
+     * There is no index on the click count, so this is one pass over the data file
+     * that keeps the 'limit' most clicked live records in a heap of offsets.
+     */
+    @Override
+    public void forEachMostClicked(int limit, Consumer<HotLink> action) {
+        if (limit <= 0) {
+            return;
+        }
+        List<HotLink> hotLinks = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            // Pairs of (click count, offset), least clicked at the head.
+            PriorityQueue<long[]> top = new PriorityQueue<>(Comparator.comparingLong((long[] entry) -> entry[0]));
+            for (long offset = HEADER_SIZE; offset < end; ) {
+                ByteBuffer record = readRecord(offset);
+                if (typeOf(record) == PUT && isLive(record, offset)) {
+                    top.add(new long[] { record.getLong(CLICK_COUNT_OFFSET), offset });
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+                offset += record.capacity();
+            }
+            List<long[]> mostClicked = new ArrayList<>(top);
+            mostClicked.sort(Comparator.comparingLong((long[] entry) -> entry[0]).reversed());
+            for (long[] entry : mostClicked) {
+                ByteBuffer record = readRecord(entry[1]);
+                hotLinks.add(new HotLink(shortCodeOf(record), originalUrlOf(record), dateAt(record, EXPIRATION_OFFSET),
+                        policyOf(record)));
+            }
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException("Cannot read the embedded store", ex);
+        } finally {
+            lock.readLock().unlock();
+        }
+        hotLinks.forEach(action);
+    }
+
+    /**
+     * @return The native memory held by the index, for benchmarks and diagnostics.
+     */
+    public long indexMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            return index.memoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the data file without its garbage once the garbage ratio is exceeded.
+     */
+    @Scheduled(fixedDelayString = "${app.embedded-store.compaction-interval-ms:60000}")
+    public void compactIfNeeded() {
+        lock.writeLock().lock();
+        try {
+            if (end < MIN_COMPACTION_BYTES || garbageBytes < (end - HEADER_SIZE) * compactionGarbageRatio) {
+                return;
+            }
+            compact();
+        } catch (IOException ex) {
+            logger.warn("Compaction of the embedded store failed, will retry.", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.embedded-store.force-interval-ms:1000}")
+    public void force() {
+        lock.readLock().lock();
+        try {
+            channel.force(false);
+        } catch (IOException ex) {
+            logger.warn("Failed to force the embedded store to disk.", ex);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.force(true);
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---- Lookups -------------------------------------------------------------
+
+    /**
+     * @return The live PUT record of the short code, or null. Requires the lock.
+     */
+    private ByteBuffer find(String shortCode) {
+        ByteBuffer[] record = new ByteBuffer[1];
+        locate(shortCode, record);
+        return record[0];
+    }
+
+    /**
+     * @param record Receives the live PUT record of the short code, if there is one.
+     * @return The offset of the record, or -1. Requires the lock.
+     */
+    private long locate(String shortCode, ByteBuffer[] record) {
+        byte[] code = shortCode.getBytes(StandardCharsets.UTF_8);
+        return index.get(ShortCodeHash.hash64(shortCode), offset -> {
+            ByteBuffer candidate = readRecordUnchecked(offset);
+            if (hasShortCode(candidate, code)) {
+                record[0] = candidate;
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private int updateClickCounts(Map<String, Long> values, boolean add) {
+        lock.writeLock().lock();
+        try {
+            int updated = 0;
+            ByteBuffer count = ByteBuffer.allocate(8);
+            ByteBuffer[] record = new ByteBuffer[1];
+            for (Map.Entry<String, Long> entry : values.entrySet()) {
+                long offset = locate(entry.getKey(), record);
+                if (offset < 0) {
+                    continue; // Deleted since the click was counted.
+                }
+                long clicks = add ? record[0].getLong(CLICK_COUNT_OFFSET) + entry.getValue() : entry.getValue();
+                count.clear();
+                count.putLong(0, clicks);
+                writeFully(count, offset + CLICK_COUNT_OFFSET);
+                updated++;
+            }
+            return updated;
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException("Cannot update click counts in the embedded store", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void forEachLiveMapping(long createdSinceMillis, Consumer<String> action) {
+        lock.readLock().lock();
+        try {
+            for (long offset = HEADER_SIZE; offset < end; ) {
+                ByteBuffer record = readRecord(offset);
+                if (typeOf(record) == PUT && record.getLong(CREATION_OFFSET) >= createdSinceMillis
+                        && isLive(record, offset)) {
+                    action.accept(shortCodeOf(record));
+                }
+                offset += record.capacity();
+            }
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException("Cannot read the embedded store", ex);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Collects the offsets of up to 'limit' live, expired mappings, starting at the
+     * position where the previous chunk stopped and wrapping around once.
+     *
+     * @return The position the next chunk should continue from.
+     */
+    private long collectExpired(long nowMillis, int limit, List<Long> offsets) throws IOException {
+        long start = Math.min(expiryScanPosition, end);
+        long offset = start;
+        boolean wrapped = false;
+        while (offsets.size() < limit) {
+            if (offset >= end) {
+                if (wrapped || start == HEADER_SIZE) {
+                    return HEADER_SIZE;
+                }
+                offset = HEADER_SIZE;
+                wrapped = true;
+            }
+            if (wrapped && offset >= start) {
+                return HEADER_SIZE;
+            }
+            ByteBuffer record = readRecord(offset);
+            long expiration = typeOf(record) == PUT ? record.getLong(EXPIRATION_OFFSET) : NO_DATE;
+            if (expiration != NO_DATE && expiration < nowMillis && isLive(record, offset)) {
+                offsets.add(offset);
+            }
+            offset += record.capacity();
+        }
+        return offset;
+    }
+
+    private boolean isLive(ByteBuffer record, long offset) {
+        return index.get(ShortCodeHash.hash64(shortCodeOf(record)), candidate -> candidate == offset) == offset;
+    }
+
+    // ---- Writes --------------------------------------------------------------
+
+    /**
+     * Appends a DELETE record for a live mapping and drops it from the index.
+     * Requires the write lock.
+     */
+    private void delete(String shortCode, ByteBuffer putRecord, long offset) throws IOException {
+        ByteBuffer record = deleteRecord(shortCode);
+        append(record);
+        index.remove(ShortCodeHash.hash64(shortCode), candidate -> candidate == offset);
+        garbageBytes += putRecord.capacity() + record.capacity();
+        if (putRecord.getLong(EXPIRATION_OFFSET) != NO_DATE) {
+            expiringMappings--;
+        }
+    }
+
+    /**
+     * Writes the records one after another at the end of the file.
+     *
+     * @return The offset of the first record.
+     */
+    private long append(ByteBuffer... records) throws IOException {
+        int total = 0;
+        for (ByteBuffer record : records) {
+            total += record.capacity();
+        }
+        ByteBuffer batch = ByteBuffer.allocate(total);
+        for (ByteBuffer record : records) {
+            batch.put(record.duplicate().clear());
+        }
+        batch.flip();
+        long offset = end;
+        try {
+            writeFully(batch, offset);
+        } catch (IOException ex) {
+            // Do not leave a partial record behind for the next append to follow.
+            channel.truncate(offset);
+            throw ex;
+        }
+        end += total;
+        return offset;
+    }
+
+    private static ByteBuffer putRecord(UrlMapping urlMapping) {
+        byte[] code = urlMapping.getShortCode().getBytes(StandardCharsets.UTF_8);
+        byte[] url = urlMapping.getOriginalUrl().getBytes(StandardCharsets.UTF_8);
+        int length = PUT_CODE_OFFSET + 2 + code.length + 4 + url.length;
+        if (code.length > 0xFFFF || length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Mapping is too large for the embedded store: " + urlMapping.getShortCode());
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(0, length);
+        record.putLong(CLICK_COUNT_OFFSET, urlMapping.getClickCount());
+        record.put(TYPE_OFFSET, (byte) (PUT | policyBits(urlMapping.getRedirectPolicy()) << 4));
+        record.putLong(ID_OFFSET, urlMapping.getId() == null ? 0 : urlMapping.getId());
+        record.putLong(CREATION_OFFSET, toMillis(urlMapping.getCreationDate()));
+        record.putLong(EXPIRATION_OFFSET, toMillis(urlMapping.getExpirationDate()));
+        record.position(PUT_CODE_OFFSET);
+        record.putShort((short) code.length).put(code).putInt(url.length).put(url);
+        record.putInt(CRC_OFFSET, checksum(record));
+        return record.clear();
+    }
+
+    private static ByteBuffer deleteRecord(String shortCode) {
+        byte[] code = shortCode.getBytes(StandardCharsets.UTF_8);
+        int length = DELETE_CODE_OFFSET + 2 + code.length;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(0, length);
+        record.put(TYPE_OFFSET, DELETE);
+        record.position(DELETE_CODE_OFFSET);
+        record.putShort((short) code.length).put(code);
+        record.putInt(CRC_OFFSET, checksum(record));
+        return record.clear();
+    }
+
+    // ---- Recovery and compaction ---------------------------------------------
+
+    /**
+     * Rebuilds the index from the data file, cutting off a torn record at its end.
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(FILE_MAGIC).putInt(FORMAT_VERSION).flip();
+            channel.truncate(0);
+            writeFully(header, 0);
+            channel.force(true);
+            size = HEADER_SIZE;
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, 0);
+            if (header.getInt(0) != FILE_MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IllegalStateException(dataFile + " is not an embedded store data file of version " + FORMAT_VERSION);
+            }
+        }
+
+        index = new OffHeapHashIndex((int) Math.min(Integer.MAX_VALUE, size / 64));
+        end = size;
+        long offset = HEADER_SIZE;
+        while (offset < size) {
+            ByteBuffer record = readValidRecord(offset, size);
+            if (record == null) {
+                logger.warn("Truncating {} at offset {}: the record there is incomplete or corrupt.", dataFile, offset);
+                channel.truncate(offset);
+                break;
+            }
+            apply(record, offset);
+            offset += record.capacity();
+        }
+        end = offset;
+    }
+
+    private void apply(ByteBuffer record, long offset) throws IOException {
+        String shortCode = shortCodeOf(record);
+        byte[] code = shortCode.getBytes(StandardCharsets.UTF_8);
+        long hash = ShortCodeHash.hash64(shortCode);
+        long previous;
+        if (typeOf(record) == PUT) {
+            previous = index.put(hash, offset, candidate -> hasShortCode(readRecordUnchecked(candidate), code));
+            if (record.getLong(EXPIRATION_OFFSET) != NO_DATE) {
+                expiringMappings++;
+            }
+        } else {
+            previous = index.remove(hash, candidate -> hasShortCode(readRecordUnchecked(candidate), code));
+            garbageBytes += record.capacity();
+        }
+        if (previous >= 0) {
+            ByteBuffer replaced = readRecord(previous);
+            garbageBytes += replaced.capacity();
+            if (replaced.getLong(EXPIRATION_OFFSET) != NO_DATE) {
+                expiringMappings--;
+            }
+        }
+    }
+
+    /**
+     * @return The record at the offset, or null if it is cut off or fails its checks.
+     */
+    private ByteBuffer readValidRecord(long offset, long size) throws IOException {
+        if (size - offset < MIN_RECORD_SIZE) {
+            return null;
+        }
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(length, offset);
+        int recordLength = length.getInt(0);
+        if (recordLength < MIN_RECORD_SIZE || recordLength > MAX_RECORD_SIZE || recordLength > size - offset) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        readFully(record, offset);
+        byte type = typeOf(record);
+        if ((type != PUT && type != DELETE) || (type == PUT && recordLength < PUT_CODE_OFFSET + 6)
+                || record.getInt(CRC_OFFSET) != checksum(record)) {
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * Copies the live records to a new file, which then replaces the data file.
+     * Requires the write lock.
+     *
+     * The old file stays open until the new one has replaced it, and the channel
+     * is only swapped after that. If anything fails before, the new file is
+     * deleted and the store keeps working on the old one.
+     */
+    private void compact() throws IOException {
+        long started = System.nanoTime();
+        long sizeBefore = end;
+        Path compacted = directory.resolve(DATA_FILE + ".compacting");
+        OffHeapHashIndex newIndex = new OffHeapHashIndex(index.size());
+        long newEnd;
+        long newExpiring = 0;
+        FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            target.write(ByteBuffer.allocate(HEADER_SIZE).putInt(FILE_MAGIC).putInt(FORMAT_VERSION).flip());
+            newEnd = HEADER_SIZE;
+            for (long offset = HEADER_SIZE; offset < end; ) {
+                ByteBuffer record = readRecord(offset);
+                if (typeOf(record) == PUT && isLive(record, offset)) {
+                    // Live codes are unique, so the new index needs no collision check.
+                    newIndex.put(ShortCodeHash.hash64(shortCodeOf(record)), newEnd, candidate -> false);
+                    if (record.getLong(EXPIRATION_OFFSET) != NO_DATE) {
+                        newExpiring++;
+                    }
+                    while (record.hasRemaining()) {
+                        target.write(record);
+                    }
+                    newEnd += record.capacity();
+                }
+                offset += record.capacity();
+            }
+            target.force(true);
+            // An open channel follows its file, so 'target' now refers to the data file.
+            Files.move(compacted, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException ex) {
+            try {
+                target.close();
+                Files.deleteIfExists(compacted);
+            } catch (IOException cleanupFailure) {
+                ex.addSuppressed(cleanupFailure);
+            }
+            throw ex;
+        }
+
+        FileChannel replaced = channel;
+        channel = target;
+        try {
+            replaced.close();
+        } catch (IOException ex) {
+            logger.warn("Failed to close the data file replaced by compaction.", ex);
+        }
+        index = newIndex;
+        end = newEnd;
+        garbageBytes = 0;
+        expiringMappings = newExpiring;
+        expiryScanPosition = HEADER_SIZE;
+        generation++;
+        logger.info("Compacted the embedded store from {} to {} bytes in {} ms.",
+                sizeBefore, newEnd, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // ---- Record access -------------------------------------------------------
+
+    private ByteBuffer readRecord(long offset) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(READ_AHEAD, end - offset));
+        readFully(head, offset);
+        int length = head.getInt(0);
+        if (length <= head.capacity()) {
+            return ByteBuffer.wrap(head.array(), 0, length).slice();
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(record, offset);
+        return record;
+    }
+
+    private ByteBuffer readRecordUnchecked(long offset) {
+        try {
+            return readRecord(offset);
+        } catch (IOException ex) {
+            throw new DataAccessResourceFailureException("Cannot read the embedded store", ex);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + dataFile + " at offset " + offset);
+            }
+        }
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static String shortCodeOf(ByteBuffer record) {
+        int at = typeOf(record) == PUT ? PUT_CODE_OFFSET : DELETE_CODE_OFFSET;
+        int length = record.getShort(at) & 0xFFFF;
+        return new String(record.array(), record.arrayOffset() + at + 2, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean hasShortCode(ByteBuffer record, byte[] code) {
+        int at = typeOf(record) == PUT ? PUT_CODE_OFFSET : DELETE_CODE_OFFSET;
+        int length = record.getShort(at) & 0xFFFF;
+        int from = record.arrayOffset() + at + 2;
+        return length == code.length && Arrays.equals(record.array(), from, from + length, code, 0, code.length);
+    }
+
+    private static String originalUrlOf(ByteBuffer record) {
+        int at = PUT_CODE_OFFSET + 2 + (record.getShort(PUT_CODE_OFFSET) & 0xFFFF);
+        int length = record.getInt(at);
+        return new String(record.array(), record.arrayOffset() + at + 4, length, StandardCharsets.UTF_8);
+    }
+
+    private static UrlMapping toUrlMapping(ByteBuffer record) {
+        UrlMapping urlMapping = new UrlMapping();
+        urlMapping.setId(record.getLong(ID_OFFSET));
+        urlMapping.setShortCode(shortCodeOf(record));
+        urlMapping.setOriginalUrl(originalUrlOf(record));
+        urlMapping.setCreationDate(dateAt(record, CREATION_OFFSET));
+        urlMapping.setExpirationDate(dateAt(record, EXPIRATION_OFFSET));
+        urlMapping.setClickCount(record.getLong(CLICK_COUNT_OFFSET));
+        urlMapping.setRedirectPolicy(policyOf(record));
+        return urlMapping;
+    }
+
+    private static byte typeOf(ByteBuffer record) {
+        return (byte) (record.get(TYPE_OFFSET) & TYPE_MASK);
+    }
+
+    // Fixed codes instead of ordinals, so reordering the enum keeps old files readable.
+    private static int policyBits(RedirectPolicy policy) {
+        if (policy == null) {
+            return 0;
+        }
+        return switch (policy) {
+            case PERMANENT -> 1;
+            case TEMPORARY -> 2;
+        };
+    }
+
+    private static RedirectPolicy policyOf(ByteBuffer record) {
+        return switch ((record.get(TYPE_OFFSET) & 0xFF) >>> 4) {
+            case 1 -> RedirectPolicy.PERMANENT;
+            case 2 -> RedirectPolicy.TEMPORARY;
+            default -> null;
+        };
+    }
+
+    private static int checksum(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), record.arrayOffset() + TYPE_OFFSET, record.capacity() - TYPE_OFFSET);
+        return (int) crc.getValue();
+    }
+
+    private static LocalDateTime dateAt(ByteBuffer record, int offset) {
+        long millis = record.getLong(offset);
+        return millis == NO_DATE
+                ? null
+                : LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                        (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime == null ? NO_DATE : dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.urlshortener.repository.embedded;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongPredicate;
+
+/**
+ * An open-addressing hash table from the 64-bit hash of a short code to the file
+ * offset of its record, kept in a direct ByteBuffer outside the Java heap.
+ *
+ * Each slot is SLOT_SIZE bytes: the hash, then the offset. An offset of EMPTY
+ * marks a free slot and DELETED a removed one (a tombstone, so that probe chains
+ * running through it stay intact). Collisions are resolved with linear probing.
+ * The table doubles, dropping the tombstones, once more than MAX_LOAD of its
+ * slots are used.
+ *
+ * Two codes can share a hash, so every lookup takes a predicate that reads the
+ * record at a candidate offset and checks that it belongs to the wanted code.
+ *
+ * Not thread-safe: EmbeddedUrlMappingStore guards it with its read/write lock.
+ * One entry costs 23 to 46 bytes of native memory (SLOT_SIZE at a load between
+ * MAX_LOAD / 2 and MAX_LOAD) and no heap objects, so tens of millions of links do
+ * not add to the garbage collector's work.
+ */
+final class OffHeapHashIndex {
+
+    static final int SLOT_SIZE = 16;
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+    private static final double MAX_LOAD = 0.7;
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int size;
+    private int used; // live entries plus tombstones
+
+    /**
+     * @param expectedEntries Sizes the initial table; it grows as needed.
+     */
+    OffHeapHashIndex(int expectedEntries) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedEntries / MAX_LOAD)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @param matches Tells whether the record at an offset belongs to the wanted code.
+     * @return The offset of the matching record, or -1.
+     */
+    long get(long hash, LongPredicate matches) {
+        for (int slot = slotOf(hash); ; slot = (slot + 1) & (capacity - 1)) {
+            long offset = slots.getLong(slot * SLOT_SIZE + 8);
+            if (offset == EMPTY) {
+                return -1;
+            }
+            if (offset != DELETED && slots.getLong(slot * SLOT_SIZE) == hash && matches.test(offset)) {
+                return offset;
+            }
+        }
+    }
+
+    /**
+     * Maps the code to a new offset, replacing the entry that 'matches' accepts.
+     *
+     * @return The previous offset, or -1.
+     */
+    long put(long hash, long offset, LongPredicate matches) {
+        if (used + 1 > capacity * MAX_LOAD) {
+            resize(size + 1 > capacity * MAX_LOAD / 2 ? capacity * 2 : capacity);
+        }
+        int firstFree = -1;
+        for (int slot = slotOf(hash); ; slot = (slot + 1) & (capacity - 1)) {
+            long current = slots.getLong(slot * SLOT_SIZE + 8);
+            if (current == EMPTY) {
+                if (firstFree < 0) {
+                    firstFree = slot;
+                    used++;
+                }
+                size++;
+                write(firstFree, hash, offset);
+                return -1;
+            }
+            if (current == DELETED) {
+                if (firstFree < 0) {
+                    firstFree = slot;
+                }
+            } else if (slots.getLong(slot * SLOT_SIZE) == hash && matches.test(current)) {
+                write(slot, hash, offset);
+                return current;
+            }
+        }
+    }
+
+    /**
+     * @return The offset of the removed entry, or -1.
+     */
+    long remove(long hash, LongPredicate matches) {
+        for (int slot = slotOf(hash); ; slot = (slot + 1) & (capacity - 1)) {
+            long offset = slots.getLong(slot * SLOT_SIZE + 8);
+            if (offset == EMPTY) {
+                return -1;
+            }
+            if (offset != DELETED && slots.getLong(slot * SLOT_SIZE) == hash && matches.test(offset)) {
+                slots.putLong(slot * SLOT_SIZE + 8, DELETED);
+                size--;
+                return offset;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The native memory held by the table.
+     */
+    long memoryBytes() {
+        return (long) capacity * SLOT_SIZE;
+    }
+
+    private void resize(int newCapacity) {
+        ByteBuffer old = slots;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long offset = old.getLong(slot * SLOT_SIZE + 8);
+            if (offset != EMPTY && offset != DELETED) {
+                long hash = old.getLong(slot * SLOT_SIZE);
+                int target = slotOf(hash);
+                while (slots.getLong(target * SLOT_SIZE + 8) != EMPTY) {
+                    target = (target + 1) & (capacity - 1);
+                }
+                write(target, hash, offset);
+                size++;
+                used++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        if ((long) capacity * SLOT_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Index is full: " + size + " entries");
+        }
+        // A fresh direct buffer is zeroed, i.e. every slot is EMPTY.
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        this.capacity = capacity;
+        this.size = 0;
+        this.used = 0;
+    }
+
+    private void write(int slot, long hash, long offset) {
+        slots.putLong(slot * SLOT_SIZE, hash);
+        slots.putLong(slot * SLOT_SIZE + 8, offset);
+    }
+
+    private int slotOf(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+}
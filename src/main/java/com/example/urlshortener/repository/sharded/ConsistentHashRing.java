@@ -0,0 +1,60 @@
+package com.example.urlshortener.repository.sharded;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.example.urlshortener.service.ShortCodeHash;
+
+/**
+ * Maps each short code to one shard by consistent hashing.
+ *
+ * Every shard is placed on a ring of 64-bit hashes at 'virtualNodes' points, the
+ * hashes of "<name>#<i>". A short code belongs to the first point at or after its
+ * own hash, wrapping around at the end. The short code is all that is hashed, so
+ * codes encoded from sequence ids and custom aliases are routed the same way, and
+ * every instance routes a code to the same shard.
+ *
+ * Adding a shard only moves the codes that fall onto its new points, about
+ * 1 / (number of shards) of them; all other codes stay where they are (see
+ * ShardRebalancer). The points depend only on the shard names, so the order in
+ * which the shards are configured does not matter, but a shard must never be
+ * renamed.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> shards;
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * @param shards       The names of the shards.
+     * @param virtualNodes Points per shard. More points spread the codes more evenly.
+     */
+    public ConsistentHashRing(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("Need at least one shard and one virtual node: " + shards);
+        }
+        this.shards = List.copyOf(shards);
+        for (String shard : this.shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                String previous = ring.put(ShortCodeHash.hash64(shard + "#" + i), shard);
+                if (previous != null && !previous.equals(shard)) {
+                    throw new IllegalArgumentException("Shards '" + previous + "' and '" + shard
+                            + "' collide on the ring; rename one of them");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The name of the shard that stores the short code.
+     */
+    public String shardFor(String shortCode) {
+        Map.Entry<Long, String> point = ring.ceilingEntry(ShortCodeHash.hash64(shortCode));
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<String> shards() {
+        return shards;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.urlshortener.repository.sharded;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.urlshortener.model.HotLink;
+import com.example.urlshortener.model.RedirectPolicy;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.model.UrlMapping;
+import com.example.urlshortener.repository.UrlMappingJdbcRepository;
+import com.example.urlshortener.repository.UrlMappingStore;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * A UrlMappingStore on the 'url_mapping' table of one shard, with plain JDBC.
+ *
+ * JPA only manages the primary DataSource, so every statement here is written
+ * out, and transactions run through a TransactionTemplate on the shard's own
+ * DataSource. The bulk statements are those of UrlMappingJdbcRepository,
+ * instantiated for this shard.
+ *
+ * Not a bean: ShardedUrlMappingStore creates one per configured shard.
+ */
+final class JdbcUrlMappingStore implements UrlMappingStore {
+
+    private static final String COLUMNS =
+            "id, short_code, original_url, creation_date, click_count, expiration_date, url_hash, redirect_policy";
+
+    private static final String INSERT_SQL = "INSERT INTO url_mapping (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final RowMapper<UrlMapping> URL_MAPPING = (resultSet, rowNum) -> {
+        UrlMapping urlMapping = new UrlMapping();
+        urlMapping.setId(resultSet.getLong("id"));
+        urlMapping.setShortCode(resultSet.getString("short_code"));
+        urlMapping.setOriginalUrl(resultSet.getString("original_url"));
+        urlMapping.setCreationDate(toLocalDateTime(resultSet.getTimestamp("creation_date")));
+        urlMapping.setClickCount(resultSet.getLong("click_count"));
+        urlMapping.setExpirationDate(toLocalDateTime(resultSet.getTimestamp("expiration_date")));
+        urlMapping.setUrlHash(resultSet.getString("url_hash"));
+        urlMapping.setRedirectPolicy(toRedirectPolicy(resultSet));
+        return urlMapping;
+    };
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final UrlMappingJdbcRepository bulk;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int batchSize;
+
+    JdbcUrlMappingStore(String name, HikariDataSource dataSource, int batchSize) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.bulk = new UrlMappingJdbcRepository(jdbcTemplate, batchSize);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.batchSize = batchSize;
+    }
+
+    String name() {
+        return name;
+    }
+
+    @Override
+    public Optional<UrlMapping> findByShortCode(String shortCode) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM url_mapping WHERE short_code = ?", URL_MAPPING, shortCode)
+                .stream().findFirst();
+    }
+
+    @Override
+    public Optional<RedirectTarget> findRedirectTarget(String shortCode) {
+        return jdbcTemplate.query("SELECT original_url, expiration_date, redirect_policy FROM url_mapping WHERE short_code = ?",
+                        (resultSet, rowNum) -> new RedirectTarget(resultSet.getString("original_url"),
+                                toLocalDateTime(resultSet.getTimestamp("expiration_date")), toRedirectPolicy(resultSet)),
+                        shortCode)
+                .stream().findFirst();
+    }
+
+    @Override
+    public Optional<RedirectTarget> findRedirectTargetById(long id, String shortCode) {
+        return jdbcTemplate.query("SELECT original_url, expiration_date, redirect_policy FROM url_mapping "
+                                + "WHERE id = ? AND short_code = ?",
+                        (resultSet, rowNum) -> new RedirectTarget(resultSet.getString("original_url"),
+                                toLocalDateTime(resultSet.getTimestamp("expiration_date")), toRedirectPolicy(resultSet)),
+                        id, shortCode)
+                .stream().findFirst();
+    }
+
+    @Override
+    public List<String> findExistingShortCodes(Collection<String> shortCodes) {
+        if (shortCodes.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList("SELECT short_code FROM url_mapping WHERE short_code IN ("
+                + placeholders(shortCodes.size()) + ")", String.class, shortCodes.toArray());
+    }
+
+    @Override
+    public Optional<String> findShortCodeByUrlHash(String urlHash) {
+        return findOldestByUrlHash(urlHash).map(UrlMapping::getShortCode);
+    }
+
+    /**
+     * @return The mapping with the lowest id among those stored with this URL hash.
+     */
+    Optional<UrlMapping> findOldestByUrlHash(String urlHash) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM url_mapping WHERE url_hash = ? ORDER BY id LIMIT 1",
+                URL_MAPPING, urlHash).stream().findFirst();
+    }
+
+    @Override
+    public UrlMapping save(UrlMapping urlMapping) {
+        saveAll(List.of(urlMapping));
+        return urlMapping;
+    }
+
+    @Override
+    public List<UrlMapping> saveAll(List<UrlMapping> urlMappings) {
+        transaction.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_SQL, urlMappings, batchSize, JdbcUrlMappingStore::bind));
+        return urlMappings;
+    }
+
+    /**
+     * Inserts the mappings whose short code is not stored yet, in one transaction.
+     * Lets ShardRebalancer copy a batch again after an interrupted run.
+     */
+    void saveMissing(List<UrlMapping> urlMappings) {
+        transaction.executeWithoutResult(status -> {
+            Set<String> existing = new HashSet<>(findExistingShortCodes(
+                    urlMappings.stream().map(UrlMapping::getShortCode).toList()));
+            List<UrlMapping> missing = urlMappings.stream()
+                    .filter(urlMapping -> !existing.contains(urlMapping.getShortCode()))
+                    .toList();
+            jdbcTemplate.batchUpdate(INSERT_SQL, missing, batchSize, JdbcUrlMappingStore::bind);
+        });
+    }
+
+    /**
+     * @return Up to 'limit' mappings with an id above 'afterId', by ascending id.
+     */
+    List<UrlMapping> findPageAfterId(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM url_mapping WHERE id > ? ORDER BY id LIMIT ?",
+                URL_MAPPING, afterId, limit);
+    }
+
+    void deleteByIds(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM url_mapping WHERE id IN (" + placeholders(ids.size()) + ")", ids.toArray());
+        }
+    }
+
+    @Override
+    public List<String> deleteExpiredChunk(LocalDateTime now, int limit) {
+        return transaction.execute(status -> bulk.deleteExpiredChunk(now, limit));
+    }
+
+    @Override
+    public void incrementClickCounts(Map<String, Long> deltas) {
+        incrementExistingClickCounts(deltas);
+    }
+
+    /**
+     * @return The short codes that have no row on this shard.
+     */
+    List<String> incrementExistingClickCounts(Map<String, Long> deltas) {
+        return transaction.execute(status -> bulk.incrementClickCounts(deltas));
+    }
+
+    @Override
+    public int setClickCounts(Map<String, Long> counts) {
+        Integer updated = transaction.execute(status -> bulk.setClickCounts(counts));
+        return updated == null ? 0 : updated;
+    }
+
+    @Override
+    public long count() {
+        return bulk.countAll();
+    }
+
+    @Override
+    public void forEachShortCode(Consumer<String> action) {
+        readOnlyTransaction.executeWithoutResult(status -> bulk.forEachShortCode(action));
+    }
+
+    @Override
+    public void forEachShortCodeCreatedSince(LocalDateTime since, Consumer<String> action) {
+        readOnlyTransaction.executeWithoutResult(status -> bulk.forEachShortCodeCreatedSince(since, action));
+    }
+
+    @Override
+    public void forEachMostClicked(int limit, Consumer<HotLink> action) {
+        findMostClicked(limit).forEach(ranked -> action.accept(ranked.getKey()));
+    }
+
+    /**
+     * @return The 'limit' most clicked mappings with their click counts, most clicked first.
+     */
+    List<Map.Entry<HotLink, Long>> findMostClicked(int limit) {
+        return jdbcTemplate.query("SELECT short_code, original_url, expiration_date, redirect_policy, click_count "
+                        + "FROM url_mapping ORDER BY click_count DESC LIMIT ?",
+                (resultSet, rowNum) -> Map.entry(
+                        new HotLink(resultSet.getString("short_code"), resultSet.getString("original_url"),
+                                toLocalDateTime(resultSet.getTimestamp("expiration_date")), toRedirectPolicy(resultSet)),
+                        resultSet.getLong("click_count")),
+                limit);
+    }
+
+    void close() {
+        dataSource.close();
+    }
+
+    private static void bind(PreparedStatement statement, UrlMapping urlMapping) throws SQLException {
+        statement.setLong(1, urlMapping.getId());
+        statement.setString(2, urlMapping.getShortCode());
+        statement.setString(3, urlMapping.getOriginalUrl());
+        statement.setTimestamp(4, toTimestamp(urlMapping.getCreationDate()));
+        statement.setLong(5, urlMapping.getClickCount());
+        statement.setTimestamp(6, toTimestamp(urlMapping.getExpirationDate()));
+        statement.setString(7, urlMapping.getUrlHash());
+        if (urlMapping.getRedirectPolicy() == null) {
+            statement.setNull(8, Types.VARCHAR);
+        } else {
+            statement.setString(8, urlMapping.getRedirectPolicy().name());
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.valueOf(dateTime);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    private static RedirectPolicy toRedirectPolicy(ResultSet resultSet) throws SQLException {
+        String policy = resultSet.getString("redirect_policy");
+        return policy == null ? null : RedirectPolicy.valueOf(policy);
+    }
+}
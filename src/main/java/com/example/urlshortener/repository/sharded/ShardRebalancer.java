@@ -0,0 +1,100 @@
+package com.example.urlshortener.repository.sharded;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.dto.ShardRebalanceResponse;
+import com.example.urlshortener.model.UrlMapping;
+
+/**
+ * Moves every mapping that is not on the shard the ConsistentHashRing assigns to
+ * it, e.g. after a shard was added (see ShardedUrlMappingStore).
+ *
+ * Each shard is read in pages of 'app.sharding.rebalance-batch-size' rows by
+ * ascending id. The misplaced rows of a page are inserted on their owner (rows
+ * that are already there, from an interrupted run, are skipped) and only then
+ * deleted from the old shard, so a row is never missing from both. The run can
+ * be repeated at any time; on a balanced store it only reads.
+ *
+ * Clicks that are flushed for a row between its copy and its delete are lost, so
+ * run it when traffic is low. Lookups keep working throughout, through the
+ * fallback to 'app.sharding.previous-shards'.
+ */
+@Component
+@Profile("sharded")
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private final ShardedUrlMappingStore store;
+    private final int batchSize;
+    private final ReentrantLock running = new ReentrantLock();
+
+    /**
+     * @param batchSize The rows read and moved per step ('app.sharding.rebalance-batch-size').
+     */
+    public ShardRebalancer(ShardedUrlMappingStore store,
+                           @Value("${app.sharding.rebalance-batch-size:500}") int batchSize) {
+        this.store = store;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @throws IllegalStateException if another run is in progress.
+     */
+    public ShardRebalanceResponse rebalance() {
+        if (!running.tryLock()) {
+            throw new IllegalStateException("A rebalancing run is already in progress");
+        }
+        try {
+            long start = System.nanoTime();
+            long scanned = 0;
+            Map<String, Long> moved = new LinkedHashMap<>();
+            for (JdbcUrlMappingStore source : store.shards()) {
+                long afterId = Long.MIN_VALUE;
+                List<UrlMapping> page;
+                while (!(page = source.findPageAfterId(afterId, batchSize)).isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                    scanned += page.size();
+                    for (Map.Entry<JdbcUrlMappingStore, List<UrlMapping>> misplaced : misplaced(source, page).entrySet()) {
+                        JdbcUrlMappingStore target = misplaced.getKey();
+                        target.saveMissing(misplaced.getValue());
+                        source.deleteByIds(misplaced.getValue().stream().map(UrlMapping::getId).toList());
+                        moved.merge(target.name(), (long) misplaced.getValue().size(), Long::sum);
+                    }
+                }
+                logger.info("Rebalanced shard '{}': {} mappings moved to other shards so far.", source.name(),
+                        moved.values().stream().mapToLong(Long::longValue).sum());
+            }
+            long durationMillis = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Finished rebalancing: scanned {} mappings, moved {} in {} ms.", scanned, moved, durationMillis);
+            return new ShardRebalanceResponse(scanned, moved, durationMillis);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * @return The mappings of the page that belong to another shard, by owner.
+     */
+    private Map<JdbcUrlMappingStore, List<UrlMapping>> misplaced(JdbcUrlMappingStore source, List<UrlMapping> page) {
+        Map<JdbcUrlMappingStore, List<UrlMapping>> misplaced = new HashMap<>();
+        for (UrlMapping urlMapping : page) {
+            JdbcUrlMappingStore owner = store.owner(urlMapping.getShortCode());
+            if (owner != source) {
+                misplaced.computeIfAbsent(owner, shard -> new ArrayList<>()).add(urlMapping);
+            }
+        }
+        return misplaced;
+    }
+}
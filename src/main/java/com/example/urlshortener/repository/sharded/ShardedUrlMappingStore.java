@@ -0,0 +1,341 @@
+package com.example.urlshortener.repository.sharded;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+
+import com.example.urlshortener.model.HotLink;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.model.UrlMapping;
+import com.example.urlshortener.repository.PartialClickCountUpdateException;
+import com.example.urlshortener.repository.UrlMappingStore;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Spreads the url_mapping table over several databases (shards), each with its
+ * own connection pool. Every short code lives on the shard that the
+ * ConsistentHashRing assigns to it, so a redirect, an alias check or a click
+ * update touches exactly one shard.
+ *
+ * The shards are configured by name, e.g.:
+ *   app.sharding.shards=shard0,shard1
+ *   app.sharding.shard.shard0.url=jdbc:postgresql://db0:5432/urlshortener
+ *   app.sharding.shard.shard0.username=...
+ *
+ * The primary DataSource ('spring.datasource.*') keeps the id block sequence, so
+ * ids and the short codes encoded from them stay unique across all shards, and
+ * the click_bucket table.
+ *
+ * Adding a shard: append it to 'app.sharding.shards', set
+ * 'app.sharding.previous-shards' to the old list and restart, then run the
+ * ShardRebalancer. Until the old list is removed again, a lookup that misses on
+ * the new owner of a code falls back to its previous owner, and click updates go
+ * to the previous owner when the new owner has no row for the code.
+ *
+ * saveAll spans several databases and cannot be one transaction. It inserts each
+ * shard's mappings in a transaction of its own, and if one shard fails it deletes
+ * the mappings already inserted on the others before rethrowing, so the result is
+ * still all-or-nothing once it returns.
+ *
+ * Click updates cannot be undone that way. Each shard commits its own deltas, and
+ * if a shard fails, a PartialClickCountUpdateException names the deltas that were
+ * not applied, so the caller retries only those and no click is counted twice.
+ */
+@Repository
+@Profile("sharded")
+public class ShardedUrlMappingStore implements UrlMappingStore {
+
+    private final Map<String, JdbcUrlMappingStore> shards = new LinkedHashMap<>();
+    private final ConsistentHashRing ring;
+    private final ConsistentHashRing previousRing;
+
+    /**
+     * @param shardNames         The shards ('app.sharding.shards'). Each needs
+     *                           'app.sharding.shard.<name>.url', and optionally a
+     *                           username and password.
+     * @param previousShardNames The shards before the last one was added, while it is
+     *                           being rebalanced ('app.sharding.previous-shards').
+     * @param virtualNodes       Points per shard on the hash ring ('app.sharding.virtual-nodes').
+     * @param poolSize           Connections per shard ('app.sharding.pool-size').
+     * @param initializeSchema   Whether 'shard-schema.sql' runs on every shard at startup
+     *                           ('app.sharding.initialize-schema').
+     */
+    public ShardedUrlMappingStore(Environment environment,
+                                  @Value("${app.sharding.shards}") List<String> shardNames,
+                                  @Value("${app.sharding.previous-shards:}") List<String> previousShardNames,
+                                  @Value("${app.sharding.virtual-nodes:128}") int virtualNodes,
+                                  @Value("${app.sharding.pool-size:10}") int poolSize,
+                                  @Value("${app.sharding.initialize-schema:true}") boolean initializeSchema,
+                                  @Value("${app.jdbc.batch-size:500}") int batchSize) {
+        if (!shardNames.containsAll(previousShardNames)) {
+            throw new IllegalArgumentException("app.sharding.previous-shards " + previousShardNames
+                    + " must be a subset of app.sharding.shards " + shardNames + "; shards cannot be removed");
+        }
+        this.ring = new ConsistentHashRing(shardNames, virtualNodes);
+        this.previousRing = previousShardNames.isEmpty() ? null : new ConsistentHashRing(previousShardNames, virtualNodes);
+        try {
+            for (String name : shardNames) {
+                String prefix = "app.sharding.shard." + name + ".";
+                HikariDataSource dataSource = new HikariDataSource();
+                dataSource.setPoolName("shard-" + name);
+                dataSource.setJdbcUrl(environment.getRequiredProperty(prefix + "url"));
+                dataSource.setUsername(environment.getProperty(prefix + "username", "sa"));
+                dataSource.setPassword(environment.getProperty(prefix + "password", ""));
+                dataSource.setMaximumPoolSize(poolSize);
+                shards.put(name, new JdbcUrlMappingStore(name, dataSource, batchSize));
+                if (initializeSchema) {
+                    new ResourceDatabasePopulator(new ClassPathResource("shard-schema.sql")).execute(dataSource);
+                }
+            }
+        } catch (RuntimeException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Optional<UrlMapping> findByShortCode(String shortCode) {
+        Optional<UrlMapping> urlMapping = owner(shortCode).findByShortCode(shortCode);
+        JdbcUrlMappingStore previousOwner = previousOwner(shortCode);
+        return urlMapping.isEmpty() && previousOwner != null ? previousOwner.findByShortCode(shortCode) : urlMapping;
+    }
+
+    @Override
+    public Optional<RedirectTarget> findRedirectTarget(String shortCode) {
+        Optional<RedirectTarget> target = owner(shortCode).findRedirectTarget(shortCode);
+        JdbcUrlMappingStore previousOwner = previousOwner(shortCode);
+        return target.isEmpty() && previousOwner != null ? previousOwner.findRedirectTarget(shortCode) : target;
+    }
+
+    /**
+     * Routed by the short code like every lookup; on the shard, the row is found
+     * through the primary key.
+     */
+    @Override
+    public Optional<RedirectTarget> findRedirectTargetById(long id, String shortCode) {
+        Optional<RedirectTarget> target = owner(shortCode).findRedirectTargetById(id, shortCode);
+        JdbcUrlMappingStore previousOwner = previousOwner(shortCode);
+        return target.isEmpty() && previousOwner != null
+                ? previousOwner.findRedirectTargetById(id, shortCode) : target;
+    }
+
+    @Override
+    public List<String> findExistingShortCodes(Collection<String> shortCodes) {
+        List<String> existing = new ArrayList<>();
+        groupBy(shortCodes, this::owner).forEach((shard, codes) -> existing.addAll(shard.findExistingShortCodes(codes)));
+        if (previousRing != null) {
+            groupBy(shortCodes, this::previousOwner).forEach((shard, codes) -> {
+                if (shard != null) {
+                    existing.addAll(shard.findExistingShortCodes(codes));
+                }
+            });
+        }
+        return existing;
+    }
+
+    /**
+     * The URL hash says nothing about the shard of the mapping, so every shard is
+     * asked, and the oldest mapping wins as with a single database.
+     */
+    @Override
+    public Optional<String> findShortCodeByUrlHash(String urlHash) {
+        return shards.values().stream()
+                .map(shard -> shard.findOldestByUrlHash(urlHash))
+                .flatMap(Optional::stream)
+                .min(Comparator.comparing(UrlMapping::getId))
+                .map(UrlMapping::getShortCode);
+    }
+
+    @Override
+    public UrlMapping save(UrlMapping urlMapping) {
+        return owner(urlMapping.getShortCode()).save(urlMapping);
+    }
+
+    @Override
+    public List<UrlMapping> saveAll(List<UrlMapping> urlMappings) {
+        Map<JdbcUrlMappingStore, List<UrlMapping>> byShard = groupBy(urlMappings, urlMapping -> owner(urlMapping.getShortCode()));
+        List<Map.Entry<JdbcUrlMappingStore, List<UrlMapping>>> saved = new ArrayList<>(byShard.size());
+        try {
+            for (Map.Entry<JdbcUrlMappingStore, List<UrlMapping>> shard : byShard.entrySet()) {
+                shard.getKey().saveAll(shard.getValue());
+                saved.add(shard);
+            }
+        } catch (RuntimeException ex) {
+            for (Map.Entry<JdbcUrlMappingStore, List<UrlMapping>> shard : saved) {
+                shard.getKey().deleteByIds(shard.getValue().stream().map(UrlMapping::getId).toList());
+            }
+            throw ex;
+        }
+        return urlMappings;
+    }
+
+    @Override
+    public List<String> deleteExpiredChunk(LocalDateTime now, int limit) {
+        List<String> deleted = new ArrayList<>();
+        for (JdbcUrlMappingStore shard : shards.values()) {
+            deleted.addAll(shard.deleteExpiredChunk(now, limit - deleted.size()));
+            if (deleted.size() == limit) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public void incrementClickCounts(Map<String, Long> deltas) {
+        Map<String, Long> unapplied = new HashMap<>();
+        Map<String, Long> notOnOwner = new HashMap<>();
+        RuntimeException failure = null;
+        for (Map.Entry<JdbcUrlMappingStore, Map<String, Long>> shard : groupBy(deltas, this::owner).entrySet()) {
+            try {
+                for (String shortCode : shard.getKey().incrementExistingClickCounts(shard.getValue())) {
+                    notOnOwner.put(shortCode, shard.getValue().get(shortCode));
+                }
+            } catch (RuntimeException ex) {
+                unapplied.putAll(shard.getValue());
+                failure = addFailure(failure, ex);
+            }
+        }
+        if (previousRing != null) {
+            for (Map.Entry<JdbcUrlMappingStore, Map<String, Long>> shard : groupBy(notOnOwner, this::previousOwner).entrySet()) {
+                if (shard.getKey() == null) {
+                    continue;
+                }
+                try {
+                    shard.getKey().incrementClickCounts(shard.getValue());
+                } catch (RuntimeException ex) {
+                    unapplied.putAll(shard.getValue());
+                    failure = addFailure(failure, ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw new PartialClickCountUpdateException(unapplied, failure);
+        }
+    }
+
+    private static RuntimeException addFailure(RuntimeException first, RuntimeException next) {
+        if (first == null) {
+            return next;
+        }
+        first.addSuppressed(next);
+        return first;
+    }
+
+    @Override
+    public int setClickCounts(Map<String, Long> counts) {
+        int updated = 0;
+        for (Map.Entry<JdbcUrlMappingStore, Map<String, Long>> shard : groupBy(counts, this::owner).entrySet()) {
+            updated += shard.getKey().setClickCounts(shard.getValue());
+        }
+        if (previousRing != null) {
+            for (Map.Entry<JdbcUrlMappingStore, Map<String, Long>> shard : groupBy(counts, this::previousOwner).entrySet()) {
+                if (shard.getKey() != null) {
+                    updated += shard.getKey().setClickCounts(shard.getValue());
+                }
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public long count() {
+        return shards.values().stream().mapToLong(JdbcUrlMappingStore::count).sum();
+    }
+
+    @Override
+    public void forEachShortCode(Consumer<String> action) {
+        shards.values().forEach(shard -> shard.forEachShortCode(action));
+    }
+
+    @Override
+    public void forEachShortCodeCreatedSince(LocalDateTime since, Consumer<String> action) {
+        shards.values().forEach(shard -> shard.forEachShortCodeCreatedSince(since, action));
+    }
+
+    /**
+     * Each shard's 'limit' most clicked mappings include its share of the overall
+     * top 'limit', so those are merged.
+     */
+    @Override
+    public void forEachMostClicked(int limit, Consumer<HotLink> action) {
+        shards.values().stream()
+                .flatMap(shard -> shard.findMostClicked(limit).stream())
+                .sorted(Map.Entry.<HotLink, Long>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(ranked -> action.accept(ranked.getKey()));
+    }
+
+    @Override
+    public List<? extends UrlMappingStore> partitions() {
+        return List.copyOf(shards.values());
+    }
+
+    /**
+     * @return The number of mappings on each shard, in configuration order.
+     */
+    public Map<String, Long> countByShard() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        shards.forEach((name, shard) -> counts.put(name, shard.count()));
+        return counts;
+    }
+
+    Collection<JdbcUrlMappingStore> shards() {
+        return shards.values();
+    }
+
+    JdbcUrlMappingStore owner(String shortCode) {
+        return shards.get(ring.shardFor(shortCode));
+    }
+
+    /**
+     * @return The shard that owned the code before the last shard was added, or
+     *         null if that is its current owner or no rebalancing is in progress.
+     */
+    private JdbcUrlMappingStore previousOwner(String shortCode) {
+        if (previousRing == null) {
+            return null;
+        }
+        JdbcUrlMappingStore previousOwner = shards.get(previousRing.shardFor(shortCode));
+        return previousOwner == owner(shortCode) ? null : previousOwner;
+    }
+
+    private static <T> Map<JdbcUrlMappingStore, List<T>> groupBy(Collection<T> items,
+                                                                 Function<T, JdbcUrlMappingStore> shardOf) {
+        Map<JdbcUrlMappingStore, List<T>> groups = new HashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardOf.apply(item), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    private static Map<JdbcUrlMappingStore, Map<String, Long>> groupBy(Map<String, Long> values,
+                                                                       Function<String, JdbcUrlMappingStore> shardOf) {
+        Map<JdbcUrlMappingStore, Map<String, Long>> groups = new HashMap<>();
+        values.forEach((shortCode, value) ->
+                groups.computeIfAbsent(shardOf.apply(shortCode), shard -> new HashMap<>()).put(shortCode, value));
+        return groups;
+    }
+
+    @PreDestroy
+    public void close() {
+        shards.values().forEach(JdbcUrlMappingStore::close);
+    }
+}
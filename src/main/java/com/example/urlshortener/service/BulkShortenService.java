@@ -0,0 +1,163 @@
+package com.example.urlshortener.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.example.urlshortener.dto.BatchShortenResult;
+import com.example.urlshortener.dto.ShortenUrlRequest;
+import com.example.urlshortener.model.UrlMapping;
+import com.example.urlshortener.repository.UrlMappingStore;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Shortens large numbers of URLs in one request (e.g. campaign imports).
+ *
+ * The requests are consumed from an Iterator in chunks of 'app.batch.chunk-size'
+ * items. Each chunk is validated, checked for alias conflicts with a single query,
+ * and stored with saveAll() in its own transaction, which Hibernate sends to the
+ * database as JDBC batch inserts. Only one chunk is held in memory at a time, and
+ * a failure only affects the chunk it happened in.
+ */
+@Service
+public class BulkShortenService {
+
+    private final UrlShortenerService urlShortenerService;
+    private final UrlMappingStore urlMappingStore;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public BulkShortenService(UrlShortenerService urlShortenerService,
+                              UrlMappingStore urlMappingStore,
+                              ShortCodeBloomFilter shortCodeBloomFilter,
+                              Validator validator,
+                              @Value("${app.batch.chunk-size:500}") int chunkSize) {
+        this.urlShortenerService = urlShortenerService;
+        this.urlMappingStore = urlMappingStore;
+        this.shortCodeBloomFilter = shortCodeBloomFilter;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Shortens every request produced by the iterator.
+     *
+     * @param requests     The requests, read lazily from the client.
+     * @param chunkResults Receives the results of each chunk, in input order, as soon
+     *                     as the chunk has been committed.
+     */
+    public void shortenAll(Iterator<ShortenUrlRequest> requests, Consumer<List<BatchShortenResult>> chunkResults) {
+        long firstIndex = 0;
+        List<ShortenUrlRequest> chunk = new ArrayList<>(chunkSize);
+        while (requests.hasNext()) {
+            chunk.add(requests.next());
+            if (chunk.size() == chunkSize || !requests.hasNext()) {
+                chunkResults.accept(shortenChunk(firstIndex, chunk));
+                firstIndex += chunk.size();
+                chunk.clear();
+            }
+        }
+    }
+
+    private List<BatchShortenResult> shortenChunk(long firstIndex, List<ShortenUrlRequest> chunk) {
+        BatchShortenResult[] results = new BatchShortenResult[chunk.size()];
+
+        // One query for all aliases of the chunk instead of one per item. Aliases the
+        // Bloom filter has never seen are definitely free and need not be queried.
+        Set<String> requestedAliases = chunk.stream()
+                .filter(request -> request != null && StringUtils.hasText(request.CustomAlias()))
+                .map(ShortenUrlRequest::CustomAlias)
+                .filter(shortCodeBloomFilter::mightContain)
+                .collect(Collectors.toSet());
+        Set<String> takenAliases = requestedAliases.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(urlMappingStore.findExistingShortCodes(requestedAliases));
+
+        List<UrlMapping> mappings = new ArrayList<>(chunk.size());
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ShortenUrlRequest request = chunk.get(i);
+            long index = firstIndex + i;
+            String error = validate(request);
+            if (error != null) {
+                results[i] = BatchShortenResult.invalid(index, error);
+                continue;
+            }
+            String alias = request.CustomAlias();
+            // 'add' also rejects an alias that appears twice within the same chunk.
+            if (StringUtils.hasText(alias) && !takenAliases.add(alias)) {
+                results[i] = BatchShortenResult.conflict(index, "Alias '" + alias + "' is already in use.");
+                continue;
+            }
+            mappings.add(urlShortenerService.newUrlMapping(request.url(), alias, request.hoursToExpire(),
+                    request.redirectPolicy()));
+            positions.add(i);
+        }
+
+        if (!mappings.isEmpty()) {
+            try {
+                urlMappingStore.saveAll(mappings);
+                for (int j = 0; j < mappings.size(); j++) {
+                    results[positions.get(j)] = created(firstIndex + positions.get(j), mappings.get(j));
+                }
+            } catch (DataIntegrityViolationException ex) {
+                // An alias was taken concurrently by another request. The chunk was rolled
+                // back, so store its items one by one to find out which of them conflict.
+                for (int j = 0; j < mappings.size(); j++) {
+                    int position = positions.get(j);
+                    boolean generated = !StringUtils.hasText(chunk.get(position).CustomAlias());
+                    results[position] = saveOne(firstIndex + position, mappings.get(j), generated);
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    private BatchShortenResult saveOne(long index, UrlMapping mapping, boolean generated) {
+        try {
+            urlMappingStore.save(mapping);
+            return created(index, mapping);
+        } catch (DataIntegrityViolationException ex) {
+            if (generated) {
+                // A custom alias equals the code generated from the mapping's id.
+                return created(index, urlShortenerService.saveWithFreshCode(mapping, ex));
+            }
+            return BatchShortenResult.conflict(index, "Alias '" + mapping.getShortCode() + "' is already in use.");
+        }
+    }
+
+    private BatchShortenResult created(long index, UrlMapping mapping) {
+        return BatchShortenResult.created(index, "http://localhost:8080/" + mapping.getShortCode());
+    }
+
+    /**
+     * Applies the same Bean Validation rules as the single shorten endpoint.
+     *
+     * @return The joined violation messages, or null if the request is valid.
+     */
+    private String validate(ShortenUrlRequest request) {
+        if (request == null) {
+            return "Request item must be an object.";
+        }
+        Set<ConstraintViolation<ShortenUrlRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
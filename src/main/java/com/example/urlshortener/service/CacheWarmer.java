@@ -0,0 +1,349 @@
+package com.example.urlshortener.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.dto.CacheStatsResponse;
+import com.example.urlshortener.dto.WarmupStatsResponse;
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.model.HotLink;
+import com.example.urlshortener.model.RedirectPolicy;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.repository.UrlMappingStore;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Fills the redirect cache before the instance reports itself ready, so that a
+ * restart does not send every redirect to the database until the cache has
+ * refilled.
+ *
+ * The hot set is the 'app.warmup.snapshot-size' links that Caffeine considers the
+ * most valuable in the running cache. It is saved to 'app.warmup.directory' every
+ * 'app.warmup.snapshot-interval-ms' and on shutdown. On startup:
+ * 1. a snapshot younger than 'app.warmup.snapshot-max-age-hours' is loaded back;
+ * 2. without one, the 'app.warmup.preload-size' most clicked links are streamed
+ *    from the store instead.
+ * Links that have expired in the meantime are skipped. A link's target never
+ * changes, but the link itself may be gone: deleted by the CleanupService while
+ * the instance was down, or the instance may now use a different database. So
+ * the snapshot's short codes are checked against the store with
+ * findExistingShortCodes, 'VERIFY_BATCH_SIZE' at a time, and only the ones it
+ * still has are cached.
+ *
+ * The warm-up runs as an ApplicationRunner. Spring Boot publishes the
+ * ACCEPTING_TRAFFIC readiness state (/actuator/health/readiness) only after all
+ * runners have returned, so a load balancer or Kubernetes keeps the instance out
+ * of rotation until then. After 'app.warmup.max-duration-ms' the warm-up stops
+ * where it is, and the instance becomes ready with a partly warm cache.
+ *
+ * The snapshot file is a gzip stream of:
+ *   int magic, int version, long written at (epoch millis), int count,
+ *   count x { short length + UTF-8 short code, int length + UTF-8 URL,
+ *             long expiration (epoch millis, UTC) or NO_DATE, byte policy }
+ * The gzip trailer has a CRC-32, so a damaged file fails to load and the warm-up
+ * falls back to the store. The file is written next to its final name and then
+ * renamed, so a crash never leaves a partly written snapshot behind.
+ */
+@Component
+public class CacheWarmer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private static final String SNAPSHOT_FILE = "redirect-cache.snapshot";
+    private static final int MAGIC = 0x48_4F_54_31; // "HOT1"
+    private static final int VERSION = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int VERIFY_BATCH_SIZE = 500;
+
+    // Thrown from the store's callback to stop streaming once the budget is used up.
+    private static final class BudgetExhausted extends RuntimeException {
+        BudgetExhausted() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final UrlMappingStore urlMappingStore;
+    private final RedirectCache redirectCache;
+    private final ShortenerMetrics metrics;
+    private final TaskScheduler taskScheduler;
+    private final boolean enabled;
+    private final Path snapshot;
+    private final int snapshotSize;
+    private final int preloadSize;
+    private final long maxDurationMillis;
+    private final Duration snapshotMaxAge;
+    private final long reportAfterMillis;
+
+    // Written once by the warm-up, read by the admin endpoint.
+    private volatile WarmupStatsResponse result = new WarmupStatsResponse("none", 0, 0, false, 0, 0, 1.0);
+    private volatile CacheStatsResponse baseline;
+
+    /**
+     * @param enabled           Whether the cache is warmed up and snapshots are written ('app.warmup.enabled').
+     * @param directory         Where the snapshot is kept ('app.warmup.directory').
+     * @param snapshotSize      Links saved per snapshot ('app.warmup.snapshot-size').
+     * @param preloadSize       Most clicked links loaded without a snapshot ('app.warmup.preload-size').
+     * @param maxDurationMillis Time budget of the warm-up ('app.warmup.max-duration-ms').
+     * @param snapshotMaxAgeHours Older snapshots are ignored ('app.warmup.snapshot-max-age-hours').
+     * @param reportAfterMillis When the hit rate since the warm-up is logged ('app.warmup.report-after-ms').
+     * @param cacheSize         The capacity of the redirect cache ('app.redirect-cache.maximum-size').
+     */
+    public CacheWarmer(UrlMappingStore urlMappingStore, RedirectCache redirectCache, ShortenerMetrics metrics,
+                       TaskScheduler taskScheduler,
+                       @Value("${app.warmup.enabled:true}") boolean enabled,
+                       @Value("${app.warmup.directory:data/warmup}") Path directory,
+                       @Value("${app.warmup.snapshot-size:10000}") int snapshotSize,
+                       @Value("${app.warmup.preload-size:10000}") int preloadSize,
+                       @Value("${app.warmup.max-duration-ms:30000}") long maxDurationMillis,
+                       @Value("${app.warmup.snapshot-max-age-hours:24}") long snapshotMaxAgeHours,
+                       @Value("${app.warmup.report-after-ms:300000}") long reportAfterMillis,
+                       @Value("${app.redirect-cache.maximum-size:100000}") long cacheSize) {
+        this.urlMappingStore = urlMappingStore;
+        this.redirectCache = redirectCache;
+        this.metrics = metrics;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.snapshot = directory.resolve(SNAPSHOT_FILE);
+        this.snapshotSize = snapshotSize;
+        // Loading more links than fit would only evict the most clicked ones again.
+        this.preloadSize = (int) Math.min(preloadSize, cacheSize);
+        this.maxDurationMillis = maxDurationMillis;
+        this.snapshotMaxAge = Duration.ofHours(snapshotMaxAgeHours);
+        this.reportAfterMillis = reportAfterMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxDurationMillis * 1_000_000;
+        String source = "snapshot";
+        long[] loaded = { 0 };
+        boolean completed = true;
+        try {
+            if (!loadSnapshot(deadline, loaded)) {
+                source = "database";
+                urlMappingStore.forEachMostClicked(preloadSize, hotLink -> warm(hotLink, deadline, loaded));
+            }
+        } catch (BudgetExhausted ex) {
+            completed = false;
+        } catch (RuntimeException ex) {
+            // A cold cache is slower, not wrong: start anyway.
+            logger.warn("Redirect cache warm-up failed after {} links, starting with what was loaded.", loaded[0], ex);
+            completed = false;
+        }
+        metrics.recordWarmup(start);
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        baseline = redirectCache.stats();
+        result = new WarmupStatsResponse(source, loaded[0], durationMillis, completed, 0, 0, 1.0);
+        if (completed) {
+            logger.info("Warmed up the redirect cache with {} links from the {} in {} ms.", loaded[0], source,
+                    durationMillis);
+        } else {
+            logger.warn("Stopped the redirect cache warm-up after {} ms with {} links from the {}.", durationMillis,
+                    loaded[0], source);
+        }
+        taskScheduler.schedule(() -> {
+            WarmupStatsResponse stats = stats();
+            logger.info("Redirect cache hit rate in the {} s after the warm-up: {} ({} hits, {} misses).",
+                    reportAfterMillis / 1000, String.format("%.3f", stats.hitRate()), stats.hitCount(),
+                    stats.missCount());
+        }, Instant.now().plusMillis(reportAfterMillis));
+    }
+
+    /**
+     * @return The result of the warm-up and the redirect cache's hit rate since.
+     */
+    public WarmupStatsResponse stats() {
+        WarmupStatsResponse warmup = result;
+        CacheStatsResponse before = baseline;
+        if (before == null) {
+            return warmup;
+        }
+        CacheStatsResponse now = redirectCache.stats();
+        long hits = now.hitCount() - before.hitCount();
+        long misses = now.missCount() - before.missCount();
+        return new WarmupStatsResponse(warmup.source(), warmup.linksLoaded(), warmup.durationMillis(),
+                warmup.completed(), hits, misses, hits + misses == 0 ? 1.0 : (double) hits / (hits + misses));
+    }
+
+    /**
+     * Saves the current hot set, replacing the previous snapshot.
+     */
+    @Scheduled(initialDelayString = "${app.warmup.snapshot-interval-ms:300000}",
+            fixedDelayString = "${app.warmup.snapshot-interval-ms:300000}")
+    public void writeSnapshot() {
+        if (!enabled) {
+            return;
+        }
+        List<HotLink> hotLinks = redirectCache.hottest(snapshotSize);
+        if (hotLinks.isEmpty()) {
+            // Keep the last snapshot rather than replacing it with nothing, e.g. when
+            // the instance is stopped right after starting.
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(snapshot.getParent());
+            Path temporary = snapshot.resolveSibling(SNAPSHOT_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temporary), 65536)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(hotLinks.size());
+                for (HotLink hotLink : hotLinks) {
+                    write(out, hotLink);
+                }
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Wrote a redirect cache snapshot of {} links in {} ms.", hotLinks.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException ex) {
+            logger.warn("Failed to write the redirect cache snapshot {}.", snapshot, ex);
+        }
+    }
+
+    @PreDestroy
+    public void writeSnapshotOnShutdown() {
+        writeSnapshot();
+    }
+
+    /**
+     * @return false if there is no usable snapshot, and the store has to be used instead.
+     */
+    private boolean loadSnapshot(long deadline, long[] loaded) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(snapshot), 65536)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Ignoring the redirect cache snapshot {}: unknown format.", snapshot);
+                return false;
+            }
+            Instant writtenAt = Instant.ofEpochMilli(in.readLong());
+            if (writtenAt.isBefore(Instant.now().minus(snapshotMaxAge))) {
+                logger.info("Ignoring the redirect cache snapshot {}: written at {}.", snapshot, writtenAt);
+                return false;
+            }
+            int count = in.readInt();
+            List<HotLink> batch = new ArrayList<>(VERIFY_BATCH_SIZE);
+            int skipped = 0;
+            for (int i = 0; i < count; i++) {
+                batch.add(read(in));
+                if (batch.size() == VERIFY_BATCH_SIZE) {
+                    skipped += warmExisting(batch, deadline, loaded);
+                    batch.clear();
+                }
+            }
+            skipped += warmExisting(batch, deadline, loaded);
+            if (skipped > 0) {
+                logger.info("Skipped {} links of the redirect cache snapshot that are no longer in the store.",
+                        skipped);
+            }
+            // Reads the gzip trailer, which verifies the CRC of the whole file.
+            if (in.read() != -1) {
+                throw new IOException("Trailing data");
+            }
+            return true;
+        } catch (NoSuchFileException ex) {
+            return false;
+        } catch (IOException ex) {
+            // The links loaded so far came from intact blocks and stay cached.
+            logger.warn("Ignoring the rest of the redirect cache snapshot {}.", snapshot, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Caches the snapshot's links that the store still has.
+     *
+     * @return The number of links the store no longer has.
+     */
+    private int warmExisting(List<HotLink> batch, long deadline, long[] loaded) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Set<String> existing = new HashSet<>(urlMappingStore.findExistingShortCodes(
+                batch.stream().map(HotLink::shortCode).toList()));
+        int skipped = 0;
+        for (HotLink hotLink : batch) {
+            if (existing.contains(hotLink.shortCode())) {
+                warm(hotLink, deadline, loaded);
+            } else {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    private void warm(HotLink hotLink, long deadline, long[] loaded) {
+        if (System.nanoTime() - deadline >= 0) {
+            throw new BudgetExhausted();
+        }
+        if (!hotLink.target().isExpiredAt(LocalDateTime.now())) {
+            redirectCache.put(hotLink.shortCode(), hotLink.target());
+            loaded[0]++;
+        }
+    }
+
+    private static void write(DataOutputStream out, HotLink hotLink) throws IOException {
+        byte[] code = hotLink.shortCode().getBytes(StandardCharsets.UTF_8);
+        byte[] url = hotLink.target().originalUrl().getBytes(StandardCharsets.UTF_8);
+        out.writeShort(code.length);
+        out.write(code);
+        out.writeInt(url.length);
+        out.write(url);
+        LocalDateTime expiration = hotLink.target().expirationDate();
+        out.writeLong(expiration == null ? NO_DATE : expiration.toInstant(ZoneOffset.UTC).toEpochMilli());
+        // Fixed codes instead of ordinals, so reordering the enum keeps old snapshots readable.
+        RedirectPolicy policy = hotLink.target().redirectPolicy();
+        out.writeByte(policy == null ? 0 : policy == RedirectPolicy.PERMANENT ? 1 : 2);
+    }
+
+    private static HotLink read(DataInputStream in) throws IOException {
+        byte[] code = new byte[in.readUnsignedShort()];
+        in.readFully(code);
+        byte[] url = new byte[in.readInt()];
+        in.readFully(url);
+        long expiration = in.readLong();
+        RedirectPolicy policy = switch (in.readByte()) {
+            case 1 -> RedirectPolicy.PERMANENT;
+            case 2 -> RedirectPolicy.TEMPORARY;
+            default -> null;
+        };
+        return new HotLink(new String(code, StandardCharsets.UTF_8), new RedirectTarget(
+                new String(url, StandardCharsets.UTF_8),
+                expiration == NO_DATE ? null : LocalDateTime.ofEpochSecond(Math.floorDiv(expiration, 1000),
+                        (int) Math.floorMod(expiration, 1000) * 1_000_000, ZoneOffset.UTC),
+                policy));
+    }
+}
@@ -2,14 +2,20 @@
 
 package com.example.urlshortener.service;
 
-import com.example.urlshortener.repository.UrlMappingRepository;
-
-import jakarta.transaction.Transactional;
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.repository.UrlMappingStore;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -38,19 +44,56 @@ public class CleanupService {
     // which is invaluable for debugging and monitoring in a production environment.
     private static final Logger logger = LoggerFactory.getLogger(CleanupService.class);
 
-    // The CleanupService will need to interact with the database to find and delete
-    // expired links. Therefore, we inject the UrlMappingRepository.
-    private final UrlMappingRepository urlMappingRepository;
+    // The store that the expired links are deleted from, chunk by chunk.
+    private final UrlMappingStore urlMappingStore;
+
+    // Deleted links must not keep being served from the in-process caches of any instance.
+    private final NearCacheInvalidator nearCacheInvalidator;
+
+    // Deleted codes stay in the Bloom filter until it is rebuilt.
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+
+    // Records the duration of each run and chunk and the number of deleted rows.
+    private final ShortenerMetrics metrics;
+
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final long maxRuntimeMillis;
+    private final int maxParallelism;
+
+    // The result of cleaning up one partition of the store.
+    private record Progress(long deletedCount, boolean finished) {
+    }
 
     /**
-     * Constructor-based dependency injection. Spring will automatically provide an
-     * instance
-     * of UrlMappingRepository when it creates the CleanupService bean.
+     * Constructor-based dependency injection. Spring will automatically provide the
+     * beans and the configured values when it creates the CleanupService bean.
      *
-     * @param urlMappingRepository The repository for accessing URL mapping data.
+     * @param urlMappingStore          The store that deletes the expired rows.
+     * @param nearCacheInvalidator     Evicts the deleted links from the caches of all instances.
+     * @param shortCodeBloomFilter     The filter of known short codes.
+     * @param metrics                  The application's meters.
+     * @param chunkSize                Rows deleted per transaction ('app.cleanup.chunk-size').
+     * @param pauseMillis              Pause between two chunks ('app.cleanup.pause-ms').
+     * @param maxRuntimeMillis         Time after which a run stops, leaving the remaining
+     *                                 rows to the next run ('app.cleanup.max-runtime-ms').
+     * @param maxParallelism           Partitions (shards) cleaned up at the same time
+     *                                 ('app.cleanup.max-parallelism').
      */
-    public CleanupService(UrlMappingRepository urlMappingRepository) {
-        this.urlMappingRepository = urlMappingRepository;
+    public CleanupService(UrlMappingStore urlMappingStore, NearCacheInvalidator nearCacheInvalidator,
+                          ShortCodeBloomFilter shortCodeBloomFilter, ShortenerMetrics metrics,
+                          @Value("${app.cleanup.chunk-size:1000}") int chunkSize,
+                          @Value("${app.cleanup.pause-ms:100}") long pauseMillis,
+                          @Value("${app.cleanup.max-runtime-ms:600000}") long maxRuntimeMillis,
+                          @Value("${app.cleanup.max-parallelism:8}") int maxParallelism) {
+        this.urlMappingStore = urlMappingStore;
+        this.nearCacheInvalidator = nearCacheInvalidator;
+        this.shortCodeBloomFilter = shortCodeBloomFilter;
+        this.metrics = metrics;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.maxRuntimeMillis = maxRuntimeMillis;
+        this.maxParallelism = maxParallelism;
     }
 
     /**
@@ -67,27 +110,118 @@ public class CleanupService {
      *     - Day of Week: ? (not specified)
      *
      * This method will be executed by Spring's task scheduler in a background thread.
+     *
+     * The expired links are deleted in chunks of 'app.cleanup.chunk-size' rows, each in
+     * its own short transaction, with a pause in between. A single DELETE of all
+     * expired rows would hold its locks (and a transaction) for as long as it runs;
+     * chunks keep the table available to the redirect and shorten paths. The run
+     * stops after 'app.cleanup.max-runtime-ms'; rows that are left are deleted by
+     * the next run.
+     *
+     * A store that is split into partitions (see UrlMappingStore.partitions(), e.g.
+     * the shards of ShardedUrlMappingStore) is cleaned up one partition per thread,
+     * up to 'app.cleanup.max-parallelism' at a time. Each partition has its own
+     * database and connection pool, so the chunks of different partitions do not
+     * compete for locks, and the run takes as long as the largest partition.
     */
     @Scheduled(cron = "0 0 1 * * ?")
-    @Transactional  // Ensures that the delete operation is executed within a transaction.
     public void cleanupExpiredUrls() {
         // We use the logger we set up earlier to provide visibility into the job's execution.
         // This is crucial for monitoring and debugging in a production environment.
         logger.info("Starting scheduled job: Cleaning up expired URL mappings...");
+        long start = System.nanoTime();
+        long deadline = start + maxRuntimeMillis * 1_000_000;
 
         // 1. Get the current time. This will be the reference point for what is considered "expired".
         LocalDateTime now = LocalDateTime.now();
 
-        // 2. Call our new, efficient repository method.
-        // This single line executes a bulk DELETE command on the database.
-        long deletedCount = urlMappingRepository.deleteByExpirationDateBefore(now);
-        
+        // 2. Delete the expired rows of every partition until none are left, or the
+        //    time budget is used up.
+        long deletedCount = 0;
+        boolean finished = true;
+        List<? extends UrlMappingStore> partitions = urlMappingStore.partitions();
+        try {
+            if (partitions.size() == 1) {
+                Progress progress = cleanupPartition(partitions.get(0), now, deadline);
+                deletedCount = progress.deletedCount();
+                finished = progress.finished();
+            } else {
+                ExecutorService executor = Executors.newFixedThreadPool(Math.min(partitions.size(), maxParallelism));
+                try {
+                    List<Future<Progress>> results = new ArrayList<>(partitions.size());
+                    for (UrlMappingStore partition : partitions) {
+                        results.add(executor.submit(() -> cleanupPartition(partition, now, deadline)));
+                    }
+                    RuntimeException failure = null;
+                    for (Future<Progress> result : results) {
+                        try {
+                            Progress progress = result.get();
+                            deletedCount += progress.deletedCount();
+                            finished &= progress.finished();
+                        } catch (ExecutionException ex) {
+                            // The other partitions are still cleaned up; the first failure is
+                            // rethrown once their deletions have been counted.
+                            finished = false;
+                            if (failure == null) {
+                                failure = ex.getCause() instanceof RuntimeException runtime
+                                        ? runtime : new IllegalStateException(ex.getCause());
+                            }
+                        }
+                    }
+                    if (failure != null) {
+                        throw failure;
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException ex) {
+            // The application is shutting down; the committed chunks stay deleted.
+            finished = false;
+            Thread.currentThread().interrupt();
+        } finally {
+            metrics.recordCleanup(start, deletedCount);
+        }
+
         // 3. Log the result. This provides crucial visibility into what the automated
         // job did. In a production system, this log is essential for monitoring.
-        if (deletedCount > 0) {
+        if (!finished) {
+            logger.warn("Stopped scheduled job after {} ms: deleted {} expired URL mappings, "
+                    + "the remaining ones are deleted by the next run.", maxRuntimeMillis, deletedCount);
+        } else if (deletedCount > 0) {
             logger.info("Finished scheduled job: Successfully deleted {} expired URL mappings.", deletedCount);
         } else {
             logger.info("Finished scheduled job: No expired URL mappings found to delete.");
         }
+
+        // A Bloom filter cannot forget entries, so rebuild it without the deleted codes.
+        // Every chunk has already been committed at this point.
+        if (deletedCount > 0) {
+            shortCodeBloomFilter.rebuild();
+        }
+    }
+
+    /**
+     * Deletes one chunk of the partition's expired rows per transaction until none
+     * are left, or the deadline has passed.
+     */
+    private Progress cleanupPartition(UrlMappingStore partition, LocalDateTime now, long deadline)
+            throws InterruptedException {
+        long deletedCount = 0;
+        while (true) {
+            long chunkStart = System.nanoTime();
+            List<String> deletedCodes = partition.deleteExpiredChunk(now, chunkSize);
+            metrics.recordCleanupChunk(chunkStart, deletedCodes.size());
+            nearCacheInvalidator.invalidate(deletedCodes);
+            deletedCount += deletedCodes.size();
+
+            if (deletedCodes.size() < chunkSize) {
+                return new Progress(deletedCount, true);
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return new Progress(deletedCount, false);
+            }
+            Thread.sleep(pauseMillis);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package com.example.urlshortener.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.repository.PartialClickCountUpdateException;
+import com.example.urlshortener.repository.UrlMappingStore;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind click counting for the redirect path.
+ *
+ * A redirect only increments an in-memory counter. A scheduled job periodically
+ * drains all counters and applies the accumulated deltas to the database in
+ * batched 'click_count = click_count + ?' statements, so the redirect itself
+ * performs no database write at all.
+ *
+ * Each short code gets its own LongAdder, which spreads concurrent increments of
+ * a hot link over several cells instead of contending on a single lock or CAS.
+ * Counters are drained with sumThenReset(), which atomically takes the value of
+ * each cell, so an increment racing with a flush is either part of this flush or
+ * stays behind for the next one. It is never lost.
+ */
+@Component
+public class ClickCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickCounter.class);
+
+    private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+    private final UrlMappingStore urlMappingStore;
+
+    // Serialises the scheduled flush and the final flush on shutdown. A ReentrantLock
+    // rather than 'synchronized' because the flush blocks on JDBC.
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public ClickCounter(UrlMappingStore urlMappingStore) {
+        this.urlMappingStore = urlMappingStore;
+    }
+
+    /**
+     * Records one click for the short code. Lock-free and allocation-free once
+     * the short code has a counter.
+     */
+    public void increment(String shortCode) {
+        add(shortCode, 1L);
+    }
+
+    /**
+     * @return The clicks recorded for the short code that are not yet in the database.
+     */
+    public long pendingClicks(String shortCode) {
+        LongAdder adder = pending.get(shortCode);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    /**
+     * Applies all pending clicks to the database.
+     *
+     * A counter that stayed idle for a whole interval is removed from the map so
+     * the map only holds recently clicked links. If a redirect incremented such a
+     * counter right while it was being removed, add() notices the removal and
+     * moves the click to a fresh counter.
+     */
+    @Scheduled(fixedDelayString = "${app.clicks.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<String, Long> deltas = new HashMap<>();
+            for (Map.Entry<String, LongAdder> entry : pending.entrySet()) {
+                String shortCode = entry.getKey();
+                LongAdder adder = entry.getValue();
+                long delta = adder.sumThenReset();
+                if (delta == 0 && pending.remove(shortCode, adder)) {
+                    delta = adder.sumThenReset();
+                }
+                if (delta > 0) {
+                    deltas.put(shortCode, delta);
+                }
+            }
+            if (deltas.isEmpty()) {
+                return;
+            }
+            try {
+                urlMappingStore.incrementClickCounts(deltas);
+            } catch (PartialClickCountUpdateException ex) {
+                // The other clicks are committed; retrying them would count them twice.
+                logger.warn("Failed to flush clicks for {} of {} short codes, will retry.",
+                        ex.getUnappliedDeltas().size(), deltas.size(), ex);
+                ex.getUnappliedDeltas().forEach(this::add);
+            } catch (DataAccessException ex) {
+                // The whole batch was rolled back, so put the clicks back and retry next time.
+                logger.warn("Failed to flush clicks for {} short codes, will retry.", deltas.size(), ex);
+                deltas.forEach(this::add);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the remaining clicks when the application shuts down gracefully.
+     * Spring destroys this bean before the DataSource it depends on.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        long lost = pending.values().stream().mapToLong(LongAdder::sum).sum();
+        if (lost > 0) {
+            logger.error("Shutting down with {} clicks that could not be written to the database.", lost);
+        }
+    }
+
+    private void add(String shortCode, long clicks) {
+        LongAdder adder = pending.get(shortCode);
+        if (adder == null) {
+            adder = pending.computeIfAbsent(shortCode, key -> new LongAdder());
+        }
+        adder.add(clicks);
+        if (pending.get(shortCode) != adder) {
+            // The flush retired this counter concurrently. Whatever it did not drain
+            // is moved to the counter that is now in the map.
+            long stranded = adder.sumThenReset();
+            if (stranded > 0) {
+                add(shortCode, stranded);
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.urlshortener.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.model.ClickEvent;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * An append-only log of every redirect, written through memory-mapped files.
+ *
+ * The log is a directory of segment files named 'clicks-<index>.log', each
+ * 'app.click-log.segment-size-mb' large and divided into fixed-size records of
+ * RECORD_SIZE bytes:
+ *
+ *   offset  size  field
+ *        0     4  MAGIC, written last; a slot without it is empty or incomplete
+ *        4     8  timestamp, epoch milliseconds
+ *       12    64  short code:  1 length byte + up to 63 bytes of UTF-8
+ *       76   100  referrer:    1 length byte + up to 99 bytes of UTF-8
+ *      176    80  user agent:  1 length byte + up to 79 bytes of UTF-8
+ *
+ * The high bit of a length byte is set when the field was truncated. A record
+ * whose short code was truncated (an alias longer than 63 bytes) cannot be told
+ * apart from a link whose code is that prefix, so read() skips it.
+ *
+ * Appending: a thread claims the next slot of the current segment with a single
+ * getAndIncrement() and writes the record into the mapped buffer, so concurrent
+ * appends never wait for each other. The magic number is written last with
+ * release semantics; a reader that sees it (with acquire semantics) also sees the
+ * rest of the record. Only the thread that finds the segment full takes a lock,
+ * to create and map the next one.
+ *
+ * Durability: the operating system writes mapped pages to disk on its own, so
+ * records survive a crash of the JVM. The buffers are also forced to disk every
+ * 'app.click-log.force-interval-ms' to bound the loss if the machine crashes.
+ *
+ * Retention: sealed segments are deleted, oldest first, once the log is larger
+ * than 'app.click-log.retention.max-size-mb' or older than
+ * 'app.click-log.retention.max-age-hours'.
+ */
+@Component
+public class ClickEventLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickEventLog.class);
+
+    static final int RECORD_SIZE = 256;
+    private static final int MAGIC = 0x434C4B31; // "CLK1"
+    private static final int TIMESTAMP_OFFSET = 4;
+    private static final int SHORT_CODE_OFFSET = 12;
+    private static final int SHORT_CODE_SIZE = 64;
+    private static final int REFERRER_OFFSET = SHORT_CODE_OFFSET + SHORT_CODE_SIZE;
+    private static final int REFERRER_SIZE = 100;
+    private static final int USER_AGENT_OFFSET = REFERRER_OFFSET + REFERRER_SIZE;
+    private static final int USER_AGENT_SIZE = 80;
+    private static final int TRUNCATED = 0x80;
+
+    private static final VarHandle INT_HANDLE =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("clicks-(\\d+)\\.log");
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxSizeBytes;
+    private final Duration maxAge;
+
+    private final ReentrantLock rollLock = new ReentrantLock();
+    private volatile Segment current;
+
+    public ClickEventLog(@Value("${app.click-log.enabled:true}") boolean enabled,
+                         @Value("${app.click-log.directory:data/click-log}") Path directory,
+                         @Value("${app.click-log.segment-size-mb:64}") int segmentSizeMb,
+                         @Value("${app.click-log.retention.max-size-mb:4096}") long maxSizeMb,
+                         @Value("${app.click-log.retention.max-age-hours:720}") long maxAgeHours) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSizeMb * 1024 * 1024 / RECORD_SIZE * RECORD_SIZE;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.maxAge = Duration.ofHours(maxAgeHours);
+        if (enabled) {
+            this.current = openLastSegment();
+        }
+    }
+
+    /**
+     * Appends one redirect to the log. Fields that are too long are truncated.
+     *
+     * @param referrer  May be null.
+     * @param userAgent May be null.
+     */
+    public void append(String shortCode, String referrer, String userAgent) {
+        if (!enabled) {
+            return;
+        }
+        long timestamp = System.currentTimeMillis();
+        Segment segment = current;
+        int slot = segment.nextSlot.getAndIncrement();
+        while (slot >= segment.capacity) {
+            segment = roll(segment);
+            slot = segment.nextSlot.getAndIncrement();
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = slot * RECORD_SIZE;
+        buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+        putString(buffer, offset + SHORT_CODE_OFFSET, SHORT_CODE_SIZE, shortCode);
+        putString(buffer, offset + REFERRER_OFFSET, REFERRER_SIZE, referrer);
+        putString(buffer, offset + USER_AGENT_OFFSET, USER_AGENT_SIZE, userAgent);
+        INT_HANDLE.setRelease(buffer, offset, MAGIC);
+    }
+
+    /**
+     * Reads every complete record in the log, oldest segment first. Within a
+     * segment, records are in slot order, which is the order in which the slots
+     * were claimed; timestamps of concurrent appends may be slightly out of order.
+     *
+     * Records appended while the method runs may or may not be included.
+     *
+     * @param consumer Receives the events.
+     */
+    public void read(Consumer<ClickEvent> consumer) {
+        if (!enabled) {
+            return;
+        }
+        for (Path file : segmentFiles()) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException ex) {
+                // Deleted by retention in the meantime, or unreadable.
+                logger.warn("Skipping click log segment {}.", file, ex);
+                continue;
+            }
+            int slots = buffer.capacity() / RECORD_SIZE;
+            int skipped = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                int offset = slot * RECORD_SIZE;
+                if ((int) INT_HANDLE.getAcquire(buffer, offset) != MAGIC) {
+                    continue;
+                }
+                if ((buffer.get(offset + SHORT_CODE_OFFSET) & TRUNCATED) != 0) {
+                    skipped++;
+                    continue;
+                }
+                consumer.accept(new ClickEvent(
+                        Instant.ofEpochMilli(buffer.getLong(offset + TIMESTAMP_OFFSET)),
+                        getString(buffer, offset + SHORT_CODE_OFFSET),
+                        getString(buffer, offset + REFERRER_OFFSET),
+                        getString(buffer, offset + USER_AGENT_OFFSET)));
+            }
+            if (skipped > 0) {
+                logger.warn("Skipped {} records in click log segment {} whose short code was too long to store.",
+                        skipped, file);
+            }
+        }
+    }
+
+    /**
+     * Writes the current segment's dirty pages to disk.
+     */
+    @Scheduled(fixedDelayString = "${app.click-log.force-interval-ms:1000}")
+    public void force() {
+        Segment segment = current;
+        if (segment != null) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * Deletes the oldest sealed segments beyond the size or age limit.
+     */
+    @Scheduled(fixedDelayString = "${app.click-log.retention.check-interval-ms:60000}")
+    public void enforceRetention() {
+        Segment segment = current;
+        if (segment == null) {
+            return;
+        }
+        List<Path> files = segmentFiles();
+        long totalBytes = 0;
+        for (Path file : files) {
+            totalBytes += file.toFile().length();
+        }
+        Instant oldestAllowed = Instant.now().minus(maxAge);
+        for (Path file : files) {
+            if (file.equals(segment.file)) {
+                break;
+            }
+            try {
+                boolean tooOld = Files.getLastModifiedTime(file).toInstant().isBefore(oldestAllowed);
+                if (totalBytes <= maxSizeBytes && !tooOld) {
+                    break;
+                }
+                totalBytes -= Files.size(file);
+                Files.deleteIfExists(file);
+                logger.info("Deleted click log segment {}.", file.getFileName());
+            } catch (IOException ex) {
+                logger.warn("Failed to delete click log segment {}.", file, ex);
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        force();
+    }
+
+    private Segment roll(Segment full) {
+        rollLock.lock();
+        try {
+            if (current == full) {
+                full.buffer.force();
+                current = openSegment(full.index + 1, 0);
+            }
+            return current;
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    /**
+     * Continues the newest existing segment after the last complete record, or
+     * starts the first segment.
+     */
+    private Segment openLastSegment() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create the click log directory " + directory, ex);
+        }
+        List<Path> files = segmentFiles();
+        if (files.isEmpty()) {
+            return openSegment(0, 0);
+        }
+        Path last = files.get(files.size() - 1);
+        long index = segmentIndex(last);
+        Segment segment = openSegment(index, 0);
+        int nextSlot = 0;
+        for (int slot = segment.capacity - 1; slot >= 0; slot--) {
+            if ((int) INT_HANDLE.getAcquire(segment.buffer, slot * RECORD_SIZE) == MAGIC) {
+                nextSlot = slot + 1;
+                break;
+            }
+        }
+        segment.nextSlot.set(nextSlot);
+        logger.info("Continuing click log segment {} at record {}.", last.getFileName(), nextSlot);
+        return segment;
+    }
+
+    private Segment openSegment(long index, int nextSlot) {
+        Path file = directory.resolve(String.format("clicks-%016d.log", index));
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // A segment written with a different segment size keeps its own size.
+            long size = Math.max(channel.size(), segmentSize);
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(index, file, buffer, nextSlot);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open click log segment " + file, ex);
+        }
+    }
+
+    /**
+     * @return The segment files, oldest first.
+     */
+    private List<Path> segmentFiles() {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .forEach(files::add);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot list the click log directory " + directory, ex);
+        }
+        return files;
+    }
+
+    private static long segmentIndex(Path file) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a click log segment: " + file);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static void putString(MappedByteBuffer buffer, int offset, int size, String value) {
+        if (value == null) {
+            buffer.put(offset, (byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < size) {
+            buffer.put(offset, (byte) bytes.length);
+            buffer.put(offset + 1, bytes);
+        } else {
+            buffer.put(offset, (byte) ((size - 1) | TRUNCATED));
+            buffer.put(offset + 1, bytes, 0, size - 1);
+        }
+    }
+
+    private static String getString(MappedByteBuffer buffer, int offset) {
+        int length = buffer.get(offset) & (TRUNCATED - 1);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 1, bytes);
+        // A truncated multi-byte character at the end decodes as U+FFFD.
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One mapped segment file. 'nextSlot' may grow beyond 'capacity' while
+     * threads race to roll the segment; those slots are never written.
+     */
+    private static final class Segment {
+        private final long index;
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final AtomicInteger nextSlot;
+
+        private Segment(long index, Path file, MappedByteBuffer buffer, int nextSlot) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity() / RECORD_SIZE;
+            this.nextSlot = new AtomicInteger(nextSlot);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.urlshortener.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.urlshortener.dto.ClickLogReplayResponse;
+import com.example.urlshortener.model.ClickBucket;
+import com.example.urlshortener.model.ClickResolution;
+import com.example.urlshortener.repository.ClickBucketStore;
+import com.example.urlshortener.repository.UrlMappingStore;
+
+/**
+ * Rebuilds derived click data from the click event log.
+ *
+ * Both operations are run by an operator (see AdminController), typically after
+ * a crash lost clicks that were only counted in memory.
+ */
+@Service
+public class ClickLogReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickLogReplayer.class);
+
+    private final ClickEventLog clickEventLog;
+    private final ClickCounter clickCounter;
+    private final UrlMappingStore urlMappingStore;
+    private final ClickBucketStore clickBucketStore;
+
+    public ClickLogReplayer(ClickEventLog clickEventLog, ClickCounter clickCounter,
+                            UrlMappingStore urlMappingStore, ClickBucketStore clickBucketStore) {
+        this.clickEventLog = clickEventLog;
+        this.clickCounter = clickCounter;
+        this.urlMappingStore = urlMappingStore;
+        this.clickBucketStore = clickBucketStore;
+    }
+
+    /**
+     * Sets the click count of every link in the log to the number of its events.
+     *
+     * The result is only exact if the log still holds every click since the links
+     * were created (i.e. retention never deleted a segment), and if no redirects
+     * happen while it runs: clicks that are counted in the log and are also still
+     * pending in the ClickCounter would be counted twice.
+     */
+    public ClickLogReplayResponse rebuildClickCounts() {
+        // Write the pending clicks first, so they are not added on top of the result later.
+        clickCounter.flush();
+        Map<String, Long> counts = new HashMap<>();
+        long[] events = new long[1];
+        clickEventLog.read(event -> {
+            counts.merge(event.shortCode(), 1L, Long::sum);
+            events[0]++;
+        });
+        int rows = urlMappingStore.setClickCounts(counts);
+        logger.info("Rebuilt the click counts of {} links from {} click events.", rows, events[0]);
+        return new ClickLogReplayResponse(events[0], rows);
+    }
+
+    /**
+     * Adds the events in [from, to) to the click time series buckets.
+     *
+     * Use a range whose clicks are missing from the buckets, e.g. the minutes
+     * between the last rollup and a crash; events already rolled up would be
+     * counted twice.
+     */
+    public ClickLogReplayResponse replayAnalytics(Instant from, Instant to) {
+        Map<BucketKey, Long> clicks = new HashMap<>();
+        long[] events = new long[1];
+        clickEventLog.read(event -> {
+            if (event.timestamp().isBefore(from) || !event.timestamp().isBefore(to)) {
+                return;
+            }
+            long minute = event.timestamp().getEpochSecond() / 60;
+            for (ClickResolution resolution : ClickResolution.values()) {
+                clicks.merge(new BucketKey(event.shortCode(), resolution, resolution.bucketOf(minute)), 1L, Long::sum);
+            }
+            events[0]++;
+        });
+        List<ClickBucket> buckets = new ArrayList<>(clicks.size());
+        clicks.forEach((key, count) ->
+                buckets.add(new ClickBucket(key.shortCode(), key.resolution(), key.startMinute(), count)));
+        clickBucketStore.incrementBuckets(buckets);
+        logger.info("Replayed {} click events from {} to {} into {} click buckets.", events[0], from, to, buckets.size());
+        return new ClickLogReplayResponse(events[0], buckets.size());
+    }
+
+    private record BucketKey(String shortCode, ClickResolution resolution, long startMinute) {
+    }
+}
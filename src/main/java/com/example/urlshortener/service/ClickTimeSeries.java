@@ -0,0 +1,289 @@
+package com.example.urlshortener.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.dto.UrlStatsResponse;
+import com.example.urlshortener.model.ClickBucket;
+import com.example.urlshortener.model.ClickResolution;
+import com.example.urlshortener.repository.ClickBucketStore;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Counts the clicks of each link per minute, hour and day.
+ *
+ * Recording: a redirect increments the current minute in the link's ring buffer
+ * of the last RING_MINUTES minutes. Each slot is a single long that packs the
+ * minute it belongs to (high 32 bits) with its click count (low 32 bits), so an
+ * increment is one CAS and a slot from an older minute is recycled in the same
+ * CAS. No database write happens on the redirect path.
+ *
+ * Rollup: every 'app.clicks.rollup-interval-ms', the completed minutes of all
+ * rings are summed into their minute, hour and day buckets and added to the
+ * 'click_bucket' table in JDBC batches. A ring whose minutes have all been
+ * persisted is removed, so memory is only used by recently clicked links. If the
+ * database is unavailable, the minutes stay in the rings and are retried, for up
+ * to RING_MINUTES minutes.
+ *
+ * Reading: a series combines the persisted buckets with the minutes of this
+ * instance that are not rolled up yet.
+ */
+@Component
+public class ClickTimeSeries {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickTimeSeries.class);
+
+    // A power of two, so the slot of a minute is 'minute & (RING_MINUTES - 1)'.
+    static final int RING_MINUTES = 16;
+
+    // A click is recorded in the minute it was read from the clock, which may end
+    // while the click is being recorded. Minutes are rolled up one minute late.
+    private static final int GRACE_MINUTES = 1;
+
+    // The longest series returned by series().
+    private static final int MAX_POINTS = 10_000;
+
+    private final ConcurrentHashMap<String, MinuteRing> rings = new ConcurrentHashMap<>();
+    private final ClickBucketStore clickBucketStore;
+    private final long minuteRetentionMinutes;
+    private final long hourRetentionMinutes;
+
+    private final ReentrantLock rollupLock = new ReentrantLock();
+    // The last minute whose clicks are in the database.
+    private volatile long rolledUpTo;
+
+    /**
+     * @param minuteRetentionHours How long minute buckets are kept ('app.clicks.minute-retention-hours').
+     * @param hourRetentionDays    How long hour buckets are kept ('app.clicks.hour-retention-days').
+     *                             Day buckets are kept forever.
+     */
+    public ClickTimeSeries(ClickBucketStore clickBucketStore,
+                           @Value("${app.clicks.minute-retention-hours:48}") long minuteRetentionHours,
+                           @Value("${app.clicks.hour-retention-days:90}") long hourRetentionDays) {
+        this.clickBucketStore = clickBucketStore;
+        this.minuteRetentionMinutes = minuteRetentionHours * 60;
+        this.hourRetentionMinutes = hourRetentionDays * 24 * 60;
+        this.rolledUpTo = currentMinute() - 1;
+    }
+
+    /**
+     * Records one click in the current minute. O(1) and allocation-free once the
+     * link has a ring.
+     */
+    public void record(String shortCode) {
+        add(shortCode, currentMinute(), 1);
+    }
+
+    /**
+     * Persists the completed minutes of all links.
+     */
+    @Scheduled(fixedDelayString = "${app.clicks.rollup-interval-ms:60000}")
+    public void rollup() {
+        rollupUpTo(currentMinute() - 1 - GRACE_MINUTES);
+    }
+
+    /**
+     * Persists every recorded minute, including the current one, on a graceful shutdown.
+     */
+    @PreDestroy
+    public void rollupOnShutdown() {
+        rollupUpTo(currentMinute());
+    }
+
+    /**
+     * @param from The start of the range, rounded down to a whole bucket.
+     * @param to   The end of the range, rounded up to a whole minute (exclusive), so
+     *             the minute it falls in, e.g. the one in progress, is included.
+     * @return One point per bucket in the range, including buckets without clicks.
+     *         At most MAX_POINTS; longer ranges are cut at the start.
+     */
+    public List<UrlStatsResponse.Point> series(String shortCode, ClickResolution resolution,
+                                               Instant from, Instant to) {
+        long toSeconds = to.getEpochSecond() + (to.getNano() > 0 ? 1 : 0);
+        long toMinute = -Math.floorDiv(-toSeconds, 60);
+        long fromMinute = resolution.bucketOf(Math.max(Math.floorDiv(from.getEpochSecond(), 60),
+                toMinute - (long) MAX_POINTS * resolution.minutes()));
+        if (fromMinute >= toMinute) {
+            return List.of();
+        }
+
+        Map<Long, Long> clicks = clickBucketStore.findClicks(shortCode, resolution, fromMinute, toMinute);
+        MinuteRing ring = rings.get(shortCode);
+        if (ring != null) {
+            long last = Math.min(currentMinute(), toMinute - 1);
+            for (long minute = Math.max(rolledUpTo + 1, fromMinute); minute <= last; minute++) {
+                long count = ring.clicksAt(minute);
+                if (count > 0) {
+                    clicks.merge(resolution.bucketOf(minute), count, Long::sum);
+                }
+            }
+        }
+
+        List<UrlStatsResponse.Point> points = new ArrayList<>();
+        for (long bucket = fromMinute; bucket < toMinute; bucket += resolution.minutes()) {
+            points.add(new UrlStatsResponse.Point(Instant.ofEpochSecond(bucket * 60), clicks.getOrDefault(bucket, 0L)));
+        }
+        return points;
+    }
+
+    private void rollupUpTo(long upTo) {
+        rollupLock.lock();
+        try {
+            long from = rolledUpTo + 1;
+            if (upTo < from) {
+                return;
+            }
+            if (from <= upTo - RING_MINUTES) {
+                // The rings no longer hold these minutes (e.g. the database was down).
+                logger.warn("Click time series lost minutes {} to {}; they were not persisted in time.",
+                        from, upTo - RING_MINUTES);
+                from = upTo - RING_MINUTES + 1;
+            }
+
+            Map<BucketKey, Long> deltas = new HashMap<>();
+            List<Map.Entry<String, MinuteRing>> idle = new ArrayList<>();
+            for (Map.Entry<String, MinuteRing> entry : rings.entrySet()) {
+                String shortCode = entry.getKey();
+                MinuteRing ring = entry.getValue();
+                for (long minute = from; minute <= upTo; minute++) {
+                    long count = ring.clicksAt(minute);
+                    if (count == 0) {
+                        continue;
+                    }
+                    for (ClickResolution resolution : ClickResolution.values()) {
+                        deltas.merge(new BucketKey(shortCode, resolution, resolution.bucketOf(minute)), count, Long::sum);
+                    }
+                }
+                if (ring.newestMinute() <= upTo) {
+                    idle.add(entry);
+                }
+            }
+
+            if (!deltas.isEmpty()) {
+                List<ClickBucket> buckets = new ArrayList<>(deltas.size());
+                deltas.forEach((key, clicks) ->
+                        buckets.add(new ClickBucket(key.shortCode(), key.resolution(), key.startMinute(), clicks)));
+                try {
+                    clickBucketStore.incrementBuckets(buckets);
+                } catch (DataAccessException ex) {
+                    // Rolled back as a whole; the minutes stay in the rings for the next run.
+                    logger.warn("Failed to persist click buckets for minutes {} to {}, will retry.", from, upTo, ex);
+                    return;
+                }
+            }
+            rolledUpTo = upTo;
+
+            // Rings without clicks after 'upTo' are fully persisted and can go.
+            for (Map.Entry<String, MinuteRing> entry : idle) {
+                if (entry.getValue().newestMinute() <= upTo) {
+                    rings.remove(entry.getKey(), entry.getValue());
+                }
+            }
+            deleteExpiredBuckets(upTo);
+        } finally {
+            rollupLock.unlock();
+        }
+    }
+
+    private void deleteExpiredBuckets(long now) {
+        try {
+            clickBucketStore.deleteBucketsBefore(ClickResolution.MINUTE, now - minuteRetentionMinutes);
+            clickBucketStore.deleteBucketsBefore(ClickResolution.HOUR, now - hourRetentionMinutes);
+        } catch (DataAccessException ex) {
+            logger.warn("Failed to delete expired click buckets, will retry.", ex);
+        }
+    }
+
+    private void add(String shortCode, long minute, long clicks) {
+        MinuteRing ring = rings.get(shortCode);
+        if (ring == null) {
+            ring = rings.computeIfAbsent(shortCode, key -> new MinuteRing());
+        }
+        ring.add(minute, clicks);
+        if (rings.get(shortCode) != ring) {
+            // The rollup removed this ring concurrently. It only removes rings whose
+            // minutes are all persisted, so this click is not; move it to the new ring.
+            long stranded = ring.take(minute);
+            if (stranded > 0) {
+                add(shortCode, minute, stranded);
+            }
+        }
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000;
+    }
+
+    private record BucketKey(String shortCode, ClickResolution resolution, long startMinute) {
+    }
+
+    /**
+     * The clicks of one link in the last RING_MINUTES minutes.
+     */
+    private static final class MinuteRing {
+        private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+        private final AtomicLongArray slots = new AtomicLongArray(RING_MINUTES);
+
+        private void add(long minute, long clicks) {
+            int index = (int) (minute & (RING_MINUTES - 1));
+            while (true) {
+                long slot = slots.get(index);
+                long slotMinute = slot >>> 32;
+                if (slotMinute > minute) {
+                    return; // More than RING_MINUTES late; that minute is gone.
+                }
+                long next = slotMinute == minute ? slot + clicks : (minute << 32) | clicks;
+                if (slots.compareAndSet(index, slot, next)) {
+                    return;
+                }
+            }
+        }
+
+        private long clicksAt(long minute) {
+            long slot = slots.get((int) (minute & (RING_MINUTES - 1)));
+            return (slot >>> 32) == minute ? slot & COUNT_MASK : 0;
+        }
+
+        /**
+         * Removes and returns the clicks of a minute.
+         */
+        private long take(long minute) {
+            int index = (int) (minute & (RING_MINUTES - 1));
+            while (true) {
+                long slot = slots.get(index);
+                if ((slot >>> 32) != minute) {
+                    return 0;
+                }
+                if (slots.compareAndSet(index, slot, minute << 32)) {
+                    return slot & COUNT_MASK;
+                }
+            }
+        }
+
+        private long newestMinute() {
+            long newest = 0;
+            for (int i = 0; i < RING_MINUTES; i++) {
+                long slot = slots.get(i);
+                if ((slot & COUNT_MASK) > 0) {
+                    newest = Math.max(newest, slot >>> 32);
+                }
+            }
+            return newest;
+        }
+    }
+}
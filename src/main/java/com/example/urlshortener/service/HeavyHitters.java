@@ -0,0 +1,253 @@
+package com.example.urlshortener.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.dto.HeavyHittersResponse;
+import com.example.urlshortener.model.RedirectTarget;
+
+/**
+ * Finds the links that receive the most redirects and keeps them in a pinned tier.
+ *
+ * Our traffic is very skewed: a few viral links take most of the redirects. The
+ * redirect cache keeps them resident most of the time, but a burst of long-tail
+ * lookups can still evict them. Links in the pinned tier are checked before the
+ * cache and cannot be evicted by other traffic.
+ *
+ * How it works:
+ * - Every redirect is counted in a Count-Min sketch: DEPTH rows of counters, each
+ *   code incrementing one counter per row. The smallest of its counters is an
+ *   estimate that can only be too high (because of collisions), never too low.
+ * - A code whose estimate reaches the admission threshold becomes a candidate.
+ * - Every 'app.heavy-hitters.refresh-interval-ms', a heap of size K picks the K
+ *   candidates with the highest estimates. They are published as an immutable map,
+ *   the pinned tier, and the K-th count becomes the new admission threshold.
+ * - Every 'app.heavy-hitters.decay-interval-ms', all counters are halved, so a link
+ *   that stops being popular drops out of the top K again.
+ *
+ * Hot links make every thread increment the same few counters. To keep that
+ * contention down, only one in 'app.heavy-hitters.sample-rate' redirects is
+ * counted (with a weight of sample-rate).
+ */
+@Component
+public class HeavyHitters {
+
+    private static final int DEPTH = 4;
+
+    private final boolean enabled;
+    private final int topK;
+    private final long minCount;
+    private final int sampleRate;
+    private final CountMinSketch sketch;
+
+    // Codes whose estimate reached the admission threshold, with the target they resolved to.
+    private final ConcurrentHashMap<String, RedirectTarget> candidates = new ConcurrentHashMap<>();
+    private volatile long admissionThreshold;
+    private volatile Map<String, RedirectTarget> pinned = Map.of();
+    private volatile List<HeavyHittersResponse.Entry> top = List.of();
+    private final LongAdder pinnedHits = new LongAdder();
+
+    /**
+     * @param enabled     'app.heavy-hitters.enabled'
+     * @param topK        How many links are pinned ('app.heavy-hitters.top-k').
+     * @param minCount    The estimated clicks per decay window a link needs at least
+     *                    to be pinned ('app.heavy-hitters.min-count').
+     * @param sampleRate  Count one in this many redirects ('app.heavy-hitters.sample-rate').
+     * @param sketchWidth Counters per sketch row, rounded down to a power of two
+     *                    ('app.heavy-hitters.sketch-width').
+     */
+    public HeavyHitters(@Value("${app.heavy-hitters.enabled:true}") boolean enabled,
+                        @Value("${app.heavy-hitters.top-k:100}") int topK,
+                        @Value("${app.heavy-hitters.min-count:100}") long minCount,
+                        @Value("${app.heavy-hitters.sample-rate:4}") int sampleRate,
+                        @Value("${app.heavy-hitters.sketch-width:65536}") int sketchWidth) {
+        this.enabled = enabled && topK > 0;
+        this.topK = topK;
+        this.minCount = minCount;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.sketch = new CountMinSketch(sketchWidth);
+        this.admissionThreshold = minCount;
+    }
+
+    /**
+     * @return The target of a pinned link, or null if the code is not pinned.
+     */
+    public RedirectTarget pinned(String shortCode) {
+        RedirectTarget target = pinned.get(shortCode);
+        if (target != null) {
+            pinnedHits.increment();
+        }
+        return target;
+    }
+
+    /**
+     * Counts a successful redirect.
+     *
+     * @param shortCode The code that was resolved.
+     * @param target    What it resolved to; pinned if the code becomes a heavy hitter.
+     */
+    public void record(String shortCode, RedirectTarget target) {
+        if (!enabled) {
+            return;
+        }
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        long estimate = sketch.add(shortCode, sampleRate);
+        if (estimate >= admissionThreshold) {
+            candidates.putIfAbsent(shortCode, target);
+        }
+    }
+
+    /**
+     * Picks the top K candidates and publishes them as the new pinned tier.
+     */
+    @Scheduled(fixedDelayString = "${app.heavy-hitters.refresh-interval-ms:1000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // A min-heap of the best K so far: its head is the weakest of them.
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(topK + 1, Comparator.comparingLong(Candidate::count));
+        for (Map.Entry<String, RedirectTarget> entry : candidates.entrySet()) {
+            String shortCode = entry.getKey();
+            RedirectTarget target = entry.getValue();
+            long count = sketch.estimate(shortCode);
+            if (count < minCount || target.isExpiredAt(now)) {
+                candidates.remove(shortCode, target);
+                continue;
+            }
+            heap.offer(new Candidate(shortCode, target, count));
+            if (heap.size() > topK) {
+                Candidate dropped = heap.poll();
+                candidates.remove(dropped.shortCode(), dropped.target());
+            }
+        }
+        admissionThreshold = heap.size() < topK ? minCount : heap.peek().count();
+
+        List<Candidate> winners = new ArrayList<>(heap);
+        winners.sort(Comparator.comparingLong(Candidate::count).reversed());
+        Map<String, RedirectTarget> nextPinned = new HashMap<>();
+        List<HeavyHittersResponse.Entry> nextTop = new ArrayList<>(winners.size());
+        for (Candidate winner : winners) {
+            nextPinned.put(winner.shortCode(), winner.target());
+            nextTop.add(new HeavyHittersResponse.Entry(winner.shortCode(), winner.count()));
+        }
+        // Map.copyOf returns a compact, immutable open-addressing table: lookups need
+        // no locks and no volatile reads beyond the one of the 'pinned' field.
+        pinned = Map.copyOf(nextPinned);
+        top = List.copyOf(nextTop);
+    }
+
+    /**
+     * Removes links from the pinned tier and the candidates, e.g. because they were
+     * deleted. A link that is still redirected to is pinned again with the target
+     * loaded from the store.
+     */
+    public synchronized void unpin(Collection<String> shortCodes) {
+        if (!enabled) {
+            return;
+        }
+        shortCodes.forEach(candidates::remove);
+        Map<String, RedirectTarget> current = pinned;
+        if (shortCodes.stream().noneMatch(current::containsKey)) {
+            return;
+        }
+        Map<String, RedirectTarget> nextPinned = new HashMap<>(current);
+        nextPinned.keySet().removeAll(shortCodes);
+        pinned = Map.copyOf(nextPinned);
+        top = top.stream().filter(entry -> nextPinned.containsKey(entry.shortCode())).toList();
+    }
+
+    /**
+     * Empties the pinned tier and the candidates; the counts are kept.
+     */
+    public synchronized void unpinAll() {
+        candidates.clear();
+        pinned = Map.of();
+        top = List.of();
+    }
+
+    /**
+     * Halves every counter, so the estimates describe recent traffic.
+     */
+    @Scheduled(fixedDelayString = "${app.heavy-hitters.decay-interval-ms:60000}")
+    public void decay() {
+        if (enabled) {
+            sketch.halve();
+        }
+    }
+
+    /**
+     * @return The current top K links with their estimated clicks.
+     */
+    public HeavyHittersResponse stats() {
+        return new HeavyHittersResponse(topK, admissionThreshold, pinnedHits.sum(), top);
+    }
+
+    private record Candidate(String shortCode, RedirectTarget target, long count) {
+    }
+
+    /**
+     * DEPTH rows of 'width' counters in one array, safe for concurrent use.
+     */
+    private static final class CountMinSketch {
+        private final AtomicLongArray counters;
+        private final int mask;
+
+        private CountMinSketch(int width) {
+            int rowWidth = Integer.highestOneBit(Math.max(64, width));
+            this.counters = new AtomicLongArray(DEPTH * rowWidth);
+            this.mask = rowWidth - 1;
+        }
+
+        /**
+         * Adds 'amount' to the code's counters.
+         *
+         * @return The new estimate for the code.
+         */
+        private long add(String shortCode, long amount) {
+            long hash = ShortCodeHash.hash64(shortCode);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = row * (mask + 1) + ((h1 + row * h2) & mask);
+                estimate = Math.min(estimate, counters.addAndGet(index, amount));
+            }
+            return estimate;
+        }
+
+        private long estimate(String shortCode) {
+            long hash = ShortCodeHash.hash64(shortCode);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                estimate = Math.min(estimate, counters.get(row * (mask + 1) + ((h1 + row * h2) & mask)));
+            }
+            return estimate;
+        }
+
+        private void halve() {
+            for (int i = 0; i < counters.length(); i++) {
+                counters.getAndUpdate(i, count -> count >>> 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.urlshortener.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out unique UrlMapping ids without a database round trip per id.
+ *
+ * This is a hi/lo allocator: each value 'hi' read from the database sequence
+ * reserves the whole block of ids [hi * blockSize, (hi + 1) * blockSize) for this
+ * application instance. Ids inside the block are handed out with a single atomic
+ * increment, so concurrent callers do not serialise on each other. Only the thread
+ * that finds the block exhausted goes to the database for the next one.
+ *
+ * Ids left unused when the application stops are simply skipped. Every instance
+ * draws blocks from the same sequence, so ids are unique across instances.
+ *
+ * The block size may be increased between deployments, but never decreased:
+ * with a smaller block, new blocks could overlap ids that were already handed out.
+ */
+@Component
+public class IdBlockAllocator {
+
+    private final DataFieldMaxValueIncrementer idBlockSequence;
+    private final long blockSize;
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private volatile Block current = new Block(0L, 0L);
+
+    /**
+     * @param idBlockSequence The database sequence that hands out block numbers.
+     * @param blockSize       How many ids one sequence value reserves,
+     *                        configured with 'app.id-allocator.block-size'.
+     */
+    public IdBlockAllocator(DataFieldMaxValueIncrementer idBlockSequence,
+                            @Value("${app.id-allocator.block-size:1000}") long blockSize) {
+        this.idBlockSequence = idBlockSequence;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return A new id that no other caller, in this or any other instance, will receive.
+     */
+    public long nextId() {
+        while (true) {
+            Block block = current;
+            long id = block.next.getAndIncrement();
+            if (id < block.end) {
+                return id;
+            }
+            refill(block);
+        }
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            // Another thread may have fetched a new block while we were waiting for the lock.
+            if (current == exhausted) {
+                long hi = idBlockSequence.nextLongValue();
+                current = new Block(hi * blockSize, (hi + 1) * blockSize);
+            }
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    /**
+     * A reserved range of ids: 'next' is the next id to hand out, 'end' is exclusive.
+     */
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
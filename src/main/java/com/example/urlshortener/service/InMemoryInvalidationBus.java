@@ -0,0 +1,44 @@
+package com.example.urlshortener.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.model.InvalidationBatch;
+
+/**
+ * An InvalidationBus within one JVM, for a single instance, and for tests that
+ * run several NearCacheInvalidators against one bus.
+ *
+ * Batches are handed to the subscribers on the publishing thread, so none can be
+ * lost in transit. A subscriber that fails to apply a batch is resynced instead.
+ */
+@Component
+@Profile("!jdbc-invalidation")
+public class InMemoryInvalidationBus implements InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryInvalidationBus.class);
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(InvalidationBatch batch) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onBatch(batch);
+            } catch (RuntimeException ex) {
+                logger.warn("Failed to apply an invalidation batch, resyncing.", ex);
+                listener.onResync();
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+}
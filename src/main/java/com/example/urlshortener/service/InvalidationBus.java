@@ -0,0 +1,38 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.model.InvalidationBatch;
+
+/**
+ * Carries InvalidationBatches from the instance that changed a link to every
+ * instance of the service, so that none of them keeps serving a stale target from
+ * its redirect cache or rejects a new code with its Bloom filter.
+ *
+ * Implementations: InMemoryInvalidationBus (default, a single instance) and
+ * JdbcInvalidationBus (profile 'jdbc-invalidation', through a table of the primary
+ * database).
+ *
+ * Delivery is at least once, and batches may arrive in any order: both applying
+ * an invalidation and adding a code to a Bloom filter can be repeated safely.
+ * When an implementation cannot rule out that a subscriber missed a batch, it
+ * calls Listener.onResync() instead.
+ */
+public interface InvalidationBus {
+
+    interface Listener {
+
+        void onBatch(InvalidationBatch batch);
+
+        /**
+         * Batches may have been lost: everything cached from the store may be stale.
+         */
+        void onResync();
+    }
+
+    /**
+     * Sends a batch to every subscriber, on this instance and on the others.
+     * Returns once the batch is on its way; it is delivered asynchronously.
+     */
+    void publish(InvalidationBatch batch);
+
+    void subscribe(Listener listener);
+}
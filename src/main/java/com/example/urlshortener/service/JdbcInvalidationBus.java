@@ -0,0 +1,229 @@
+package com.example.urlshortener.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.urlshortener.model.InvalidationBatch;
+
+/**
+ * An InvalidationBus through the 'cache_invalidation' table of the primary
+ * database, so that several instances stay consistent without a message broker.
+ *
+ * Publishing inserts one row per short code. Every instance polls the table every
+ * 'app.invalidation.poll-interval-ms' for the rows after the last one it read and
+ * delivers them grouped by the instance that wrote them. The identity column
+ * 'version' is the version stamp of each row: it tells an instance where it left
+ * off, and which rows it has not seen.
+ *
+ * Recovering from missed rows:
+ * - Versions are handed out when a row is inserted, not when it is committed, so
+ *   a poll can see version 8 before version 7 is committed. Skipped versions are
+ *   remembered as gaps and read again on every poll for
+ *   'app.invalidation.commit-grace-ms'. After that, the version is taken to belong
+ *   to a rolled back insert.
+ * - Rows older than 'app.invalidation.retention-ms' are deleted. An instance that
+ *   has not polled for half of that time, e.g. because the database was
+ *   unreachable, may have lost rows, and so may one with more than MAX_GAPS open
+ *   gaps. It resyncs its subscribers and continues from the newest row.
+ *
+ * A new instance starts at the newest row, so the table never needs to be read
+ * from the beginning.
+ */
+@Component
+@Profile("jdbc-invalidation")
+public class JdbcInvalidationBus implements InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcInvalidationBus.class);
+
+    private static final int MAX_GAPS = 10_000;
+    private static final int GAPS_PER_QUERY = 500;
+    private static final char INVALIDATED = 'I';
+    private static final char CREATED = 'C';
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cache_invalidation (origin, kind, short_code, created_at) VALUES (?, ?, ?, ?)";
+    private static final String COLUMNS = "version, origin, kind, short_code";
+
+    private record Row(long version, String origin, char kind, String shortCode) {
+    }
+
+    private static final RowMapper<Row> ROW = (resultSet, rowNum) -> new Row(resultSet.getLong("version"),
+            resultSet.getString("origin"), resultSet.getString("kind").charAt(0), resultSet.getString("short_code"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final int pageSize;
+    private final long commitGraceNanos;
+    private final long retentionMillis;
+
+    // Only touched by poll(), which never runs concurrently with itself.
+    private long cursor = -1;
+    private final Map<Long, Long> gaps = new HashMap<>();
+    private long lastPollNanos;
+
+    /**
+     * @param pageSize         Rows read per query ('app.invalidation.batch-size').
+     * @param commitGraceMillis How long a skipped version is waited for
+     *                         ('app.invalidation.commit-grace-ms').
+     * @param retentionMillis  How long rows are kept ('app.invalidation.retention-ms').
+     */
+    public JdbcInvalidationBus(JdbcTemplate jdbcTemplate,
+                               @Value("${app.invalidation.batch-size:1000}") int pageSize,
+                               @Value("${app.invalidation.commit-grace-ms:10000}") long commitGraceMillis,
+                               @Value("${app.invalidation.retention-ms:600000}") long retentionMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pageSize = pageSize;
+        this.commitGraceNanos = TimeUnit.MILLISECONDS.toNanos(commitGraceMillis);
+        this.retentionMillis = retentionMillis;
+    }
+
+    @Override
+    @Transactional
+    public void publish(InvalidationBatch batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(ZoneOffset.UTC));
+        List<Object[]> rows = new ArrayList<>(batch.invalidated().size() + batch.created().size());
+        batch.invalidated().forEach(shortCode -> rows.add(new Object[] { batch.origin(), String.valueOf(INVALIDATED), shortCode, now }));
+        batch.created().forEach(shortCode -> rows.add(new Object[] { batch.origin(), String.valueOf(CREATED), shortCode, now }));
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Reads the rows written since the last poll, and the late commits of earlier
+     * gaps, and delivers them.
+     */
+    @Scheduled(fixedDelayString = "${app.invalidation.poll-interval-ms:500}")
+    public void poll() {
+        long now = System.nanoTime();
+        List<Row> rows = new ArrayList<>();
+        boolean resync = false;
+        try {
+            if (cursor < 0 || now - lastPollNanos > TimeUnit.MILLISECONDS.toNanos(retentionMillis / 2)) {
+                if (cursor >= 0) {
+                    logger.warn("Missed cache invalidations for more than {} ms, resyncing.", retentionMillis / 2);
+                    resync = true;
+                }
+                startAtNewestRow();
+            } else {
+                readLateCommits(now, rows);
+                if (readNewRows(now, rows)) {
+                    logger.warn("More than {} cache invalidation versions are missing, resyncing.", MAX_GAPS);
+                    resync = true;
+                }
+            }
+            lastPollNanos = now;
+        } catch (DataAccessException ex) {
+            // The rows read so far are still delivered, and the cursor stays behind
+            // them. Retried on the next poll; long enough without one resyncs.
+            logger.warn("Failed to poll for cache invalidations.", ex);
+        }
+        for (Listener listener : listeners) {
+            if (resync) {
+                listener.onResync();
+            }
+            deliver(listener, rows);
+        }
+    }
+
+    /**
+     * Deletes the rows that every instance has read long ago.
+     */
+    @Scheduled(fixedDelayString = "${app.invalidation.purge-interval-ms:60000}")
+    public void purge() {
+        jdbcTemplate.update("DELETE FROM cache_invalidation WHERE created_at < ?",
+                Timestamp.valueOf(LocalDateTime.now(ZoneOffset.UTC).minusNanos(retentionMillis * 1_000_000)));
+    }
+
+    private void startAtNewestRow() {
+        Long newest = jdbcTemplate.queryForObject("SELECT MAX(version) FROM cache_invalidation", Long.class);
+        cursor = newest == null ? 0 : newest;
+        gaps.clear();
+    }
+
+    /**
+     * Adds the rows of gaps that have been committed since the last poll to 'rows'.
+     */
+    private void readLateCommits(long now, List<Row> rows) {
+        gaps.values().removeIf(noticedAt -> now - noticedAt > commitGraceNanos);
+        List<Long> versions = new ArrayList<>(gaps.keySet());
+        for (int from = 0; from < versions.size(); from += GAPS_PER_QUERY) {
+            List<Long> chunk = versions.subList(from, Math.min(from + GAPS_PER_QUERY, versions.size()));
+            for (Row row : jdbcTemplate.query("SELECT " + COLUMNS + " FROM cache_invalidation WHERE version IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")", ROW, chunk.toArray())) {
+                gaps.remove(row.version());
+                rows.add(row);
+            }
+        }
+    }
+
+    /**
+     * Adds the rows after the cursor to 'rows' and moves the cursor past them.
+     *
+     * @return true if there were too many gaps to keep track of.
+     */
+    private boolean readNewRows(long now, List<Row> rows) {
+        boolean overflow = false;
+        while (true) {
+            List<Row> page = jdbcTemplate.query("SELECT " + COLUMNS + " FROM cache_invalidation "
+                    + "WHERE version > ? ORDER BY version LIMIT ?", ROW, cursor, pageSize);
+            for (Row row : page) {
+                if (row.version() - cursor - 1 > MAX_GAPS - gaps.size()) {
+                    overflow = true;
+                    gaps.clear();
+                } else {
+                    for (long version = cursor + 1; version < row.version(); version++) {
+                        gaps.put(version, now);
+                    }
+                }
+                cursor = row.version();
+                rows.add(row);
+            }
+            if (page.size() < pageSize) {
+                return overflow;
+            }
+        }
+    }
+
+    private static void deliver(Listener listener, List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Map<String, InvalidationBatch> batches = new LinkedHashMap<>();
+        for (Row row : rows) {
+            InvalidationBatch batch = batches.computeIfAbsent(row.origin(),
+                    origin -> new InvalidationBatch(origin, new ArrayList<>(), new ArrayList<>()));
+            (row.kind() == CREATED ? batch.created() : batch.invalidated()).add(row.shortCode());
+        }
+        try {
+            batches.values().forEach(listener::onBatch);
+        } catch (RuntimeException ex) {
+            // The rows will not be read again.
+            logger.warn("Failed to apply cache invalidations, resyncing.", ex);
+            listener.onResync();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.urlshortener.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.model.InvalidationBatch;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the in-process caches of all instances consistent with the store.
+ *
+ * Every instance caches redirect targets (RedirectCache and the pinned tier of
+ * HeavyHitters) and the set of known codes (ShortCodeBloomFilter). When a link
+ * changes on one instance, e.g. CleanupService deletes it, the change is applied
+ * to the local caches at once and collected for the other instances. Every
+ * 'app.invalidation.flush-interval-ms', the collected codes are published on the
+ * InvalidationBus in batches of up to 'app.invalidation.batch-size' codes, so a
+ * cleanup run that deletes a million links sends a few hundred messages, not a
+ * million.
+ *
+ * New codes are sent the same way. Without that, an instance whose Bloom filter
+ * was built before a link was created elsewhere would answer 404 for it until
+ * the next rebuild (with 'app.bloom.reject-unknown-codes'), or until the miss it
+ * remembered expires.
+ *
+ * When the bus reports that batches may have been lost, everything that could be
+ * stale is dropped: the redirect cache and the pinned tier are cleared, and the
+ * Bloom filter is rebuilt from the store.
+ */
+@Component
+public class NearCacheInvalidator implements InvalidationBus.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearCacheInvalidator.class);
+
+    // Identifies this instance's batches, which it has already applied.
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final InvalidationBus invalidationBus;
+    private final RedirectCache redirectCache;
+    private final HeavyHitters heavyHitters;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final ShortenerMetrics metrics;
+    private final int batchSize;
+
+    // Codes waiting for the next flush. Sets, so a code changed twice is sent once.
+    private final Set<String> pendingInvalidated = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingCreated = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param batchSize Codes per published batch ('app.invalidation.batch-size').
+     */
+    public NearCacheInvalidator(InvalidationBus invalidationBus, RedirectCache redirectCache,
+                                HeavyHitters heavyHitters, ShortCodeBloomFilter shortCodeBloomFilter,
+                                ShortenerMetrics metrics,
+                                @Value("${app.invalidation.batch-size:1000}") int batchSize) {
+        this.invalidationBus = invalidationBus;
+        this.redirectCache = redirectCache;
+        this.heavyHitters = heavyHitters;
+        this.shortCodeBloomFilter = shortCodeBloomFilter;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        invalidationBus.subscribe(this);
+    }
+
+    /**
+     * Drops the cached targets of the codes on this instance, and on the others
+     * with the next flush.
+     */
+    public void invalidate(Collection<String> shortCodes) {
+        evict(shortCodes);
+        pendingInvalidated.addAll(shortCodes);
+    }
+
+    /**
+     * Announces a new code to the other instances with the next flush. The caller
+     * has already added it to the local Bloom filter.
+     */
+    public void announceCreated(String shortCode) {
+        pendingCreated.add(shortCode);
+    }
+
+    /**
+     * Publishes the codes collected since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${app.invalidation.flush-interval-ms:100}")
+    public void flush() {
+        while (true) {
+            List<String> invalidated = drain(pendingInvalidated, batchSize);
+            List<String> created = drain(pendingCreated, batchSize - invalidated.size());
+            InvalidationBatch batch = new InvalidationBatch(instanceId, invalidated, created);
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                invalidationBus.publish(batch);
+            } catch (RuntimeException ex) {
+                // Kept for the next flush.
+                pendingInvalidated.addAll(invalidated);
+                pendingCreated.addAll(created);
+                logger.warn("Failed to publish {} cache invalidations, retrying with the next flush.",
+                        invalidated.size() + created.size(), ex);
+                return;
+            }
+            metrics.invalidationsSent(invalidated.size() + created.size());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    @Override
+    public void onBatch(InvalidationBatch batch) {
+        if (batch.origin().equals(instanceId)) {
+            return;
+        }
+        evict(batch.invalidated());
+        batch.created().forEach(shortCodeBloomFilter::put);
+        // A request may have found the new code missing before it was inserted.
+        batch.created().forEach(redirectCache::invalidate);
+        metrics.invalidationsReceived(batch.invalidated().size() + batch.created().size());
+    }
+
+    @Override
+    public void onResync() {
+        redirectCache.invalidateAll();
+        heavyHitters.unpinAll();
+        shortCodeBloomFilter.rebuild();
+        metrics.invalidationResync();
+    }
+
+    private void evict(Collection<String> shortCodes) {
+        shortCodes.forEach(redirectCache::invalidate);
+        heavyHitters.unpin(shortCodes);
+    }
+
+    private static List<String> drain(Set<String> pending, int limit) {
+        List<String> drained = new ArrayList<>(Math.min(limit, pending.size()));
+        Iterator<String> codes = pending.iterator();
+        while (drained.size() < limit && codes.hasNext()) {
+            drained.add(codes.next());
+            codes.remove();
+        }
+        return drained;
+    }
+}
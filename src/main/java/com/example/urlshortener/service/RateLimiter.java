@@ -0,0 +1,115 @@
+package com.example.urlshortener.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.metrics.ShortenerMetrics.RateLimitedEndpoint;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * A token bucket per client and endpoint, limiting how fast one client may create
+ * links. Checked by RateLimitFilter before the request reaches a controller.
+ *
+ * Each bucket holds 'burst' tokens and refills at 'requests-per-minute'. Instead
+ * of a token count and a refill timestamp, which would have to be updated
+ * together under a lock, a bucket is a single AtomicLong: the time at which it
+ * will be full again (the "generic cell rate algorithm", which admits exactly the
+ * same requests). A request is admitted if that time is at most 'burst' intervals
+ * ahead, and moves it one interval further with a compareAndSet. Concurrent
+ * requests of the same client retry the CAS; no thread ever blocks.
+ *
+ * The buckets live in one Caffeine cache per endpoint. A bucket that has not been
+ * used for as long as it takes to refill completely is full again, so it expires
+ * and is dropped without changing any decision. 'app.rate-limit.max-clients'
+ * bounds the memory when many clients appear at once; an evicted bucket starts
+ * over full.
+ *
+ * An admitted request does one cache lookup and one CAS, and allocates nothing
+ * once its client's bucket exists.
+ */
+@Component
+public class RateLimiter {
+
+    private static final class Limit {
+
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Cache<String, AtomicLong> buckets;
+
+        private Limit(double requestsPerMinute, int burst, long maxClients) {
+            this.intervalNanos = (long) (60_000_000_000L / requestsPerMinute);
+            this.burstNanos = intervalNanos * Math.max(burst, 1);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxClients)
+                    .expireAfterAccess(Duration.ofNanos(burstNanos))
+                    .build();
+        }
+    }
+
+    // Bucket times are taken relative to this, so that a new bucket (0) is full.
+    private final long origin = System.nanoTime();
+    private final Function<String, AtomicLong> newBucket = client -> new AtomicLong();
+    private final Limit[] limits = new Limit[RateLimitedEndpoint.values().length];
+
+    /**
+     * The rate and burst of each endpoint are set with
+     * 'app.rate-limit.<endpoint>.requests-per-minute' and '.burst'; a rate of 0
+     * turns its limit off.
+     *
+     * @param enabled    Whether any limit applies ('app.rate-limit.enabled').
+     * @param maxClients Buckets kept per endpoint ('app.rate-limit.max-clients').
+     */
+    public RateLimiter(@Value("${app.rate-limit.enabled:true}") boolean enabled,
+                       @Value("${app.rate-limit.max-clients:100000}") long maxClients,
+                       @Value("${app.rate-limit.shorten.requests-per-minute:120}") double shortenRate,
+                       @Value("${app.rate-limit.shorten.burst:20}") int shortenBurst,
+                       @Value("${app.rate-limit.shorten-batch.requests-per-minute:10}") double shortenBatchRate,
+                       @Value("${app.rate-limit.shorten-batch.burst:2}") int shortenBatchBurst,
+                       @Value("${app.rate-limit.shorten-web.requests-per-minute:30}") double shortenWebRate,
+                       @Value("${app.rate-limit.shorten-web.burst:10}") int shortenWebBurst) {
+        if (enabled) {
+            limits[RateLimitedEndpoint.SHORTEN.ordinal()] = limit(shortenRate, shortenBurst, maxClients);
+            limits[RateLimitedEndpoint.SHORTEN_BATCH.ordinal()] = limit(shortenBatchRate, shortenBatchBurst, maxClients);
+            limits[RateLimitedEndpoint.SHORTEN_WEB.ordinal()] = limit(shortenWebRate, shortenWebBurst, maxClients);
+        }
+    }
+
+    private static Limit limit(double requestsPerMinute, int burst, long maxClients) {
+        return requestsPerMinute > 0 ? new Limit(requestsPerMinute, burst, maxClients) : null;
+    }
+
+    /**
+     * Takes a token from the client's bucket for the endpoint, if it has one.
+     *
+     * @param client The IP address or API key of the client.
+     * @return 0 if the request is admitted, otherwise the nanoseconds until the
+     *         client's next request would be.
+     */
+    public long tryAcquire(RateLimitedEndpoint endpoint, String client) {
+        Limit limit = limits[endpoint.ordinal()];
+        if (limit == null) {
+            return 0;
+        }
+        AtomicLong bucket = limit.buckets.getIfPresent(client);
+        if (bucket == null) {
+            bucket = limit.buckets.get(client, newBucket);
+        }
+        long now = System.nanoTime() - origin;
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + limit.intervalNanos;
+            long waitNanos = next - now - limit.burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+}
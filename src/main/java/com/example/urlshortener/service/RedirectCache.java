@@ -0,0 +1,169 @@
+package com.example.urlshortener.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.dto.CacheStatsResponse;
+import com.example.urlshortener.model.HotLink;
+import com.example.urlshortener.model.RedirectTarget;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * A bounded, concurrent read-through cache of shortCode -> RedirectTarget that
+ * sits in front of the database on the redirect path.
+ *
+ * The cache is backed by Caffeine, whose W-TinyLFU policy admits new entries
+ * only when they are likely to be used more often than the entry they would
+ * evict. A burst of one-off lookups therefore cannot flush the popular links.
+ *
+ * Each entry lives until the expirationDate of its link, so an expired link
+ * drops out of the cache at the same moment it stops being valid and is later
+ * removed from the database by the CleanupService.
+ *
+ * Short codes the database does not have are remembered as well, for
+ * 'app.redirect-cache.negative-ttl-ms', so repeated requests for an unknown code
+ * do not query the database each time. The TTL bounds how long a code created on
+ * another instance can still be answered with 404 here.
+ */
+@Component
+public class RedirectCache {
+
+    private final Cache<String, RedirectTarget> cache;
+    private final Cache<String, Boolean> missing;
+
+    /**
+     * @param maximumSize       The maximum number of short codes to keep in memory,
+     *                          configured with 'app.redirect-cache.maximum-size'.
+     * @param negativeTtlMillis How long an unknown short code is remembered
+     *                          ('app.redirect-cache.negative-ttl-ms'); 0 disables it.
+     */
+    public RedirectCache(@Value("${app.redirect-cache.maximum-size:100000}") long maximumSize,
+                         @Value("${app.redirect-cache.negative-ttl-ms:5000}") long negativeTtlMillis) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new LinkExpiry())
+                .recordStats()
+                .build();
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(negativeTtlMillis > 0 ? maximumSize : 0)
+                .expireAfterWrite(Duration.ofMillis(negativeTtlMillis))
+                .build();
+    }
+
+    /**
+     * @return The cached target for the short code, or null on a miss.
+     */
+    public RedirectTarget getIfPresent(String shortCode) {
+        return cache.getIfPresent(shortCode);
+    }
+
+    /**
+     * Caches the target of a short code after it was loaded from the database.
+     *
+     * Loading happens outside the cache on purpose. Caffeine's get(key, loader)
+     * runs the loader inside ConcurrentHashMap.compute(), which holds a
+     * 'synchronized' bin lock for the duration of the database query. That blocks
+     * unrelated keys in the same bin and pins the carrier thread when requests run
+     * on virtual threads.
+     */
+    public void put(String shortCode, RedirectTarget target) {
+        cache.put(shortCode, target);
+    }
+
+    /**
+     * @return true if the database recently did not have the short code.
+     */
+    public boolean isKnownMissing(String shortCode) {
+        return missing.getIfPresent(shortCode) != null;
+    }
+
+    /**
+     * Remembers that the database does not have the short code.
+     */
+    public void putMissing(String shortCode) {
+        missing.put(shortCode, Boolean.TRUE);
+    }
+
+    /**
+     * Removes a short code from the cache, e.g. after its mapping was deleted or
+     * created.
+     */
+    public void invalidate(String shortCode) {
+        cache.invalidate(shortCode);
+        missing.invalidate(shortCode);
+    }
+
+    /**
+     * Empties the cache, e.g. when invalidations from other instances may have been lost.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        missing.invalidateAll();
+    }
+
+    /**
+     * @return Up to 'limit' cached links, the ones Caffeine considers most likely to
+     *         be used again first, e.g. for the CacheWarmer's snapshot.
+     */
+    public List<HotLink> hottest(int limit) {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.hottest(limit))
+                .orElseGet(Map::of)
+                .entrySet().stream()
+                .map(entry -> new HotLink(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * @return A snapshot of the hit, miss and eviction counters, used to size the cache.
+     */
+    public CacheStatsResponse stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsResponse(
+                cache.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                stats.hitRate());
+    }
+
+    /**
+     * Expires a cache entry exactly when the link it describes expires.
+     * Permanent links (no expirationDate) are only removed by size-based eviction.
+     */
+    private static final class LinkExpiry implements Expiry<String, RedirectTarget> {
+
+        private static final Duration MAX_EXPIRY = Duration.ofNanos(Long.MAX_VALUE);
+
+        @Override
+        public long expireAfterCreate(String key, RedirectTarget value, long currentTime) {
+            if (value.expirationDate() == null) {
+                return Long.MAX_VALUE;
+            }
+            Duration remaining = Duration.between(LocalDateTime.now(), value.expirationDate());
+            if (remaining.isNegative()) {
+                return 0L;
+            }
+            // toNanos() overflows beyond about 292 years; such a link never expires from the cache.
+            return remaining.compareTo(MAX_EXPIRY) >= 0 ? Long.MAX_VALUE : remaining.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, RedirectTarget value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, RedirectTarget value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
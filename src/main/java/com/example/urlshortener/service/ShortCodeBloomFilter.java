@@ -0,0 +1,251 @@
+package com.example.urlshortener.service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.urlshortener.dto.BloomFilterStatsResponse;
+import com.example.urlshortener.repository.UrlMappingStore;
+
+/**
+ * An in-memory Bloom filter of every short code in the database.
+ *
+ * A Bloom filter answers "is this code in the set?" with either "definitely not"
+ * or "maybe". Definite negatives let the shorten path accept a fresh custom alias
+ * without querying the database; the unique constraint still catches an alias
+ * that another instance took in the meantime. A "maybe" still goes to the
+ * database, so a false positive only costs the query we would have made anyway.
+ *
+ * On the redirect path, a negative is only final with 'app.bloom.reject-unknown-codes'.
+ * Codes created on another instance reach this filter through the
+ * NearCacheInvalidator, and only if the instances share an InvalidationBus such as
+ * the JdbcInvalidationBus. Without the option, the database is asked anyway and
+ * the RedirectCache remembers the miss.
+ *
+ * Lifecycle:
+ * - The filter is built by streaming all short codes from the table, right after
+ *   startup and then every 'app.bloom.rebuild-interval-ms'. Until the first build
+ *   has finished, every code is reported as "maybe".
+ * - New codes are added before they are inserted, so a code that is visible in the
+ *   database is always in the filter.
+ * - Codes cannot be removed from a Bloom filter. Deleted codes stay in it as false
+ *   positives until the next rebuild, which CleanupService triggers after deleting.
+ *
+ * Sizing: each build sizes the filter for twice the current number of rows (at
+ * least 'app.bloom.expected-insertions') at the configured false-positive rate,
+ * so the filter grows with the table.
+ */
+@Component
+public class ShortCodeBloomFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShortCodeBloomFilter.class);
+
+    // Codes created shortly before a rebuild may commit after the rebuild's snapshot.
+    // They are picked up by a second pass over the rows created in this window.
+    private static final long RECENT_ROWS_WINDOW_MINUTES = 5;
+
+    private final UrlMappingStore urlMappingStore;
+    private final boolean enabled;
+    private final boolean rejectUnknownCodes;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Bits current;
+    private volatile Bits rebuilding;
+    private volatile LocalDateTime lastRebuild;
+
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder positives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public ShortCodeBloomFilter(UrlMappingStore urlMappingStore,
+                                @Value("${app.bloom.enabled:true}") boolean enabled,
+                                @Value("${app.bloom.reject-unknown-codes:false}") boolean rejectUnknownCodes,
+                                @Value("${app.bloom.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${app.bloom.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.urlMappingStore = urlMappingStore;
+        this.enabled = enabled;
+        this.rejectUnknownCodes = rejectUnknownCodes;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * @return false only if the short code is definitely not in the database.
+     */
+    public boolean mightContain(String shortCode) {
+        Bits bits = current;
+        if (bits == null) {
+            return true;
+        }
+        if (bits.mightContain(shortCode)) {
+            positives.increment();
+            return true;
+        }
+        negatives.increment();
+        return false;
+    }
+
+    /**
+     * Adds a short code. Must be called before the code is inserted into the database.
+     */
+    public void put(String shortCode) {
+        // Read 'rebuilding' before 'current': rebuild() publishes the new filter as
+        // 'current' before clearing 'rebuilding', so the code always reaches it.
+        Bits next = rebuilding;
+        if (next != null) {
+            next.put(shortCode);
+        }
+        Bits bits = current;
+        if (bits != null && bits != next) {
+            bits.put(shortCode);
+        }
+    }
+
+    /**
+     * @return true if a redirect for the short code may be answered with 404
+     *         without a query: the code is definitely not in the database and
+     *         'app.bloom.reject-unknown-codes' is on.
+     */
+    public boolean rejects(String shortCode) {
+        return !mightContain(shortCode) && rejectUnknownCodes;
+    }
+
+    /**
+     * Records that the database did not have a short code. That is a false
+     * positive if the filter answers "maybe" for it.
+     */
+    public void recordStoreMiss(String shortCode) {
+        Bits bits = current;
+        if (bits != null && bits.mightContain(shortCode)) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Rebuilds the filter from the database: once right after startup, then periodically.
+     * If a rebuild is already running, this call does nothing.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.bloom.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!enabled || !rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            LocalDateTime startedAt = LocalDateTime.now();
+            long rows = urlMappingStore.count();
+            Bits fresh = new Bits(Math.max(expectedInsertions, rows * 2), falsePositiveRate);
+
+            // From now on, new codes go into both the current and the new filter.
+            rebuilding = fresh;
+            urlMappingStore.forEachShortCode(fresh::put);
+            current = fresh;
+            rebuilding = null;
+            urlMappingStore.forEachShortCodeCreatedSince(
+                    startedAt.minusMinutes(RECENT_ROWS_WINDOW_MINUTES), fresh::put);
+
+            lastRebuild = LocalDateTime.now();
+            logger.info("Rebuilt short code Bloom filter with {} codes ({} bits, {} hash functions) in {} ms.",
+                    fresh.insertions.sum(), fresh.bitCount, fresh.hashFunctions,
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException ex) {
+            // Keep serving with the previous filter; a half-built one must never be used.
+            rebuilding = null;
+            logger.error("Failed to rebuild the short code Bloom filter.", ex);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * @return The configuration, the estimated and the observed false-positive rate.
+     */
+    public BloomFilterStatsResponse stats() {
+        Bits bits = current;
+        long falsePositiveCount = falsePositives.sum();
+        long negativeCount = negatives.sum();
+        long unknownCodes = falsePositiveCount + negativeCount;
+        return new BloomFilterStatsResponse(
+                bits != null,
+                falsePositiveRate,
+                bits == null ? 0 : bits.bitCount,
+                bits == null ? 0 : bits.hashFunctions,
+                bits == null ? 0 : bits.insertions.sum(),
+                bits == null ? 1.0 : bits.estimatedFalsePositiveRate(),
+                unknownCodes == 0 ? 0.0 : (double) falsePositiveCount / unknownCodes,
+                negativeCount,
+                positives.sum(),
+                falsePositiveCount,
+                lastRebuild);
+    }
+
+    /**
+     * The bit array of one filter generation, safe for concurrent use. Bits are only
+     * ever set, with a CAS per word, so readers never need a lock.
+     */
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashFunctions;
+        private final LongAdder insertions = new LongAdder();
+
+        private Bits(long expectedInsertions, double falsePositiveRate) {
+            // Standard Bloom filter sizing: m = -n ln(p) / ln(2)^2 and k = m / n * ln(2).
+            long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = wordCount * 64L;
+            this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        }
+
+        private void put(String shortCode) {
+            long hash = ShortCodeHash.hash64(shortCode);
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word = words.get(index);
+                while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                    word = words.get(index);
+                }
+            }
+            insertions.increment();
+        }
+
+        private boolean mightContain(String shortCode) {
+            long hash = ShortCodeHash.hash64(shortCode);
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return (fraction of bits set) ^ k, the probability that an unknown code
+         *         finds all of its k bits set.
+         */
+        private double estimatedFalsePositiveRate() {
+            long set = 0;
+            for (int i = 0; i < words.length(); i++) {
+                set += Long.bitCount(words.get(i));
+            }
+            return Math.pow((double) set / bitCount, hashFunctions);
+        }
+    }
+}
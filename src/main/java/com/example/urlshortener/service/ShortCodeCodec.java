@@ -0,0 +1,125 @@
+package com.example.urlshortener.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Converts between UrlMapping ids and the base-62 short codes generated from
+ * them ("0"-"9", "a"-"z", "A"-"Z", most significant digit first).
+ *
+ * The conversion is a bijection between the non-negative longs and the canonical
+ * codes, those without a leading "0" (except "0" itself), so a generated code can
+ * be resolved through the primary key instead of the index on short_code.
+ *
+ * The hot paths do not allocate: encode(id, buffer, offset) writes into a buffer
+ * the caller reuses, and decode reads the characters through a 128-entry lookup
+ * table, rejecting anything that is not a canonical code in a single pass.
+ * encode(id) allocates the code's bytes and the String, instead of the
+ * StringBuilder, the reversal and the copies of the former encoder.
+ */
+public final class ShortCodeCodec {
+
+    /**
+     * The length of the code of Long.MAX_VALUE, and so of the longest code.
+     */
+    public static final int MAX_LENGTH = 11;
+
+    /**
+     * What decode returns for anything that is not the code of an id.
+     */
+    public static final long INVALID = -1;
+
+    private static final byte[] DIGITS =
+            "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".getBytes(StandardCharsets.US_ASCII);
+
+    // The value of each ASCII character, or -1 if it is not a digit.
+    private static final byte[] VALUES = new byte[128];
+
+    // POWERS[i] = 62^i; a code of length n encodes the ids in [62^(n-1), 62^n).
+    private static final long[] POWERS = new long[MAX_LENGTH];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+        POWERS[0] = 1;
+        for (int i = 1; i < MAX_LENGTH; i++) {
+            POWERS[i] = POWERS[i - 1] * 62;
+        }
+    }
+
+    private ShortCodeCodec() {
+    }
+
+    /**
+     * @return The number of characters in the code of the id.
+     */
+    public static int encodedLength(long id) {
+        requireNonNegative(id);
+        int length = 1;
+        while (length < MAX_LENGTH && id >= POWERS[length]) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Writes the code of the id into the buffer as ASCII, without allocating.
+     *
+     * @param buffer Needs room for encodedLength(id) bytes, at most MAX_LENGTH, after 'offset'.
+     * @return The offset after the last byte written.
+     */
+    public static int encode(long id, byte[] buffer, int offset) {
+        int end = offset + encodedLength(id);
+        long remaining = id;
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = DIGITS[(int) (remaining % 62)];
+            remaining /= 62;
+        }
+        return end;
+    }
+
+    /**
+     * @return The code of the id.
+     */
+    public static String encode(long id) {
+        byte[] buffer = new byte[encodedLength(id)];
+        encode(id, buffer, 0);
+        // Compact strings store ASCII as one byte per character, like the buffer.
+        return new String(buffer, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @return The id the code was generated from, or INVALID if it is not a
+     *         canonical code, e.g. a custom alias with other characters or one that
+     *         is too long.
+     */
+    public static long decode(CharSequence code) {
+        int length = code.length();
+        if (length == 0 || length > MAX_LENGTH || (length > 1 && code.charAt(0) == '0')) {
+            return INVALID;
+        }
+        // Only an 11-character code can exceed Long.MAX_VALUE.
+        boolean mayOverflow = length == MAX_LENGTH;
+        long id = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            int value = c < VALUES.length ? VALUES[c] : -1;
+            if (value < 0) {
+                return INVALID;
+            }
+            if (mayOverflow && id > (Long.MAX_VALUE - value) / 62) {
+                return INVALID;
+            }
+            id = id * 62 + value;
+        }
+        return id;
+    }
+
+    private static void requireNonNegative(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Ids are not negative: " + id);
+        }
+    }
+}
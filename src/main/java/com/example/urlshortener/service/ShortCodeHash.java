@@ -0,0 +1,29 @@
+package com.example.urlshortener.service;
+
+/**
+ * The 64-bit hash of a short code shared by the probabilistic structures
+ * (ShortCodeBloomFilter, HeavyHitters) and the embedded store's hash index.
+ */
+public final class ShortCodeHash {
+
+    private ShortCodeHash() {
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the characters, finished with the MurmurHash3
+     * mixer so that similar codes ("abc1", "abc2") spread over the whole range.
+     */
+    public static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.urlshortener.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent loads of the same key into one.
+ *
+ * The first caller for a key (the leader) runs the loader; callers that arrive
+ * while it is running wait for its result instead of running their own. Once the
+ * load completes, the key is removed, so nothing is cached here: the next call
+ * loads again. In particular a failed load is reported to the callers that
+ * waited for it and then forgotten.
+ *
+ * A waiting caller gives up after 'timeout' and runs the loader itself, so a slow
+ * or stuck leader delays the others by at most that long.
+ *
+ * Registering a load is a ConcurrentHashMap.putIfAbsent, not a compute(), so the
+ * map's bin lock is only held for the insert and never while the loader runs.
+ *
+ * @param <K> The key, e.g. a short code.
+ * @param <V> The loaded value. The loader may return null.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final long timeoutNanos;
+
+    public SingleFlight(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * @return The value loaded by this call or by the concurrent call it joined.
+     * @throws RuntimeException the exception of the loader, also to the callers
+     *                          that waited for it.
+     */
+    public V execute(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, load);
+        if (running != null) {
+            return await(key, running, loader);
+        }
+        try {
+            V value = loader.apply(key);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * @return The number of loads currently running.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return The number of calls that joined a running load and have not returned
+     *         yet. A joined call gets that load's result even if it completes
+     *         before the call starts waiting for it.
+     */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    private V await(K key, CompletableFuture<V> running, Function<? super K, ? extends V> loader) {
+        waiting.incrementAndGet();
+        try {
+            return running.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            return loader.apply(key);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the load of " + key, ex);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.urlshortener.service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.model.RedirectPolicy;
+import com.example.urlshortener.repository.UrlMappingStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Returns the existing short code when the same long URL is shortened again
+ * (opt-in with 'app.dedup.enabled').
+ *
+ * The original URL is a @Lob and cannot be indexed, so each shareable mapping
+ * also stores the SHA-256 of its normalised URL in the indexed 'url_hash' column.
+ * A repeat request is answered from an in-process cache of hash -> short code,
+ * or with one index lookup on a cache miss.
+ *
+ * Only mappings without a custom alias, an expiration or a redirect policy of
+ * their own are shared: the owner of an alias chose that code, an expiring link
+ * must not cut short a permanent link of someone else, and a link's redirect
+ * policy must not change the caching of someone else's clicks. Such mappings never expire, so a cached code
+ * never points to a deleted link.
+ *
+ * Two concurrent requests for a new URL may still both insert a mapping; the
+ * column is not unique, and later requests reuse the oldest one.
+ */
+@Component
+public class UrlDeduplicator {
+
+    private final UrlMappingStore urlMappingStore;
+    private final ShortenerMetrics metrics;
+    private final boolean enabled;
+    private final Cache<String, String> shortCodes;
+
+    /**
+     * @param enabled   Whether repeat URLs share a short code ('app.dedup.enabled').
+     * @param cacheSize The number of hash -> short code entries kept in memory
+     *                  ('app.dedup.cache-size').
+     */
+    public UrlDeduplicator(UrlMappingStore urlMappingStore, ShortenerMetrics metrics,
+                           @Value("${app.dedup.enabled:false}") boolean enabled,
+                           @Value("${app.dedup.cache-size:100000}") long cacheSize) {
+        this.urlMappingStore = urlMappingStore;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.shortCodes = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    /**
+     * @return The hash under which the new mapping can be shared, or null if
+     *         deduplication is off or the mapping must not be shared.
+     */
+    public String shareableHash(String originalUrl, String customAlias, Integer hoursToExpire,
+                                RedirectPolicy redirectPolicy) {
+        if (!enabled || StringUtils.hasText(customAlias) || hoursToExpire != null || redirectPolicy != null) {
+            return null;
+        }
+        return hash(normalise(originalUrl));
+    }
+
+    /**
+     * @return The short code of an existing mapping with this hash, or null.
+     */
+    public String findShortCode(String urlHash) {
+        String shortCode = shortCodes.getIfPresent(urlHash);
+        if (shortCode == null) {
+            shortCode = urlMappingStore.findShortCodeByUrlHash(urlHash).orElse(null);
+            if (shortCode != null) {
+                shortCodes.put(urlHash, shortCode);
+            }
+        }
+        if (shortCode != null) {
+            metrics.shortenDeduplicated();
+        }
+        return shortCode;
+    }
+
+    /**
+     * Caches the short code of a mapping that was just stored with this hash.
+     */
+    public void remember(String urlHash, String shortCode) {
+        shortCodes.asMap().putIfAbsent(urlHash, shortCode);
+    }
+
+    /**
+     * Makes equivalent spellings of a URL hash alike: the scheme and host are
+     * lower-cased, a default port is dropped and an empty path becomes "/". The
+     * path, query and fragment are case-sensitive and kept as they are.
+     */
+    static String normalise(String url) {
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return trimmed;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+                port = -1;
+            }
+            StringBuilder normalised = new StringBuilder(trimmed.length()).append(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                normalised.append(uri.getRawUserInfo()).append('@');
+            }
+            normalised.append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (port != -1) {
+                normalised.append(':').append(port);
+            }
+            String path = uri.getRawPath();
+            normalised.append(path == null || path.isEmpty() ? "/" : path);
+            if (uri.getRawQuery() != null) {
+                normalised.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                normalised.append('#').append(uri.getRawFragment());
+            }
+            return normalised.toString();
+        } catch (URISyntaxException ex) {
+            return trimmed;
+        }
+    }
+
+    private static String hash(String normalisedUrl) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(normalisedUrl.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex); // Every JVM must provide it.
+        }
+    }
+}
@@ -1,30 +1,64 @@
 
 package com.example.urlshortener.service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import com.example.urlshortener.dto.UrlStatsResponse;
 import com.example.urlshortener.exception.AliasAlreadyExistsException;
 import com.example.urlshortener.exception.UrlNotFoundException;
+import com.example.urlshortener.model.ClickResolution;
+import com.example.urlshortener.model.RedirectPolicy;
+import com.example.urlshortener.model.RedirectTarget;
 import com.example.urlshortener.model.UrlMapping;
-import com.example.urlshortener.repository.UrlMappingRepository;
-
-import jakarta.transaction.Transactional;
+import com.example.urlshortener.repository.UrlMappingStore;
 
 
 @Service 
 public class UrlShortenerService {
+
+    // Custom aliases and generated codes share one namespace, e.g. the alias 'b' is
+    // also the code of id 1. A generated code that is taken is replaced this often.
+    public static final int MAX_GENERATED_CODE_ATTEMPTS = 3;
     
-    private final UrlMappingRepository urlMappingRepository;
-    private static final String BASE62_CHARS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    public UrlShortenerService(UrlMappingRepository urlMappingRepository) {
-        this.urlMappingRepository = urlMappingRepository;
+    private final UrlMappingStore urlMappingStore;
+    private final RedirectCache redirectCache;
+    private final ClickCounter clickCounter;
+    private final IdBlockAllocator idBlockAllocator;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final HeavyHitters heavyHitters;
+    private final ClickTimeSeries clickTimeSeries;
+    private final ClickEventLog clickEventLog;
+    private final UrlDeduplicator urlDeduplicator;
+    private final NearCacheInvalidator nearCacheInvalidator;
+    // Concurrent cache misses for the same short code share one store lookup.
+    private final SingleFlight<String, RedirectTarget> redirectLoads;
+    public UrlShortenerService(UrlMappingStore urlMappingStore, RedirectCache redirectCache,
+                               ClickCounter clickCounter, IdBlockAllocator idBlockAllocator,
+                               ShortCodeBloomFilter shortCodeBloomFilter, HeavyHitters heavyHitters,
+                               ClickTimeSeries clickTimeSeries, ClickEventLog clickEventLog,
+                               UrlDeduplicator urlDeduplicator, NearCacheInvalidator nearCacheInvalidator,
+                               @Value("${app.redirect.coalescing-timeout-ms:1000}") long coalescingTimeoutMillis) {
+        this.urlMappingStore = urlMappingStore;
+        this.redirectCache = redirectCache;
+        this.clickCounter = clickCounter;
+        this.idBlockAllocator = idBlockAllocator;
+        this.shortCodeBloomFilter = shortCodeBloomFilter;
+        this.heavyHitters = heavyHitters;
+        this.clickTimeSeries = clickTimeSeries;
+        this.clickEventLog = clickEventLog;
+        this.urlDeduplicator = urlDeduplicator;
+        this.nearCacheInvalidator = nearCacheInvalidator;
+        this.redirectLoads = new SingleFlight<>(coalescingTimeoutMillis, TimeUnit.MILLISECONDS);
     }
     /**
      * Shortens a given URL, with options for a custom alias and an expiration.
@@ -35,49 +69,227 @@ public class UrlShortenerService {
      *                      permanent.
      * @return The final shortCode.
      */
-    @Transactional
-    public String shortenUrl(String originalUrl, String customAlias,Integer hoursToExpire) {    
+    public String shortenUrl(String originalUrl, String customAlias,Integer hoursToExpire) {
+        return shortenUrl(originalUrl, customAlias, hoursToExpire, null);
+    }
+
+    /**
+     * Like shortenUrl(originalUrl, customAlias, hoursToExpire), with a redirect policy.
+     *
+     * @param redirectPolicy How the redirect may be cached, or null for 'app.redirect.default-policy'.
+     */
+    public String shortenUrl(String originalUrl, String customAlias, Integer hoursToExpire,
+                             RedirectPolicy redirectPolicy) {
         if (StringUtils.hasText(customAlias)) {
-            // Check if the custom alias is already taken.
-            if (urlMappingRepository.findByShortCode(customAlias).isPresent()) {
+            // Check if the custom alias is already taken. If the Bloom filter has never
+            // seen the alias, it is definitely free and we can skip the query.
+            if (shortCodeBloomFilter.mightContain(customAlias)
+                    && urlMappingStore.findByShortCode(customAlias).isPresent()) {
                 throw new AliasAlreadyExistsException("Alias '" + customAlias + "' is already in use.");
             }
             // If we reach here, the alias is available. We'll use it.
-            UrlMapping newUrlMapping = new UrlMapping();
-            newUrlMapping.setOriginalUrl(originalUrl);
-            newUrlMapping.setCreationDate(LocalDateTime.now());
-            newUrlMapping.setShortCode(customAlias); // Use the user's provided alias
-            // If the user provided a TTL, calculate and set the expiration date.
-            if (hoursToExpire != null) {
-                newUrlMapping.setExpirationDate(LocalDateTime.now().plusHours(hoursToExpire));
-            } // If hoursToExpire is null, the expirationDate field remains null (permanent
-              // link).
-            urlMappingRepository.save(newUrlMapping);
-            return customAlias;
         }
-        else{
-            UrlMapping urlMapping = new UrlMapping();
+        // With deduplication on, a URL that was shortened before gets its existing code.
+        String urlHash = urlDeduplicator.shareableHash(originalUrl, customAlias, hoursToExpire, redirectPolicy);
+        if (urlHash != null) {
+            String existing = urlDeduplicator.findShortCode(urlHash);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        UrlMapping urlMapping = newUrlMapping(originalUrl, customAlias, hoursToExpire, redirectPolicy, urlHash);
+        try {
+            urlMappingStore.save(urlMapping);
+        } catch (DataIntegrityViolationException e) {
+            if (!StringUtils.hasText(customAlias)) {
+                urlMapping = saveWithFreshCode(urlMapping, e);
+            } else {
+                // Another request took the same alias between our check and the INSERT;
+                // the unique constraint on short_code caught it.
+                throw new AliasAlreadyExistsException("Alias '" + customAlias + "' is already in use.");
+            }
+        }
+        if (urlHash != null) {
+            urlDeduplicator.remember(urlHash, urlMapping.getShortCode());
+        }
+        return urlMapping.getShortCode();
+    }
+
+    /**
+     * Builds a new, not yet saved UrlMapping.
+     *
+     * The id comes from a block reserved in advance, so the short code is known
+     * before the row is written and the mapping is stored with a single INSERT.
+     * The short code is added to the Bloom filter here, before it is inserted, so
+     * the filter never reports a stored code as unknown. The other instances add it
+     * to their filters when the NearCacheInvalidator announces it. With deduplication on, a
+     * shareable mapping also gets the hash of its URL, so that later requests for
+     * the same URL find it.
+     *
+     * @param originalUrl   The long URL to shorten.
+     * @param customAlias   The short code to use, or null/blank to derive one from the id.
+     * @param hoursToExpire An optional TTL in hours. If null, the link is permanent.
+     * @param redirectPolicy The link's redirect policy, or null for the default.
+     */
+    public UrlMapping newUrlMapping(String originalUrl, String customAlias, Integer hoursToExpire,
+                                    RedirectPolicy redirectPolicy) {
+        return newUrlMapping(originalUrl, customAlias, hoursToExpire, redirectPolicy,
+                urlDeduplicator.shareableHash(originalUrl, customAlias, hoursToExpire, redirectPolicy));
+    }
+
+    private UrlMapping newUrlMapping(String originalUrl, String customAlias, Integer hoursToExpire,
+                                     RedirectPolicy redirectPolicy, String urlHash) {
+        LocalDateTime now = LocalDateTime.now();
+        UrlMapping urlMapping = new UrlMapping();
+        assignShortCode(urlMapping, customAlias);
         urlMapping.setOriginalUrl(originalUrl);
-        urlMapping.setCreationDate(LocalDateTime.now());
+        urlMapping.setCreationDate(now);
+        urlMapping.setUrlHash(urlHash);
+        urlMapping.setRedirectPolicy(redirectPolicy);
         // If the user provided a TTL, calculate and set the expiration date.
-        UrlMapping savedEntity = urlMappingRepository.save(urlMapping);
-        String shortCode = encodeBase62(savedEntity.getId());
-        savedEntity.setShortCode(shortCode);
-        urlMappingRepository.save(savedEntity);
-        return shortCode;
+        if (hoursToExpire != null) {
+            urlMapping.setExpirationDate(now.plusHours(hoursToExpire));
+        } // If hoursToExpire is null, the expirationDate field remains null (permanent
+          // link).
+        return urlMapping;
+    }
+
+    private void assignShortCode(UrlMapping urlMapping, String customAlias) {
+        long id = idBlockAllocator.nextId();
+        urlMapping.setId(id);
+        // Use the user's provided alias, or encode the id.
+        urlMapping.setShortCode(StringUtils.hasText(customAlias) ? customAlias : ShortCodeCodec.encode(id));
+        shortCodeBloomFilter.put(urlMapping.getShortCode());
+        redirectCache.invalidate(urlMapping.getShortCode());
+        nearCacheInvalidator.announceCreated(urlMapping.getShortCode());
+    }
+
+    /**
+     * Saves a mapping with a generated short code whose INSERT failed, under a
+     * fresh id, if the failure was that a custom alias already uses the code.
+     *
+     * @param urlMapping The mapping that could not be saved.
+     * @param failure    The exception of its INSERT.
+     * @return The saved mapping, with its new id and short code.
+     * @throws DataIntegrityViolationException if the INSERT failed for another
+     *         reason, or the fresh codes were taken as well.
+     */
+    public UrlMapping saveWithFreshCode(UrlMapping urlMapping, DataIntegrityViolationException failure) {
+        UrlMapping current = urlMapping;
+        DataIntegrityViolationException lastFailure = failure;
+        for (int attempt = 1; attempt < MAX_GENERATED_CODE_ATTEMPTS
+                && urlMappingStore.findByShortCode(current.getShortCode()).isPresent(); attempt++) {
+            UrlMapping retry = withFreshCode(current);
+            try {
+                return urlMappingStore.save(retry);
+            } catch (DataIntegrityViolationException ex) {
+                current = retry;
+                lastFailure = ex;
+            }
         }
-        
+        throw lastFailure;
+    }
+
+    /**
+     * @return A copy of the mapping with a fresh id and generated short code, for a
+     *         mapping whose short code turned out to be taken.
+     */
+    public UrlMapping withFreshCode(UrlMapping urlMapping) {
+        // A new instance: the failed one may still be attached to a rolled back session.
+        UrlMapping retry = new UrlMapping();
+        assignShortCode(retry, null);
+        retry.setOriginalUrl(urlMapping.getOriginalUrl());
+        retry.setCreationDate(urlMapping.getCreationDate());
+        retry.setExpirationDate(urlMapping.getExpirationDate());
+        retry.setUrlHash(urlMapping.getUrlHash());
+        retry.setRedirectPolicy(urlMapping.getRedirectPolicy());
+        return retry;
     }
 
     
-    @Transactional
+    /**
+     * Resolves a short code for a redirect and records the click.
+     *
+     * This method is deliberately not transactional: a cache hit does not touch the
+     * database at all, and the click is only counted in memory by the ClickCounter,
+     * which writes it to the database in the background.
+     */
     public String getOriginalUrlAndIncrementClicks(String shortCode) {
-        // First, find the entity. If it's not found at all, throw the exception as before.
-        UrlMapping urlMapping = urlMappingRepository.findByShortCode(shortCode)
-                .orElseThrow(() -> new UrlNotFoundException("URL not found for short code: " + shortCode));
+        return getOriginalUrlAndIncrementClicks(shortCode, null, null);
+    }
+
+    /**
+     * Like getOriginalUrlAndIncrementClicks(shortCode), and records where the click
+     * came from in the click event log.
+     *
+     * @param referrer  The 'Referer' header of the request, or null.
+     * @param userAgent The 'User-Agent' header of the request, or null.
+     */
+    public String getOriginalUrlAndIncrementClicks(String shortCode, String referrer, String userAgent) {
+        return resolveRedirect(shortCode, referrer, userAgent).originalUrl();
+    }
+
+    /**
+     * Like getOriginalUrlAndIncrementClicks(shortCode, referrer, userAgent), but
+     * returns the whole target, so that the caller can decide how the redirect may
+     * be cached.
+     */
+    public RedirectTarget resolveRedirect(String shortCode, String referrer, String userAgent) {
+        // First, look the link up in the pinned tier of the current heavy hitters, then
+        // in the in-process cache. Only a miss in both goes to the database.
+        // If it's not found at all, throw the exception as before.
+        RedirectTarget target = cachedRedirectTarget(shortCode);
+        if (target == null) {
+            target = loadedRedirectTarget(shortCode, loadRedirectTarget(shortCode));
+        }
+        recordClick(shortCode, target, referrer, userAgent);
+        return target;
+    }
+
+    /**
+     * The in-memory part of the redirect lookup, without any I/O.
+     *
+     * @return The target from the pinned tier or the redirect cache, or null if it
+     *         has to be loaded from the store.
+     * @throws UrlNotFoundException if the store recently did not have the short
+     *         code, or the Bloom filter may reject it (see ShortCodeBloomFilter).
+     */
+    public RedirectTarget cachedRedirectTarget(String shortCode) {
+        RedirectTarget target = heavyHitters.pinned(shortCode);
+        if (target == null) {
+            target = redirectCache.getIfPresent(shortCode);
+        }
+        if (target == null && (redirectCache.isKnownMissing(shortCode) || shortCodeBloomFilter.rejects(shortCode))) {
+            throw new UrlNotFoundException("URL not found for short code: " + shortCode);
+        }
+        return target;
+    }
+
+    /**
+     * Caches a target that was loaded from the store after cachedRedirectTarget missed.
+     *
+     * @param target The loaded target, or null if the store has no such short code.
+     * @return The target.
+     * @throws UrlNotFoundException if the target is null.
+     */
+    public RedirectTarget loadedRedirectTarget(String shortCode, RedirectTarget target) {
+        if (target == null) {
+            shortCodeBloomFilter.recordStoreMiss(shortCode);
+            redirectCache.putMissing(shortCode);
+            throw new UrlNotFoundException("URL not found for short code: " + shortCode);
+        }
+        redirectCache.put(shortCode, target);
+        return target;
+    }
+
+    /**
+     * Checks that the link has not expired and records the click, all in memory.
+     *
+     * @throws UrlNotFoundException if the link has expired.
+     */
+    public void recordClick(String shortCode, RedirectTarget target, String referrer, String userAgent) {
         // Next, check if the URL has expired. If it has, we treat it as not found.
-        if (urlMapping.getExpirationDate() != null &&
-                urlMapping.getExpirationDate().isBefore(LocalDateTime.now())) {
+        if (target.isExpiredAt(LocalDateTime.now())) {
             // The expiration date is set and it is in the past. The link has expired.
 
             // OPTION 1 (Our Choice): Throw UrlNotFoundException.
@@ -90,11 +302,42 @@ public class UrlShortenerService {
             // 3. Add a new handler in `GlobalExceptionHandler` to map it to a 410 GONE
             // status.
         }
-        // If the code reaches here, the link is valid (either permanent or not yet expired). Proceed with incrementing the click count and saving.
-        urlMapping.setClickCount(urlMapping.getClickCount() + 1);
-        urlMappingRepository.save(urlMapping);
+        // If the code reaches here, the link is valid (either permanent or not yet expired).
+        // Count the click in memory; the ClickCounter flushes it to the database in batches.
+        clickCounter.increment(shortCode);
+        clickTimeSeries.record(shortCode);
+        clickEventLog.append(shortCode, referrer, userAgent);
+        heavyHitters.record(shortCode, target);
+    }
 
-        return urlMapping.getOriginalUrl();
+    /**
+     * Loads the redirect target of a short code from the store on a cache miss.
+     *
+     * When a link goes viral, or right after a restart, many requests for the same
+     * code miss at once. Only the first of them queries the store; the others wait
+     * for its result (see SingleFlight), at most 'app.redirect.coalescing-timeout-ms'
+     * before they query the store themselves. The loaded target is cached before
+     * the waiting requests are released, so a request that arrives just after the
+     * load finds it in the cache instead of starting another one.
+     *
+     * A code that decodes to an id (see ShortCodeCodec) is looked up by primary key
+     * first. Only custom aliases, and codes not found that way, use the index on
+     * the short code.
+     *
+     * @return The target, or null if no mapping exists for the short code.
+     */
+    private RedirectTarget loadRedirectTarget(String shortCode) {
+        return redirectLoads.execute(shortCode, code -> {
+            // A load that completed between our cache miss and this one has filled the cache.
+            RedirectTarget target = redirectCache.getIfPresent(code);
+            if (target == null) {
+                target = findRedirectTarget(code);
+                if (target != null) {
+                    redirectCache.put(code, target);
+                }
+            }
+            return target;
+        });
     }
 
     
@@ -102,28 +345,50 @@ public class UrlShortenerService {
         
         
         
-        UrlMapping urlMapping = urlMappingRepository.findByShortCode(shortCode)
+        UrlMapping urlMapping = urlMappingStore.findByShortCode(shortCode)
                 .orElseThrow(() -> new UrlNotFoundException("No statistics found for short code: " + shortCode));
         String fullShortUrl = "http://localhost:8080/" + urlMapping.getShortCode();
         return new UrlStatsResponse(
             urlMapping.getOriginalUrl(),
             fullShortUrl,
             urlMapping.getCreationDate(),
-            urlMapping.getClickCount()
+            // Include the clicks that are still waiting to be flushed to the database.
+            urlMapping.getClickCount() + clickCounter.pendingClicks(shortCode)
+        );
+    }
+
+    /**
+     * Like getStats(shortCode), plus the clicks per time bucket in a range.
+     *
+     * @param resolution The bucket size of the series.
+     * @param from       The start of the range, or null for 'to' minus the
+     *                   resolution's default range.
+     * @param to         The end of the range, or null for now. The minute it falls
+     *                   in is included.
+     */
+    public UrlStatsResponse getStats(String shortCode, ClickResolution resolution, Instant from, Instant to) {
+        UrlStatsResponse stats = getStats(shortCode);
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(resolution.defaultRange());
+        return new UrlStatsResponse(
+            stats.originalUrl(),
+            stats.shortUrl(),
+            stats.creationDate(),
+            stats.clickCount(),
+            resolution,
+            clickTimeSeries.series(shortCode, resolution, start, end)
         );
     }
-    private String encodeBase62(Long number) {    
-       if (number == 0) {
-            return String.valueOf(BASE62_CHARS.charAt(0));
-        }
-        StringBuilder sb = new StringBuilder();
-        long num = number; 
 
-        while (num > 0) {    
-            int remainder = (int) (num % 62);
-            sb.append(BASE62_CHARS.charAt(remainder));
-            num /= 62;
+    private RedirectTarget findRedirectTarget(String shortCode) {
+        long id = ShortCodeCodec.decode(shortCode);
+        if (id != ShortCodeCodec.INVALID) {
+            RedirectTarget target = urlMappingStore.findRedirectTargetById(id, shortCode).orElse(null);
+            if (target != null) {
+                return target;
+            }
         }
-        return sb.reverse().toString();
+        // A custom alias: its id was not encoded into it.
+        return urlMappingStore.findRedirectTarget(shortCode).orElse(null);
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+-- src/main/resources/schema.sql
+--
+-- Database objects that Hibernate does not create from our entities.
+-- Spring Boot runs this script after Hibernate has created the tables
+-- (see 'spring.jpa.defer-datasource-initialization'). Every statement must be
+-- idempotent, because the script runs on each startup.
+
+-- Each value of this sequence reserves one block of UrlMapping ids
+-- (see IdBlockAllocator). On a database that already contains rows, the
+-- application skips the values whose blocks overlap them on first use (see
+-- ExistingIdsSkippingIncrementer).
+CREATE SEQUENCE IF NOT EXISTS url_mapping_id_block_seq START WITH 1 INCREMENT BY 1;
+
+-- Lets CleanupService find expired links without a full table scan.
+-- Hibernate declares the same index on UrlMapping, but does not create it when
+-- the schema is only validated (the prod profile).
+CREATE INDEX IF NOT EXISTS idx_url_mapping_expiration_date ON url_mapping (expiration_date);
+
+-- Lets UrlDeduplicator find the existing link of a URL by its hash.
+-- The prod profile validates the schema before this script runs, so on an
+-- existing database add the new columns once before deploying:
+--   ALTER TABLE url_mapping ADD COLUMN url_hash VARCHAR(64);
+--   ALTER TABLE url_mapping ADD COLUMN redirect_policy VARCHAR(9);
+CREATE INDEX IF NOT EXISTS idx_url_mapping_url_hash ON url_mapping (url_hash);
+
+-- Clicks per link and time bucket (see ClickTimeSeries). Each link has one row
+-- per MINUTE, HOUR and DAY bucket in which it was clicked; bucket_start is UTC.
+-- The table is not mapped by JPA because it is only written in JDBC batches.
+CREATE TABLE IF NOT EXISTS click_bucket (
+    short_code VARCHAR(255) NOT NULL,
+    resolution VARCHAR(6) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    clicks BIGINT NOT NULL,
+    PRIMARY KEY (short_code, resolution, bucket_start)
+);
+CREATE INDEX IF NOT EXISTS idx_click_bucket_resolution_start ON click_bucket (resolution, bucket_start);
+
+-- Messages of the JdbcInvalidationBus (profile 'jdbc-invalidation'): one row per
+-- short code whose cached copies the other instances must drop ('I') or add to
+-- their Bloom filters ('C'). 'version' tells each instance where it left off.
+-- Rows are deleted after 'app.invalidation.retention-ms'.
+CREATE TABLE IF NOT EXISTS cache_invalidation (
+    version BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    origin VARCHAR(36) NOT NULL,
+    kind CHAR(1) NOT NULL,
+    short_code VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_cache_invalidation_created_at ON cache_invalidation (created_at);
@@ -0,0 +1,23 @@
+-- src/main/resources/shard-schema.sql
+--
+-- The url_mapping table of one shard (see ShardedUrlMappingStore), which runs
+-- this script on every shard at startup. Hibernate only creates the tables of the
+-- primary database. Every statement must be idempotent and valid on H2 and
+-- PostgreSQL. The columns match the UrlMapping entity.
+
+CREATE TABLE IF NOT EXISTS url_mapping (
+    id BIGINT NOT NULL PRIMARY KEY,
+    short_code VARCHAR(255) UNIQUE,
+    original_url VARCHAR NOT NULL,
+    creation_date TIMESTAMP,
+    click_count BIGINT NOT NULL DEFAULT 0,
+    expiration_date TIMESTAMP,
+    url_hash VARCHAR(64),
+    redirect_policy VARCHAR(9)
+);
+
+-- Lets the CleanupService of each shard find expired links without a full table scan.
+CREATE INDEX IF NOT EXISTS idx_url_mapping_expiration_date ON url_mapping (expiration_date);
+
+-- Lets UrlDeduplicator find the existing link of a URL by its hash.
+CREATE INDEX IF NOT EXISTS idx_url_mapping_url_hash ON url_mapping (url_hash);
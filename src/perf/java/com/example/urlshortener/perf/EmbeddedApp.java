@@ -0,0 +1,56 @@
+package com.example.urlshortener.perf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.urlshortener.UrlShortnerApplication;
+
+/**
+ * Boots the real application against a private in-memory H2 database, so
+ * benchmarks and load tests measure the same code paths as production without
+ * needing PostgreSQL.
+ */
+public final class EmbeddedApp {
+
+    private EmbeddedApp() {
+    }
+
+    /**
+     * @param name      Names the H2 database, so several contexts in one JVM do not share data.
+     * @param web       Whether to start the embedded web server (on a random port).
+     * @param overrides Additional application properties, e.g. cache sizes.
+     */
+    public static ConfigurableApplicationContext start(String name, boolean web, Map<String, ?> overrides) {
+        return start(name, web ? WebApplicationType.SERVLET : WebApplicationType.NONE, overrides);
+    }
+
+    /**
+     * @param webApplicationType REACTIVE starts Netty; the 'reactive' Spring profile
+     *                           must then be active and the reactive Maven profile built.
+     */
+    public static ConfigurableApplicationContext start(String name, WebApplicationType webApplicationType,
+                                                       Map<String, ?> overrides) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("server.port", "0");
+        // All load comes from one client; pass app.rate-limit.enabled=true to measure the limiter.
+        properties.put("app.rate-limit.enabled", "false");
+        // Every run starts from an empty database, so there is nothing to warm up.
+        properties.put("app.warmup.enabled", "false");
+        properties.putAll(overrides);
+        // Passed as command line arguments, so they also take precedence over the
+        // profile-specific files, e.g. application-embedded-store.properties.
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(UrlShortnerApplication.class)
+                .web(webApplicationType)
+                .run(args);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.urlshortener.perf;
+
+import java.util.Locale;
+import java.util.random.RandomGenerator;
+
+/**
+ * Chooses which of N keys (e.g. short codes) the next request targets.
+ *
+ * Real redirect traffic is heavily skewed: a few links receive most clicks. A
+ * uniform distribution is the worst case for caches, a zipfian one is close to
+ * what production sees, and a hotspot one models a burst of traffic to a few
+ * links, e.g. a campaign. Index 0 is the most popular key.
+ */
+public abstract class KeyDistribution {
+
+    protected final int keyCount;
+
+    protected KeyDistribution(int keyCount) {
+        if (keyCount < 1) {
+            throw new IllegalArgumentException("keyCount must be positive: " + keyCount);
+        }
+        this.keyCount = keyCount;
+    }
+
+    /**
+     * @param name     "uniform", "zipfian" or "hotspot".
+     * @param keyCount The number of distinct keys.
+     */
+    public static KeyDistribution of(String name, int keyCount) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "uniform":
+                return new Uniform(keyCount);
+            case "zipfian":
+                return new Zipfian(keyCount, Zipfian.DEFAULT_THETA);
+            case "hotspot":
+                return new Hotspot(keyCount, Hotspot.DEFAULT_HOT_KEYS, Hotspot.DEFAULT_HOT_REQUESTS);
+            default:
+                throw new IllegalArgumentException("Unknown key distribution: " + name);
+        }
+    }
+
+    /**
+     * @return An index in [0, keyCount).
+     */
+    public abstract int nextIndex(RandomGenerator random);
+
+    /**
+     * Pre-computes a sequence of indices, so that drawing keys does not add random
+     * number generation to the code being measured.
+     */
+    public int[] sample(RandomGenerator random, int length) {
+        int[] indices = new int[length];
+        for (int i = 0; i < length; i++) {
+            indices[i] = nextIndex(random);
+        }
+        return indices;
+    }
+
+    static final class Uniform extends KeyDistribution {
+
+        Uniform(int keyCount) {
+            super(keyCount);
+        }
+
+        @Override
+        public int nextIndex(RandomGenerator random) {
+            return random.nextInt(keyCount);
+        }
+    }
+
+    /**
+     * The zipfian generator from YCSB (Gray et al., "Quickly Generating
+     * Billion-Record Synthetic Databases"). With theta = 0.99, roughly the top 1%
+     * of keys receive half of all requests.
+     */
+    static final class Zipfian extends KeyDistribution {
+
+        static final double DEFAULT_THETA = 0.99;
+
+        private final double theta;
+        private final double zetaN;
+        private final double alpha;
+        private final double eta;
+
+        Zipfian(int keyCount, double theta) {
+            super(keyCount);
+            this.theta = theta;
+            this.zetaN = zeta(keyCount, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            double zeta2 = zeta(2, theta);
+            this.eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - zeta2 / zetaN);
+        }
+
+        @Override
+        public int nextIndex(RandomGenerator random) {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return Math.min(1, keyCount - 1);
+            }
+            int index = (int) (keyCount * Math.pow(eta * u - eta + 1, alpha));
+            return Math.min(index, keyCount - 1);
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * The hotspot generator from YCSB: a fraction 'hotKeys' of the keys receives a
+     * fraction 'hotRequests' of the requests, and both sets are uniform within
+     * themselves. The defaults send 80% of the requests to 20% of the keys.
+     */
+    static final class Hotspot extends KeyDistribution {
+
+        static final double DEFAULT_HOT_KEYS = 0.2;
+        static final double DEFAULT_HOT_REQUESTS = 0.8;
+
+        private final int hotKeyCount;
+        private final double hotRequests;
+
+        Hotspot(int keyCount, double hotKeys, double hotRequests) {
+            super(keyCount);
+            if (hotKeys <= 0 || hotKeys > 1 || hotRequests < 0 || hotRequests > 1) {
+                throw new IllegalArgumentException("Fractions must lie in (0, 1]: " + hotKeys + ", " + hotRequests);
+            }
+            this.hotKeyCount = Math.max(1, (int) (keyCount * hotKeys));
+            this.hotRequests = hotRequests;
+        }
+
+        @Override
+        public int nextIndex(RandomGenerator random) {
+            if (hotKeyCount == keyCount || random.nextDouble() < hotRequests) {
+                return random.nextInt(hotKeyCount);
+            }
+            return hotKeyCount + random.nextInt(keyCount - hotKeyCount);
+        }
+    }
+}
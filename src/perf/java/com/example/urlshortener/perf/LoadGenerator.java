@@ -0,0 +1,245 @@
+package com.example.urlshortener.perf;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Sends production-shaped load to the redirect and shorten endpoints over HTTP.
+ *
+ * 1. Creates 'links' short links through POST /api/v1/url/shorten.
+ * 2. Sends requests at a constant 'rate' per second for 'warmup' seconds, whose
+ *    results are discarded, and then for 'duration' seconds. A fraction
+ *    'shorten-ratio' of the requests shortens a new URL; the others redirect to a
+ *    link drawn from the key distribution ('uniform', 'zipfian' or 'hotspot').
+ * 3. Prints a summary and writes a LoadReport to 'report-dir'.
+ *
+ * The load is open-loop: request i is due at start + i / rate, whether or not
+ * earlier requests have completed, like real users who do not wait for each
+ * other. Its latency is measured from the time it was due, not from the time it
+ * was sent, so a stall of the service shows up in every request that should have
+ * been sent during the stall (the coordinated omission correction). The latency
+ * from sending is recorded as well, to show how much the correction adds.
+ * Requests that would exceed 'max-in-flight' are not sent and count as dropped.
+ *
+ * Options are key=value arguments:
+ *   target=http://host:8080  Drive a running instance instead of booting one on H2.
+ *   profiles=virtual-threads Spring profiles of the booted application ('reactive'
+ *                            starts the WebFlux stack; build with -Preactive).
+ *   property.<name>=<value>  An application property of the booted application,
+ *                            e.g. property.app.redirect-cache.maximum-size=0.
+ *   links=10000 distribution=zipfian rate=1000 duration=30 warmup=10
+ *   shorten-ratio=0.05 max-in-flight=10000 timeout=10 label=<name>
+ *   report-dir=target/loadtest
+ */
+public final class LoadGenerator {
+
+    private static final Pattern SHORT_URL = Pattern.compile("\"shortUrl\"\\s*:\\s*\"([^\"]*)\"");
+    private static final int SETUP_CONCURRENCY = 64;
+
+    private final HttpClient client;
+    private final URI base;
+    private final Duration timeout;
+
+    private LoadGenerator(HttpClient client, URI base, Duration timeout) {
+        this.client = client;
+        this.base = base;
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, Object> properties = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            String key = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            if (key.startsWith("property.")) {
+                properties.put(key.substring("property.".length()), value);
+            } else {
+                options.put(key, value);
+            }
+        }
+        LoadReport.Settings settings = new LoadReport.Settings(
+                options.remove("target"),
+                option(options, "profiles", ""),
+                Integer.parseInt(option(options, "links", "10000")),
+                option(options, "distribution", "zipfian"),
+                Integer.parseInt(option(options, "rate", "1000")),
+                Integer.parseInt(option(options, "duration", "30")),
+                Integer.parseInt(option(options, "warmup", "10")),
+                Double.parseDouble(option(options, "shorten-ratio", "0.05")),
+                Integer.parseInt(option(options, "max-in-flight", "10000")),
+                properties);
+        Duration timeout = Duration.ofSeconds(Long.parseLong(option(options, "timeout", "10")));
+        String label = option(options, "label", settings.profiles().isEmpty() ? "default" : settings.profiles());
+        Path reportDir = Path.of(option(options, "report-dir", "target/loadtest"));
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + options.keySet());
+        }
+        if (settings.rate() <= 0) {
+            throw new IllegalArgumentException("rate must be positive: " + settings.rate());
+        }
+        KeyDistribution distribution = KeyDistribution.of(settings.distribution(), settings.links());
+
+        ConfigurableApplicationContext context = null;
+        URI base;
+        if (settings.target() != null) {
+            base = URI.create(settings.target().endsWith("/") ? settings.target() : settings.target() + "/");
+        } else {
+            Map<String, Object> overrides = new HashMap<>(properties);
+            overrides.put("app.click-log.directory", reportDir.resolve("click-log").toString());
+            boolean reactive = false;
+            if (!settings.profiles().isEmpty()) {
+                overrides.put("spring.profiles.active", settings.profiles());
+                reactive = Arrays.asList(settings.profiles().split(",")).contains("reactive");
+            }
+            context = EmbeddedApp.start("loadtest", reactive ? WebApplicationType.REACTIVE : WebApplicationType.SERVLET,
+                    overrides);
+            base = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/");
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(timeout)
+                    .build();
+            LoadGenerator generator = new LoadGenerator(client, base, timeout);
+            System.out.printf("Creating %d links on %s%n", settings.links(), base);
+            String[] shortCodes = generator.createLinks(settings.links());
+
+            SplittableRandom random = new SplittableRandom(42);
+            System.out.printf("Warming up for %d s at %d requests/s%n", settings.warmupSeconds(), settings.rate());
+            generator.drive(settings, distribution, shortCodes, random, settings.warmupSeconds(), new LoadReport.Phase());
+            System.out.printf("Measuring for %d s at %d requests/s (%s keys, %.0f%% shorten)%n", settings.durationSeconds(),
+                    settings.rate(), settings.distribution(), settings.shortenRatio() * 100);
+            LoadReport.Phase measurement = new LoadReport.Phase();
+            long elapsedNanos = generator.drive(settings, distribution, shortCodes, random, settings.durationSeconds(),
+                    measurement);
+
+            LoadReport report = new LoadReport(label, Instant.now(), base.toString(), settings, measurement, elapsedNanos);
+            report.print(System.out);
+            Path json = report.write(reportDir);
+            System.out.printf("Report written to %s%n", json);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static String option(Map<String, String> options, String key, String defaultValue) {
+        String value = options.remove(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Creates the links through the API, SETUP_CONCURRENCY at a time.
+     *
+     * @return The short code of link i at index i.
+     */
+    private String[] createLinks(int links) throws InterruptedException {
+        String[] shortCodes = new String[links];
+        Semaphore inFlight = new Semaphore(SETUP_CONCURRENCY);
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < links; i++) {
+            inFlight.acquire();
+            int index = i;
+            client.sendAsync(shortenRequest("https://example.com/loadtest/" + i), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, failure) -> {
+                        Matcher shortUrl = failure == null && response.statusCode() == 201
+                                ? SHORT_URL.matcher(response.body())
+                                : null;
+                        if (shortUrl != null && shortUrl.find()) {
+                            String url = shortUrl.group(1);
+                            shortCodes[index] = url.substring(url.lastIndexOf('/') + 1);
+                        } else {
+                            failures.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(SETUP_CONCURRENCY);
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " of " + links + " links could not be created");
+        }
+        return shortCodes;
+    }
+
+    /**
+     * Sends requests at the configured rate for 'seconds' and waits for the last
+     * responses (at most the request timeout).
+     *
+     * @return The time from the first due request to the last response, in nanoseconds.
+     */
+    private long drive(LoadReport.Settings settings, KeyDistribution distribution, String[] shortCodes,
+                       SplittableRandom random, int seconds, LoadReport.Phase phase) throws InterruptedException {
+        long requests = (long) settings.rate() * seconds;
+        AtomicInteger inFlight = new AtomicInteger();
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long due = start + i * 1_000_000_000L / settings.rate();
+            long now;
+            while ((now = System.nanoTime()) < due) {
+                LockSupport.parkNanos(due - now);
+            }
+            if (inFlight.get() >= settings.maxInFlight()) {
+                phase.dropped();
+                continue;
+            }
+            LoadReport.Operation operation;
+            HttpRequest request;
+            if (random.nextDouble() < settings.shortenRatio()) {
+                operation = phase.shorten();
+                request = shortenRequest("https://example.com/loadtest/new/" + System.nanoTime() + "/" + i);
+            } else {
+                operation = phase.redirect();
+                request = HttpRequest.newBuilder(base.resolve(shortCodes[distribution.nextIndex(random)]))
+                        .timeout(timeout)
+                        .GET()
+                        .build();
+            }
+            inFlight.incrementAndGet();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                operation.record(due, sent, System.nanoTime(), failure == null ? response.statusCode() : -1);
+                inFlight.decrementAndGet();
+            });
+        }
+        // Every request has a timeout, so the remaining ones complete eventually.
+        while (inFlight.get() > 0) {
+            Thread.sleep(10);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private HttpRequest shortenRequest(String url) {
+        return HttpRequest.newBuilder(base.resolve("api/v1/url/shorten"))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"url\":\"" + url + "\"}"))
+                .build();
+    }
+}
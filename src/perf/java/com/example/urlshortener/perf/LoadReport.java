@@ -0,0 +1,245 @@
+package com.example.urlshortener.perf;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The result of one LoadGenerator run.
+ *
+ * Every run writes the same files to the report directory, named after the time
+ * it finished and its label, so that runs of different releases or profiles can be put
+ * side by side:
+ * - <stem>.json: the settings, the achieved rate, and per operation the count,
+ *   errors, status codes and latency percentiles, both corrected for coordinated
+ *   omission (from the time a request was due) and uncorrected (from the time it
+ *   was sent);
+ * - <stem>-<operation>.hgrm: the full corrected latency distribution in
+ *   milliseconds, which the HdrHistogram plotter
+ *   (https://hdrhistogram.github.io/HdrHistogram/plotFiles.html) draws for
+ *   several runs in one chart.
+ */
+final class LoadReport {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+    private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p99.9", "p99.99" };
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    /**
+     * The options of a run, as given to LoadGenerator.
+     *
+     * @param target     The URL of a running instance, or null if the application was booted on H2.
+     * @param properties Application properties of the booted application.
+     */
+    record Settings(String target, String profiles, int links, String distribution, int rate, int durationSeconds,
+                    int warmupSeconds, double shortenRatio, int maxInFlight, Map<String, Object> properties) {
+    }
+
+    /**
+     * The measurements of one phase of a run (warm-up or measurement).
+     */
+    static final class Phase {
+
+        private final Operation redirect = new Operation("redirect", 3);
+        private final Operation shorten = new Operation("shorten", 2);
+        private final LongAdder dropped = new LongAdder();
+
+        Operation redirect() {
+            return redirect;
+        }
+
+        Operation shorten() {
+            return shorten;
+        }
+
+        void dropped() {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * The latencies and status codes of one kind of request. Recorded from the
+     * HTTP client's threads.
+     */
+    static final class Operation {
+
+        private final String name;
+        private final int expectedStatusClass;
+        private final Histogram corrected = new ConcurrentHistogram(3);
+        private final Histogram uncorrected = new ConcurrentHistogram(3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder errors = new LongAdder();
+
+        /**
+         * @param expectedStatusClass 3 if a 3xx response is a success, 2 for a 2xx one.
+         */
+        Operation(String name, int expectedStatusClass) {
+            this.name = name;
+            this.expectedStatusClass = expectedStatusClass;
+        }
+
+        /**
+         * @param status The HTTP status, or -1 if the request failed without a response.
+         */
+        void record(long dueNanos, long sentNanos, long doneNanos, int status) {
+            corrected.recordValue(doneNanos - dueNanos);
+            uncorrected.recordValue(doneNanos - sentNanos);
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+            if (status / 100 != expectedStatusClass) {
+                errors.increment();
+            }
+        }
+    }
+
+    private final String label;
+    private final Instant finishedAt;
+    private final String target;
+    private final Settings settings;
+    private final Phase phase;
+    private final long elapsedNanos;
+
+    LoadReport(String label, Instant finishedAt, String target, Settings settings, Phase phase, long elapsedNanos) {
+        this.label = label;
+        this.finishedAt = finishedAt;
+        this.target = target;
+        this.settings = settings;
+        this.phase = phase;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%n%s: %.0f requests/s sent of %d requested, %d dropped%n", label, achievedRate(), settings.rate(),
+                phase.dropped.sum());
+        out.printf("%-9s %-11s %9s %7s %9s %9s %9s %9s %9s %9s%n", "operation", "latency", "count", "errors",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "p99.99 ms", "max ms");
+        for (Operation operation : new Operation[] { phase.redirect, phase.shorten }) {
+            print(out, operation.name, "corrected", operation.corrected, operation.errors.sum());
+            print(out, "", "from send", operation.uncorrected, operation.errors.sum());
+        }
+    }
+
+    private static void print(PrintStream out, String operation, String latency, Histogram histogram, long errors) {
+        out.printf("%-9s %-11s %9d %7d", operation, latency, histogram.getTotalCount(), errors);
+        for (double percentile : PERCENTILES) {
+            out.printf(" %9.2f", millis(histogram.getValueAtPercentile(percentile)));
+        }
+        out.printf(" %9.2f%n", millis(histogram.getMaxValue()));
+    }
+
+    /**
+     * @return The JSON report.
+     */
+    Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String stem = FILE_TIME.format(finishedAt) + "-" + label.replaceAll("[^A-Za-z0-9._-]", "_");
+        for (Operation operation : new Operation[] { phase.redirect, phase.shorten }) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(stem + "-" + operation.name + ".hgrm")),
+                    false, StandardCharsets.UTF_8)) {
+                operation.corrected.outputPercentileDistribution(out, 1e6);
+            }
+        }
+        Path json = directory.resolve(stem + ".json");
+        Files.writeString(json, toJson());
+        return json;
+    }
+
+    private double achievedRate() {
+        long sent = phase.redirect.corrected.getTotalCount() + phase.shorten.corrected.getTotalCount();
+        return sent * 1e9 / elapsedNanos;
+    }
+
+    private String toJson() {
+        StringBuilder json = new StringBuilder(2048).append("{\n");
+        field(json, 1, "label", quote(label)).append(",\n");
+        field(json, 1, "finishedAt", quote(finishedAt.toString())).append(",\n");
+        field(json, 1, "target", quote(target)).append(",\n");
+        field(json, 1, "javaVersion", quote(Runtime.version().toString())).append(",\n");
+        field(json, 1, "availableProcessors", Runtime.getRuntime().availableProcessors()).append(",\n");
+        field(json, 1, "settings", "{\n");
+        field(json, 2, "bootedOnH2", settings.target() == null).append(",\n");
+        field(json, 2, "profiles", quote(settings.profiles())).append(",\n");
+        field(json, 2, "links", settings.links()).append(",\n");
+        field(json, 2, "distribution", quote(settings.distribution())).append(",\n");
+        field(json, 2, "rate", settings.rate()).append(",\n");
+        field(json, 2, "durationSeconds", settings.durationSeconds()).append(",\n");
+        field(json, 2, "warmupSeconds", settings.warmupSeconds()).append(",\n");
+        field(json, 2, "shortenRatio", String.valueOf(settings.shortenRatio())).append(",\n");
+        field(json, 2, "maxInFlight", settings.maxInFlight()).append(",\n");
+        field(json, 2, "properties", "{");
+        String separator = "\n";
+        for (Map.Entry<String, Object> property : new TreeMap<>(settings.properties()).entrySet()) {
+            json.append(separator);
+            field(json, 3, property.getKey(), quote(String.valueOf(property.getValue())));
+            separator = ",\n";
+        }
+        json.append(settings.properties().isEmpty() ? "}\n" : "\n    }\n").append("  },\n");
+        field(json, 1, "achievedRate", Math.round(achievedRate())).append(",\n");
+        field(json, 1, "dropped", phase.dropped.sum()).append(",\n");
+        field(json, 1, "operations", "{\n");
+        operation(json, phase.redirect).append(",\n");
+        operation(json, phase.shorten).append("\n  }\n}\n");
+        return json.toString();
+    }
+
+    private static StringBuilder operation(StringBuilder json, Operation operation) {
+        field(json, 2, operation.name, "{\n");
+        field(json, 3, "count", operation.corrected.getTotalCount()).append(",\n");
+        field(json, 3, "errors", operation.errors.sum()).append(",\n");
+        field(json, 3, "statuses", "{");
+        String separator = "";
+        for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(operation.statuses).entrySet()) {
+            json.append(separator).append(quote(String.valueOf(status.getKey()))).append(": ").append(status.getValue().sum());
+            separator = ", ";
+        }
+        json.append("},\n");
+        field(json, 3, "correctedMillis", percentiles(operation.corrected)).append(",\n");
+        field(json, 3, "uncorrectedMillis", percentiles(operation.uncorrected)).append('\n');
+        return json.append("    }");
+    }
+
+    private static String percentiles(Histogram histogram) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            json.append(quote(PERCENTILE_NAMES[i])).append(": ")
+                    .append(String.format(Locale.ROOT, "%.3f", millis(histogram.getValueAtPercentile(PERCENTILES[i]))))
+                    .append(", ");
+        }
+        return json.append("\"max\": ").append(String.format(Locale.ROOT, "%.3f", millis(histogram.getMaxValue())))
+                .append('}').toString();
+    }
+
+    private static StringBuilder field(StringBuilder json, int depth, String name, Object value) {
+        return json.append("  ".repeat(depth)).append(quote(name)).append(": ").append(value);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
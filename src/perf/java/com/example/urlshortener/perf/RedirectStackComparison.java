@@ -0,0 +1,137 @@
+package com.example.urlshortener.perf;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.urlshortener.service.UrlShortenerService;
+
+/**
+ * Drives the same redirect load through the servlet stack (UrlController on
+ * Tomcat, JDBC) and the reactive stack (ReactiveUrlController on Netty, R2DBC),
+ * one after the other in the same JVM, and prints the throughput and latency of
+ * each at increasing concurrency.
+ *
+ * Each stack boots against its own in-memory H2 database with the same links. By
+ * default the redirect cache and the heavy hitters are off, so every redirect
+ * queries the database: that is where a blocking thread per request and a
+ * non-blocking event loop differ. Cached redirects never block on either stack.
+ *
+ * The load is closed-loop: 'concurrency' requests are in flight at all times and a
+ * new one is sent when one completes. A status other than 3xx counts as an error,
+ * e.g. the 503 of the reactive stack when 'app.reactive.max-pending-lookups' is
+ * exceeded.
+ *
+ * Needs both Maven profiles:
+ *   ./mvnw -Pjmh,reactive test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.urlshortener.perf.RedirectStackComparison
+ *
+ * System properties: comparison.links (10000), comparison.requests (100000 per
+ * step), comparison.concurrency (64,256,1024), comparison.distribution (uniform or
+ * zipfian) and comparison.cache (false).
+ */
+public final class RedirectStackComparison {
+
+    private RedirectStackComparison() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int links = Integer.getInteger("comparison.links", 10000);
+        int requests = Integer.getInteger("comparison.requests", 100000);
+        int[] concurrencies = Arrays.stream(System.getProperty("comparison.concurrency", "64,256,1024").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim()))
+                .toArray();
+        KeyDistribution distribution = KeyDistribution.of(System.getProperty("comparison.distribution", "uniform"), links);
+        boolean cache = Boolean.getBoolean("comparison.cache");
+
+        int[] sequence = distribution.sample(new SplittableRandom(42), 1 << 16);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+
+        System.out.printf("%-9s %11s %10s %9s %9s %9s %8s%n",
+                "stack", "concurrency", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "errors");
+        for (WebApplicationType stack : new WebApplicationType[] { WebApplicationType.SERVLET, WebApplicationType.REACTIVE }) {
+            String name = "comparison-" + stack.name().toLowerCase();
+            Map<String, Object> overrides = new HashMap<>();
+            overrides.put("app.click-log.enabled", "false");
+            if (!cache) {
+                overrides.put("app.redirect-cache.maximum-size", "0");
+                overrides.put("app.heavy-hitters.enabled", "false");
+            }
+            if (stack == WebApplicationType.REACTIVE) {
+                overrides.put("spring.profiles.active", "reactive");
+                overrides.put("app.reactive.r2dbc.url", "r2dbc:h2:mem:///" + name + ";DB_CLOSE_DELAY=-1");
+            }
+            try (ConfigurableApplicationContext context = EmbeddedApp.start(name, stack, overrides)) {
+                UrlShortenerService service = context.getBean(UrlShortenerService.class);
+                String[] shortCodes = new String[links];
+                for (int i = 0; i < links; i++) {
+                    shortCodes[i] = service.shortenUrl("https://example.com/articles/" + i, null, null);
+                }
+                URI base = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/");
+
+                // Warm up the JIT, the connection pools and the client's connections.
+                run(client, base, shortCodes, sequence, concurrencies[0], requests / 10);
+                for (int concurrency : concurrencies) {
+                    Result result = run(client, base, shortCodes, sequence, concurrency, requests);
+                    System.out.printf("%-9s %11d %10.0f %9.2f %9.2f %9.2f %8d%n", stack.name().toLowerCase(),
+                            concurrency, result.requestsPerSecond(), result.percentileMillis(0.5),
+                            result.percentileMillis(0.99), result.percentileMillis(0.999), result.errors());
+                }
+            }
+        }
+    }
+
+    private static Result run(HttpClient client, URI base, String[] shortCodes, int[] sequence,
+                              int concurrency, int requests) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(requests);
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            HttpRequest request = HttpRequest.newBuilder(base.resolve(shortCodes[sequence[i & (sequence.length - 1)]]))
+                    .GET()
+                    .build();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                latencies[index] = System.nanoTime() - sent;
+                if (failure != null || response.statusCode() / 100 != 3) {
+                    errors.incrementAndGet();
+                }
+                inFlight.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new Result(requests * 1e9 / elapsed, latencies, errors.get());
+    }
+
+    /**
+     * @param latencies The latency of each request in nanoseconds, sorted.
+     */
+    private record Result(double requestsPerSecond, long[] latencies, int errors) {
+
+        double percentileMillis(double percentile) {
+            int index = Math.min(latencies.length - 1, (int) Math.ceil(percentile * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.urlshortener.service;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.urlshortener.perf.EmbeddedApp;
+import com.example.urlshortener.perf.KeyDistribution;
+
+/**
+ * Measures the redirect path, UrlShortenerService.getOriginalUrlAndIncrementClicks,
+ * against the application booted on an in-memory H2 database.
+ *
+ * 'cacheSize' = 0 effectively disables the redirect cache, so every lookup goes to
+ * the database; the default size shows the cached path. The key distribution decides
+ * how skewed the lookups are. Use '-t' to run with several threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedirectBenchmark {
+
+    @Param({ "uniform", "zipfian" })
+    String distribution;
+
+    @Param({ "10000" })
+    int links;
+
+    @Param({ "0", "100000" })
+    long cacheSize;
+
+    ConfigurableApplicationContext context;
+    UrlShortenerService service;
+    String[] shortCodes;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = EmbeddedApp.start("redirect-benchmark", false,
+                Map.of("app.redirect-cache.maximum-size", cacheSize));
+        service = context.getBean(UrlShortenerService.class);
+        shortCodes = new String[links];
+        for (int i = 0; i < links; i++) {
+            shortCodes[i] = service.shortenUrl("https://example.com/articles/" + i, null, null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * The keys each benchmark thread requests, drawn from the configured distribution.
+     */
+    @State(Scope.Thread)
+    public static class Keys {
+        private static final int SEQUENCE_LENGTH = 1 << 16;
+
+        int[] sequence;
+        int cursor;
+
+        @Setup(Level.Iteration)
+        public void draw(RedirectBenchmark benchmark) {
+            KeyDistribution keys = KeyDistribution.of(benchmark.distribution, benchmark.links);
+            sequence = keys.sample(new SplittableRandom(), SEQUENCE_LENGTH);
+        }
+
+        String next(String[] shortCodes) {
+            int index = sequence[cursor];
+            cursor = (cursor + 1) & (SEQUENCE_LENGTH - 1);
+            return shortCodes[index];
+        }
+    }
+
+    @Benchmark
+    public String redirect(Keys keys) {
+        return service.getOriginalUrlAndIncrementClicks(keys.next(shortCodes));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.urlshortener.service;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.perf.EmbeddedApp;
+import com.example.urlshortener.repository.UrlMappingRepository;
+
+/**
+ * Compares the ways of loading a redirect target on a cache miss:
+ * - 'entity': findByShortCode, which materialises a managed UrlMapping (all
+ *   columns, a persistence context entry and a snapshot for dirty checking);
+ * - 'projection': findRedirectTargetByShortCode, which selects only the URL and
+ *   the expiration date into a RedirectTarget record, through the unique index on
+ *   short_code;
+ * - 'primaryKey': findRedirectTargetById, the same projection found through the
+ *   primary key, with the id decoded from the short code (ShortCodeCodec). This
+ *   is how generated codes are loaded; custom aliases take 'projection'.
+ *
+ * Run with '-prof gc' (see README) to compare the bytes allocated per lookup
+ * ('gc.alloc.rate.norm') next to the latency. 'urlLength' makes the @Lob column
+ * large enough for its cost to show.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+// Each lookup runs a query through Hibernate: it takes many iterations until JIT
+// compilation and the heap settle, and forks to average out their differences.
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class RedirectLookupBenchmark {
+
+    private static final int LINKS = 10000;
+
+    @Param({ "40", "2000" })
+    int urlLength;
+
+    ConfigurableApplicationContext context;
+    UrlMappingRepository repository;
+    String[] shortCodes;
+    int[] sequence;
+    int cursor;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = EmbeddedApp.start("redirect-lookup-benchmark", false, Map.of());
+        repository = context.getBean(UrlMappingRepository.class);
+        UrlShortenerService service = context.getBean(UrlShortenerService.class);
+        String padding = "x".repeat(Math.max(0, urlLength - 30));
+        shortCodes = new String[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            shortCodes[i] = service.shortenUrl("https://example.com/" + i + "/" + padding, null, null);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        sequence = new int[1 << 16];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = random.nextInt(LINKS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    private String nextShortCode() {
+        String shortCode = shortCodes[sequence[cursor]];
+        cursor = (cursor + 1) & (sequence.length - 1);
+        return shortCode;
+    }
+
+    @Benchmark
+    public RedirectTarget entity() {
+        return repository.findByShortCode(nextShortCode())
+                .map(urlMapping -> new RedirectTarget(urlMapping.getOriginalUrl(), urlMapping.getExpirationDate()))
+                .orElse(null);
+    }
+
+    @Benchmark
+    public RedirectTarget projection() {
+        return repository.findRedirectTargetByShortCode(nextShortCode()).orElse(null);
+    }
+
+    @Benchmark
+    public RedirectTarget primaryKey() {
+        String shortCode = nextShortCode();
+        return repository.findRedirectTargetById(ShortCodeCodec.decode(shortCode), shortCode).orElse(null);
+    }
+}
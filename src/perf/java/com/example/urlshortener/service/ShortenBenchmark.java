@@ -0,0 +1,63 @@
+package com.example.urlshortener.service;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.urlshortener.perf.EmbeddedApp;
+
+/**
+ * Measures the shorten path, UrlShortenerService.shortenUrl, against the
+ * application booted on an in-memory H2 database, both with a generated short
+ * code and with a custom alias (which adds an availability check).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShortenBenchmark {
+
+    ConfigurableApplicationContext context;
+    UrlShortenerService service;
+
+    // Shared by all threads so that every custom alias is unique.
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = EmbeddedApp.start("shorten-benchmark", false, Map.of());
+        service = context.getBean(UrlShortenerService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public String generatedCode() {
+        return service.shortenUrl("https://example.com/articles/" + sequence.incrementAndGet(), null, null);
+    }
+
+    @Benchmark
+    public String customAlias() {
+        long n = sequence.incrementAndGet();
+        return service.shortenUrl("https://example.com/articles/" + n, "alias-" + n, null);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.urlshortener.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.perf.EmbeddedApp;
+import com.example.urlshortener.repository.UrlMappingStore;
+import com.example.urlshortener.repository.embedded.EmbeddedUrlMappingStore;
+
+/**
+ * Compares the cache-miss lookup of the two UrlMappingStore implementations:
+ * - 'jpa': the default store on an in-memory H2 database;
+ * - 'embedded': the EmbeddedUrlMappingStore on files in a temporary directory;
+ * - 'sharded': the ShardedUrlMappingStore on three in-memory H2 shards, which adds
+ *   the routing on the hash ring to the lookup.
+ *
+ * After loading the links, the setup prints the heap in use and, for the embedded
+ * store, the native memory of its index, to compare the memory cost per link.
+ * Run with '-prof gc' to also compare the bytes allocated per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class StoreBenchmark {
+
+    @Param({ "jpa", "embedded", "sharded" })
+    String store;
+
+    @Param({ "100000" })
+    int links;
+
+    ConfigurableApplicationContext context;
+    UrlMappingStore urlMappingStore;
+    Path directory;
+    String[] shortCodes;
+    int[] sequence;
+    int cursor;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws IOException {
+        Map<String, Object> overrides = new HashMap<>();
+        if ("embedded".equals(store)) {
+            directory = Files.createTempDirectory("store-benchmark");
+            overrides.put("spring.profiles.active", "embedded-store");
+            overrides.put("app.embedded-store.directory", directory.toString());
+        } else if ("sharded".equals(store)) {
+            overrides.put("spring.profiles.active", "sharded");
+        }
+        context = EmbeddedApp.start("store-benchmark", false, overrides);
+        urlMappingStore = context.getBean(UrlMappingStore.class);
+        UrlShortenerService service = context.getBean(UrlShortenerService.class);
+        shortCodes = new String[links];
+        for (int i = 0; i < links; i++) {
+            shortCodes[i] = service.shortenUrl("https://example.com/articles/" + i, null, null);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        sequence = new int[1 << 16];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = random.nextInt(links);
+        }
+
+        System.gc();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long indexBytes = urlMappingStore instanceof EmbeddedUrlMappingStore embedded ? embedded.indexMemoryBytes() : 0;
+        System.out.printf("%n[%s] %d links: heap used %d MB, off-heap index %d KB%n",
+                store, links, heapUsed / (1024 * 1024), indexBytes / 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() throws IOException {
+        context.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        }
+    }
+
+    @Benchmark
+    public RedirectTarget lookup() {
+        String shortCode = shortCodes[sequence[cursor]];
+        cursor = (cursor + 1) & (sequence.length - 1);
+        return urlMappingStore.findRedirectTarget(shortCode).orElse(null);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.urlshortener.reactive;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import com.example.urlshortener.exception.AliasAlreadyExistsException;
+import com.example.urlshortener.exception.UrlNotFoundException;
+import com.example.urlshortener.metrics.ShortenerMetrics;
+
+/**
+ * The GlobalExceptionHandler of the reactive profile: the same error bodies, with
+ * the path taken from the ServerHttpRequest instead of the servlet WebRequest.
+ *
+ * It also turns overload into 503 Service Unavailable with 'Retry-After': too many
+ * pending lookups (StoreOverloadedException), or no R2DBC connection within
+ * 'app.reactive.r2dbc.pool.max-acquire-time'.
+ */
+@ControllerAdvice
+@Profile("reactive")
+public class ReactiveExceptionHandler {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final ShortenerMetrics metrics;
+
+    public ReactiveExceptionHandler(ShortenerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ExceptionHandler(UrlNotFoundException.class)
+    public ResponseEntity<Object> handleUrlNotFoundException(UrlNotFoundException ex, ServerHttpRequest request) {
+        metrics.urlNotFound();
+        return new ResponseEntity<>(body(HttpStatus.NOT_FOUND, "Not Found", ex, request), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(AliasAlreadyExistsException.class)
+    public ResponseEntity<Object> handleAliasAlreadyExistsException(AliasAlreadyExistsException ex,
+                                                                    ServerHttpRequest request) {
+        metrics.aliasAlreadyExists();
+        return new ResponseEntity<>(body(HttpStatus.CONFLICT, "Conflict", ex, request), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler({ StoreOverloadedException.class, DataAccessResourceFailureException.class,
+            TransientDataAccessException.class })
+    public ResponseEntity<Object> handleOverload(RuntimeException ex, ServerHttpRequest request) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(body(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable", ex, request));
+    }
+
+    private static Map<String, Object> body(HttpStatus status, String error, RuntimeException ex,
+                                            ServerHttpRequest request) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", status.value());
+        body.put("error", error);
+        body.put("message", ex.getMessage());
+        body.put("path", request.getPath().value());
+        return body;
+    }
+}
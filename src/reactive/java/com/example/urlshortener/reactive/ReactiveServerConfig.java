@@ -0,0 +1,24 @@
+package com.example.urlshortener.reactive;
+
+import org.springframework.boot.reactor.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Serves the reactive profile on Netty.
+ *
+ * Tomcat stays on the classpath for the servlet stack, and Spring Boot would also
+ * run a reactive application on it. Tomcat's reactive adapter still reads and
+ * writes through servlet threads, so the factory is chosen here: Netty handles
+ * every connection on a few event loop threads.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.urlshortener.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.urlshortener.controller.RedirectResponses;
+import com.example.urlshortener.dto.ShortenUrlRequest;
+import com.example.urlshortener.dto.ShortenUrlResponse;
+import com.example.urlshortener.metrics.ShortenerMetrics;
+
+import jakarta.validation.Valid;
+import reactor.core.publisher.Mono;
+
+/**
+ * The redirect and shorten endpoints of UrlController on Spring WebFlux.
+ *
+ * The paths, request bodies and responses are the same, so clients cannot tell
+ * the two stacks apart. The handlers return a Mono instead of a value: the event
+ * loop thread is released while a cache miss waits for the database, and the
+ * response is written when the query completes.
+ *
+ * The timers are recorded when the Mono terminates, including errors and
+ * cancelled requests, so the latency is comparable with UrlController's.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveUrlController {
+
+    private final ReactiveUrlShortenerService reactiveUrlShortenerService;
+    private final ShortenerMetrics metrics;
+    private final RedirectResponses redirectResponses;
+
+    public ReactiveUrlController(ReactiveUrlShortenerService reactiveUrlShortenerService, ShortenerMetrics metrics,
+                                 RedirectResponses redirectResponses) {
+        this.reactiveUrlShortenerService = reactiveUrlShortenerService;
+        this.metrics = metrics;
+        this.redirectResponses = redirectResponses;
+    }
+
+    @PostMapping("/api/v1/url/shorten")
+    public Mono<ResponseEntity<ShortenUrlResponse>> shortenUrl(@Valid @RequestBody ShortenUrlRequest request) {
+        long start = System.nanoTime();
+        return reactiveUrlShortenerService.shortenUrl(request.url(), request.CustomAlias(), request.hoursToExpire(),
+                        request.redirectPolicy())
+                .map(shortCode -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(new ShortenUrlResponse("http://localhost:8080/" + shortCode)))
+                .doFinally(signal -> metrics.recordShorten(start));
+    }
+
+    /**
+     * Redirects from a short code to its URL, like UrlController.redirect.
+     */
+    @GetMapping("/{shortCode}")
+    public Mono<ResponseEntity<Void>> redirect(@PathVariable String shortCode,
+                                               @RequestHeader(name = HttpHeaders.REFERER, required = false) String referrer,
+                                               @RequestHeader(name = HttpHeaders.USER_AGENT, required = false) String userAgent) {
+        long start = System.nanoTime();
+        return reactiveUrlShortenerService.resolveRedirect(shortCode, referrer, userAgent)
+                .map(redirectResponses::redirectTo)
+                .doFinally(signal -> metrics.recordRedirect(start));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.urlshortener.reactive;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+
+import com.example.urlshortener.model.RedirectPolicy;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.model.UrlMapping;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads and writes the url_mapping table through R2DBC, so that no thread waits
+ * for the database on the reactive request path.
+ *
+ * The connection pool is private to this repository and not a bean: Spring Boot
+ * would otherwise skip the JDBC DataSource, which the scheduled jobs (click flush,
+ * cleanup, Bloom filter rebuild) still use.
+ *
+ * The pool is the backpressure towards the database: at most 'max-size'
+ * statements run at once, and a request that cannot get a connection within
+ * 'max-acquire-time' fails (503) instead of queueing without a bound.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUrlMappingRepository {
+
+    private final ConnectionPool pool;
+    private final DatabaseClient databaseClient;
+
+    /**
+     * @param url            The R2DBC URL of the database the JDBC DataSource also uses
+     *                       ('app.reactive.r2dbc.url').
+     * @param maxSize        The number of connections ('app.reactive.r2dbc.pool.max-size').
+     * @param maxAcquireTime How long a query may wait for a connection
+     *                       ('app.reactive.r2dbc.pool.max-acquire-time').
+     */
+    public ReactiveUrlMappingRepository(@Value("${app.reactive.r2dbc.url}") String url,
+                                        @Value("${app.reactive.r2dbc.username:sa}") String username,
+                                        @Value("${app.reactive.r2dbc.password:}") String password,
+                                        @Value("${app.reactive.r2dbc.pool.max-size:20}") int maxSize,
+                                        @Value("${app.reactive.r2dbc.pool.max-acquire-time:2s}") Duration maxAcquireTime) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(Math.min(10, maxSize))
+                .maxSize(maxSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        this.databaseClient = DatabaseClient.create(pool);
+    }
+
+    /**
+     * The reactive counterpart of UrlMappingStore.findRedirectTarget.
+     *
+     * @return The target, or an empty Mono if there is no such short code.
+     */
+    public Mono<RedirectTarget> findRedirectTarget(String shortCode) {
+        return databaseClient.sql("SELECT original_url, expiration_date, redirect_policy FROM url_mapping "
+                        + "WHERE short_code = :shortCode")
+                .bind("shortCode", shortCode)
+                .map(ReactiveUrlMappingRepository::toRedirectTarget)
+                .one();
+    }
+
+    /**
+     * The reactive counterpart of UrlMappingStore.findRedirectTargetById.
+     *
+     * @return The target, or an empty Mono if the mapping with this id has another short code.
+     */
+    public Mono<RedirectTarget> findRedirectTargetById(long id, String shortCode) {
+        return databaseClient.sql("SELECT original_url, expiration_date, redirect_policy FROM url_mapping "
+                        + "WHERE id = :id AND short_code = :shortCode")
+                .bind("id", id)
+                .bind("shortCode", shortCode)
+                .map(ReactiveUrlMappingRepository::toRedirectTarget)
+                .one();
+    }
+
+    private static RedirectTarget toRedirectTarget(Row row, RowMetadata metadata) {
+        String policy = row.get("redirect_policy", String.class);
+        return new RedirectTarget(row.get("original_url", String.class),
+                row.get("expiration_date", LocalDateTime.class),
+                policy == null ? null : RedirectPolicy.valueOf(policy));
+    }
+
+    public Mono<Boolean> existsByShortCode(String shortCode) {
+        return databaseClient.sql("SELECT 1 FROM url_mapping WHERE short_code = :shortCode")
+                .bind("shortCode", shortCode)
+                .map((row, metadata) -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    /**
+     * Inserts a mapping built by UrlShortenerService.newUrlMapping.
+     *
+     * A short code that is already taken fails with the DataIntegrityViolationException
+     * that DatabaseClient translates the unique constraint violation to.
+     */
+    public Mono<Void> insert(UrlMapping urlMapping) {
+        GenericExecuteSpec insert = databaseClient.sql("INSERT INTO url_mapping "
+                        + "(id, short_code, original_url, creation_date, expiration_date, click_count, url_hash, redirect_policy) "
+                        + "VALUES (:id, :shortCode, :originalUrl, :creationDate, :expirationDate, 0, :urlHash, :redirectPolicy)")
+                .bind("id", urlMapping.getId())
+                .bind("shortCode", urlMapping.getShortCode())
+                .bind("originalUrl", urlMapping.getOriginalUrl())
+                .bind("creationDate", urlMapping.getCreationDate());
+        insert = bindNullable(insert, "expirationDate", urlMapping.getExpirationDate(), LocalDateTime.class);
+        insert = bindNullable(insert, "urlHash", urlMapping.getUrlHash(), String.class);
+        insert = bindNullable(insert, "redirectPolicy",
+                urlMapping.getRedirectPolicy() == null ? null : urlMapping.getRedirectPolicy().name(), String.class);
+        return insert.then();
+    }
+
+    private static GenericExecuteSpec bindNullable(GenericExecuteSpec spec, String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.dispose();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.urlshortener.reactive;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.example.urlshortener.exception.AliasAlreadyExistsException;
+import com.example.urlshortener.model.RedirectPolicy;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.model.UrlMapping;
+import com.example.urlshortener.service.ShortCodeBloomFilter;
+import com.example.urlshortener.service.ShortCodeCodec;
+import com.example.urlshortener.service.UrlShortenerService;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The redirect and shorten paths of UrlShortenerService, without blocking.
+ *
+ * Everything that happens in memory (heavy hitters, redirect cache, Bloom filter,
+ * click counting) is reused from UrlShortenerService; only the database access
+ * goes through ReactiveUrlMappingRepository. A redirect served from memory
+ * completes on the Netty event loop without any I/O.
+ *
+ * Backpressure: at most 'app.reactive.max-pending-lookups' cache misses wait for
+ * the database at once. Beyond that, a redirect fails fast with a
+ * StoreOverloadedException (503) instead of piling up behind the connection pool.
+ *
+ * Shortening always creates a new link: the lookup of the UrlDeduplicator is a
+ * blocking query, so the reactive path does not share short codes. New links still
+ * store their URL hash, so the servlet stack can share them later.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUrlShortenerService {
+
+    private final UrlShortenerService urlShortenerService;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final ReactiveUrlMappingRepository repository;
+    private final int maxPendingLookups;
+    private final AtomicInteger pendingLookups = new AtomicInteger();
+
+    /**
+     * @param maxPendingLookups The number of redirects that may wait for the database
+     *                          at once ('app.reactive.max-pending-lookups').
+     */
+    public ReactiveUrlShortenerService(UrlShortenerService urlShortenerService,
+                                       ShortCodeBloomFilter shortCodeBloomFilter,
+                                       ReactiveUrlMappingRepository repository,
+                                       @Value("${app.reactive.max-pending-lookups:1000}") int maxPendingLookups) {
+        this.urlShortenerService = urlShortenerService;
+        this.shortCodeBloomFilter = shortCodeBloomFilter;
+        this.repository = repository;
+        this.maxPendingLookups = maxPendingLookups;
+    }
+
+    /**
+     * The reactive counterpart of UrlShortenerService.resolveRedirect.
+     *
+     * @return The target, or a UrlNotFoundException if the code is unknown or expired.
+     */
+    public Mono<RedirectTarget> resolveRedirect(String shortCode, String referrer, String userAgent) {
+        return Mono.defer(() -> {
+            RedirectTarget cached = urlShortenerService.cachedRedirectTarget(shortCode);
+            Mono<RedirectTarget> target = cached != null ? Mono.just(cached) : loadRedirectTarget(shortCode);
+            return target.doOnNext(loaded -> urlShortenerService.recordClick(shortCode, loaded, referrer, userAgent));
+        });
+    }
+
+    private Mono<RedirectTarget> loadRedirectTarget(String shortCode) {
+        if (pendingLookups.incrementAndGet() > maxPendingLookups) {
+            pendingLookups.decrementAndGet();
+            return Mono.error(new StoreOverloadedException(maxPendingLookups + " redirects are waiting for the database"));
+        }
+        // Generated codes by primary key, custom aliases by short code (see UrlShortenerService).
+        long id = ShortCodeCodec.decode(shortCode);
+        Mono<RedirectTarget> lookup = id == ShortCodeCodec.INVALID
+                ? repository.findRedirectTarget(shortCode)
+                : repository.findRedirectTargetById(id, shortCode)
+                        .switchIfEmpty(Mono.defer(() -> repository.findRedirectTarget(shortCode)));
+        return lookup
+                // An empty result becomes null, which loadedRedirectTarget turns into a 404.
+                .map(target -> urlShortenerService.loadedRedirectTarget(shortCode, target))
+                .switchIfEmpty(Mono.fromSupplier(() -> urlShortenerService.loadedRedirectTarget(shortCode, null)))
+                .doFinally(signal -> pendingLookups.decrementAndGet());
+    }
+
+    /**
+     * The reactive counterpart of UrlShortenerService.shortenUrl.
+     *
+     * @return The new short code, or an AliasAlreadyExistsException.
+     */
+    public Mono<String> shortenUrl(String originalUrl, String customAlias, Integer hoursToExpire,
+                                   RedirectPolicy redirectPolicy) {
+        // If the Bloom filter has never seen the alias, it is definitely free.
+        Mono<Boolean> aliasTaken = StringUtils.hasText(customAlias) && shortCodeBloomFilter.mightContain(customAlias)
+                ? repository.existsByShortCode(customAlias)
+                : Mono.just(Boolean.FALSE);
+        return aliasTaken
+                .flatMap(taken -> taken
+                        ? Mono.<UrlMapping>error(new AliasAlreadyExistsException("Alias '" + customAlias + "' is already in use."))
+                        // Reserving a new block of ids queries the sequence over JDBC, so
+                        // building the mapping is moved off the event loop. Most calls only
+                        // take the next id of the current block.
+                        : Mono.fromCallable(() -> urlShortenerService.newUrlMapping(originalUrl, customAlias,
+                                        hoursToExpire, redirectPolicy))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(urlMapping -> insert(urlMapping, customAlias, 1));
+    }
+
+    /**
+     * Inserts the mapping, and handles a taken short code like UrlShortenerService.shortenUrl.
+     */
+    private Mono<String> insert(UrlMapping urlMapping, String customAlias, int attempt) {
+        return repository.insert(urlMapping)
+                .thenReturn(urlMapping.getShortCode())
+                .onErrorResume(DataIntegrityViolationException.class, ex -> {
+                    if (StringUtils.hasText(customAlias)) {
+                        // Another request took the same alias between our check and the INSERT.
+                        return Mono.error(new AliasAlreadyExistsException("Alias '" + customAlias + "' is already in use."));
+                    }
+                    if (attempt >= UrlShortenerService.MAX_GENERATED_CODE_ATTEMPTS) {
+                        return Mono.error(ex);
+                    }
+                    // A custom alias already uses the generated code: retry with a fresh one.
+                    // Any other violation is passed on.
+                    return repository.existsByShortCode(urlMapping.getShortCode())
+                            .flatMap(taken -> taken
+                                    // Off the event loop, like newUrlMapping above: the id may come from a new block.
+                                    ? Mono.fromCallable(() -> urlShortenerService.withFreshCode(urlMapping))
+                                            .subscribeOn(Schedulers.boundedElastic())
+                                            .flatMap(retry -> insert(retry, null, attempt + 1))
+                                    : Mono.<String>error(ex));
+                });
+    }
+}
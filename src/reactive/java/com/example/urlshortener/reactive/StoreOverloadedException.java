@@ -0,0 +1,13 @@
+package com.example.urlshortener.reactive;
+
+/**
+ * Thrown when too many redirects are already waiting for the database.
+ * ReactiveExceptionHandler answers it with 503 Service Unavailable and a
+ * 'Retry-After' header, so clients back off instead of adding to the queue.
+ */
+public class StoreOverloadedException extends RuntimeException {
+
+    public StoreOverloadedException(String message) {
+        super(message);
+    }
+}
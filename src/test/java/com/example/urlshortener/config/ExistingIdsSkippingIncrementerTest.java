@@ -0,0 +1,49 @@
+package com.example.urlshortener.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.support.incrementer.H2SequenceMaxValueIncrementer;
+
+/**
+ * A database upgraded from IDENTITY ids: the id blocks must start above the
+ * existing rows.
+ */
+class ExistingIdsSkippingIncrementerTest {
+
+    private final SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new org.h2.Driver(),
+            "jdbc:h2:mem:id-blocks;DB_CLOSE_DELAY=-1");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @AfterEach
+    void dropDatabase() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void blocksStartAboveTheExistingIds() {
+        jdbcTemplate.execute("CREATE TABLE url_mapping (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("INSERT INTO url_mapping VALUES (1), (2), (2000)");
+
+        // Block 2 is [2000, 3000), so the first free block is 3.
+        assertEquals(3, incrementer().nextLongValue());
+        assertEquals(4, incrementer().nextLongValue());
+    }
+
+    @Test
+    void emptyTableSkipsNothing() {
+        jdbcTemplate.execute("CREATE TABLE url_mapping (id BIGINT PRIMARY KEY)");
+
+        assertEquals(1, incrementer().nextLongValue());
+    }
+
+    private ExistingIdsSkippingIncrementer incrementer() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + IdGenerationConfig.ID_BLOCK_SEQUENCE
+                + " START WITH 1 INCREMENT BY 1");
+        return new ExistingIdsSkippingIncrementer(
+                new H2SequenceMaxValueIncrementer(dataSource, IdGenerationConfig.ID_BLOCK_SEQUENCE), jdbcTemplate, 1000);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.urlshortener.repository.embedded;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.urlshortener.model.UrlMapping;
+
+/**
+ * Restarts, crashes and compactions of the embedded store, on a real data file.
+ */
+class EmbeddedUrlMappingStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedUrlMappingStore store;
+
+    @AfterEach
+    void close() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void restartRecoversMappingsDeletesAndClickCounts() throws IOException {
+        store = open();
+        store.saveAll(List.of(mapping(1, "keep", "https://example.com/keep", null),
+                mapping(2, "gone", "https://example.com/gone", LocalDateTime.now().minusHours(1))));
+        store.incrementClickCounts(Map.of("keep", 3L));
+        assertEquals(List.of("gone"), store.deleteExpiredChunk(LocalDateTime.now(), 10));
+
+        store = reopen();
+
+        assertEquals(1, store.count());
+        assertEquals("https://example.com/keep", store.findByShortCode("keep").orElseThrow().getOriginalUrl());
+        assertEquals(3L, store.findByShortCode("keep").orElseThrow().getClickCount());
+        assertTrue(store.findByShortCode("gone").isEmpty());
+    }
+
+    @Test
+    void tornFinalRecordIsCutOffOnRestart() throws IOException {
+        store = open();
+        store.save(mapping(1, "first", "https://example.com/first", null));
+        store.save(mapping(2, "second", "https://example.com/second", null));
+        store.close();
+        Path dataFile = directory.resolve(EmbeddedUrlMappingStore.DATA_FILE);
+        long sizeBefore = Files.size(dataFile);
+        // A crash while appending: the last record is only partly written.
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.WRITE)) {
+            channel.truncate(sizeBefore - 5);
+        }
+
+        store = open();
+
+        assertTrue(store.findByShortCode("first").isPresent());
+        assertTrue(store.findByShortCode("second").isEmpty());
+        // The next append starts where the torn record began and survives a restart.
+        store.save(mapping(3, "third", "https://example.com/third", null));
+        store = reopen();
+        assertEquals(2, store.count());
+        assertEquals("https://example.com/third", store.findByShortCode("third").orElseThrow().getOriginalUrl());
+    }
+
+    @Test
+    void garbageAfterTheLastRecordIsCutOffOnRestart() throws IOException {
+        store = open();
+        store.save(mapping(1, "first", "https://example.com/first", null));
+        store.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve(EmbeddedUrlMappingStore.DATA_FILE),
+                StandardOpenOption.APPEND)) {
+            // A length that points past the end of the file.
+            channel.write(ByteBuffer.allocate(8).putInt(1000).putInt(42).flip());
+        }
+
+        store = open();
+
+        assertEquals(1, store.count());
+        assertTrue(store.findByShortCode("first").isPresent());
+    }
+
+    @Test
+    void compactionKeepsLiveMappings() throws IOException {
+        store = open();
+        String longPath = "x".repeat(30_000);
+        LocalDateTime expired = LocalDateTime.now().minusHours(1);
+        for (int i = 0; i < 40; i++) {
+            store.save(mapping(i + 1, "code" + i, "https://example.com/" + i + "/" + longPath,
+                    i % 4 == 0 ? null : expired));
+        }
+        store.incrementClickCounts(Map.of("code0", 7L, "code4", 2L));
+        assertEquals(30, store.deleteExpiredChunk(LocalDateTime.now(), 100).size());
+        long sizeBefore = Files.size(directory.resolve(EmbeddedUrlMappingStore.DATA_FILE));
+
+        store.compactIfNeeded();
+
+        assertTrue(Files.size(directory.resolve(EmbeddedUrlMappingStore.DATA_FILE)) < sizeBefore / 2);
+        assertLiveMappings();
+        // Writes go to the compacted file.
+        store.save(mapping(100, "after", "https://example.com/after", null));
+        store = reopen();
+        assertLiveMappings();
+        assertEquals(11, store.count());
+        assertTrue(store.findByShortCode("after").isPresent());
+    }
+
+    private void assertLiveMappings() {
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i % 4 == 0, store.findByShortCode("code" + i).isPresent(), "code" + i);
+        }
+        assertTrue(store.findByShortCode("code8").orElseThrow().getOriginalUrl().startsWith("https://example.com/8/"));
+        assertEquals(7L, store.findByShortCode("code0").orElseThrow().getClickCount());
+        assertEquals(2L, store.findByShortCode("code4").orElseThrow().getClickCount());
+    }
+
+    private EmbeddedUrlMappingStore open() {
+        return new EmbeddedUrlMappingStore(directory, 0.5);
+    }
+
+    private EmbeddedUrlMappingStore reopen() throws IOException {
+        store.close();
+        return open();
+    }
+
+    private static UrlMapping mapping(long id, String shortCode, String originalUrl, LocalDateTime expirationDate) {
+        UrlMapping urlMapping = new UrlMapping();
+        urlMapping.setId(id);
+        urlMapping.setShortCode(shortCode);
+        urlMapping.setOriginalUrl(originalUrl);
+        urlMapping.setCreationDate(LocalDateTime.now().minusDays(1));
+        urlMapping.setExpirationDate(expirationDate);
+        return urlMapping;
+    }
+}
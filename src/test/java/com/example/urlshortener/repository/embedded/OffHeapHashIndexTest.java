@@ -0,0 +1,93 @@
+package com.example.urlshortener.repository.embedded;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Codes whose hashes collide must stay apart, through removals and resizes.
+ * The "records" are a map from offset to code, as the store reads them from its file.
+ */
+class OffHeapHashIndexTest {
+
+    private static final long SHARED_HASH = 42;
+
+    private final Map<Long, String> records = new HashMap<>();
+
+    @Test
+    void codesWithTheSameHashAreKeptApart() {
+        OffHeapHashIndex index = new OffHeapHashIndex(16);
+        put(index, SHARED_HASH, "a", 100);
+        put(index, SHARED_HASH, "b", 200);
+        put(index, SHARED_HASH, "c", 300);
+
+        assertEquals(3, index.size());
+        assertEquals(100, index.get(SHARED_HASH, is("a")));
+        assertEquals(200, index.get(SHARED_HASH, is("b")));
+        assertEquals(300, index.get(SHARED_HASH, is("c")));
+        assertEquals(-1, index.get(SHARED_HASH, is("d")));
+    }
+
+    @Test
+    void removingOneCodeKeepsTheOthersWithTheSameHash() {
+        OffHeapHashIndex index = new OffHeapHashIndex(16);
+        put(index, SHARED_HASH, "a", 100);
+        put(index, SHARED_HASH, "b", 200);
+        put(index, SHARED_HASH, "c", 300);
+
+        assertEquals(100, index.remove(SHARED_HASH, is("a")));
+
+        // "b" and "c" are probed past the tombstone left by "a".
+        assertEquals(-1, index.get(SHARED_HASH, is("a")));
+        assertEquals(200, index.get(SHARED_HASH, is("b")));
+        assertEquals(300, index.get(SHARED_HASH, is("c")));
+        // Re-adding "a" neither duplicates nor overwrites the others.
+        put(index, SHARED_HASH, "a", 400);
+        assertEquals(3, index.size());
+        assertEquals(400, index.get(SHARED_HASH, is("a")));
+    }
+
+    @Test
+    void putReplacesOnlyTheMatchingCode() {
+        OffHeapHashIndex index = new OffHeapHashIndex(16);
+        put(index, SHARED_HASH, "a", 100);
+        put(index, SHARED_HASH, "b", 200);
+
+        assertEquals(200, put(index, SHARED_HASH, "b", 500));
+
+        assertEquals(2, index.size());
+        assertEquals(100, index.get(SHARED_HASH, is("a")));
+        assertEquals(500, index.get(SHARED_HASH, is("b")));
+    }
+
+    @Test
+    void collidingCodesSurviveResizing() {
+        OffHeapHashIndex index = new OffHeapHashIndex(16);
+        long memoryBefore = index.memoryBytes();
+        for (int i = 0; i < 1000; i++) {
+            // Every tenth code shares one hash; the others have their own.
+            put(index, i % 10 == 0 ? SHARED_HASH : i, "code" + i, 8 + i);
+        }
+
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(8 + i, index.get(i % 10 == 0 ? SHARED_HASH : i, is("code" + i)));
+        }
+        assertTrue(index.memoryBytes() > memoryBefore);
+    }
+
+    private long put(OffHeapHashIndex index, long hash, String code, long offset) {
+        long previous = index.put(hash, offset, is(code));
+        records.put(offset, code);
+        return previous;
+    }
+
+    private LongPredicate is(String code) {
+        return offset -> code.equals(records.get(offset));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.urlshortener.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.example.urlshortener.metrics.ShortenerMetrics;
+import com.example.urlshortener.model.RedirectTarget;
+import com.example.urlshortener.model.UrlMapping;
+import com.example.urlshortener.repository.embedded.EmbeddedUrlMappingStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * A restart that loads the redirect cache snapshot back, against a store that has
+ * changed while the instance was down.
+ */
+class CacheWarmerTest {
+
+    @TempDir
+    Path directory;
+
+    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+    private final ShortenerMetrics metrics = new ShortenerMetrics(new SimpleMeterRegistry());
+    private EmbeddedUrlMappingStore store;
+
+    @BeforeEach
+    void start() {
+        taskScheduler.initialize();
+        store = new EmbeddedUrlMappingStore(directory.resolve("store"), 0.5);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        store.close();
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    void snapshotLinksMissingFromTheStoreAreNotCached() {
+        RedirectCache before = new RedirectCache(100, 0);
+        before.put("kept", new RedirectTarget("https://example.com/kept", null));
+        before.put("deleted", new RedirectTarget("https://example.com/deleted", null));
+        warmer(before).writeSnapshot();
+        // After the restart, e.g. against a new database, the store only has "kept".
+        store.save(mapping(1, "kept"));
+        RedirectCache after = new RedirectCache(100, 0);
+        CacheWarmer warmer = warmer(after);
+
+        warmer.run(new DefaultApplicationArguments());
+
+        assertEquals("snapshot", warmer.stats().source());
+        assertEquals(1, warmer.stats().linksLoaded());
+        assertNotNull(after.getIfPresent("kept"));
+        assertNull(after.getIfPresent("deleted"));
+    }
+
+    private CacheWarmer warmer(RedirectCache redirectCache) {
+        return new CacheWarmer(store, redirectCache, metrics, taskScheduler, true, directory.resolve("warmup"),
+                100, 100, 10_000, 24, 3_600_000, 100);
+    }
+
+    private static UrlMapping mapping(long id, String shortCode) {
+        UrlMapping urlMapping = new UrlMapping();
+        urlMapping.setId(id);
+        urlMapping.setShortCode(shortCode);
+        urlMapping.setOriginalUrl("https://example.com/" + shortCode);
+        urlMapping.setCreationDate(LocalDateTime.now().minusDays(1));
+        return urlMapping;
+    }
+}
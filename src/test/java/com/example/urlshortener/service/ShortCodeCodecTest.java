@@ -0,0 +1,43 @@
+package com.example.urlshortener.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ShortCodeCodec must keep producing the codes of already stored links, and
+ * decode must invert encode exactly, or generated codes stop resolving by id.
+ */
+class ShortCodeCodecTest {
+
+    @Test
+    void encodesLikeTheExistingCodes() {
+        assertEquals("0", ShortCodeCodec.encode(0));
+        assertEquals("Z", ShortCodeCodec.encode(61));
+        assertEquals("10", ShortCodeCodec.encode(62));
+        assertEquals("aZl8N0y58M7", ShortCodeCodec.encode(Long.MAX_VALUE));
+    }
+
+    @Test
+    void decodeInvertsEncode() {
+        SplittableRandom random = new SplittableRandom(42);
+        byte[] buffer = new byte[ShortCodeCodec.MAX_LENGTH];
+        for (int i = 0; i < 100_000; i++) {
+            long id = i < 1000 ? i : random.nextLong(Long.MAX_VALUE) >>> random.nextInt(63);
+            String code = ShortCodeCodec.encode(id);
+            assertEquals(id, ShortCodeCodec.decode(code), code);
+            assertEquals(code.length(), ShortCodeCodec.encode(id, buffer, 0));
+            assertEquals(code, new String(buffer, 0, code.length(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    void rejectsWhatIsNotACode() {
+        for (String code : new String[] { "", "01", "my-alias", "abc_", "\u00fcber", "aZl8N0y58M8", "100000000000" }) {
+            assertEquals(ShortCodeCodec.INVALID, ShortCodeCodec.decode(code), code);
+        }
+    }
+}
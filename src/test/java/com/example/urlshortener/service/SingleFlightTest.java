@@ -0,0 +1,137 @@
+package com.example.urlshortener.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A thundering herd on SingleFlight: many threads miss on the same keys at once,
+ * and each key must be loaded once per burst.
+ */
+class SingleFlightTest {
+
+    private static final int THREADS_PER_KEY = 200;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void burstOfConcurrentLookupsLoadsEachKeyOnce() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(10, TimeUnit.SECONDS);
+        List<String> keys = List.of("abc", "def", "ghi");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        // The loads are held until every other thread has joined one, like a slow query.
+        // The first leader to see that opens 'allJoined' for the others, because the
+        // count drops again as soon as one load completes.
+        int followers = keys.size() * (THREADS_PER_KEY - 1);
+        CountDownLatch allJoined = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (String key : keys) {
+            for (int i = 0; i < THREADS_PER_KEY; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return singleFlight.execute(key, k -> {
+                        loads.incrementAndGet();
+                        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                        while (allJoined.getCount() > 0 && System.nanoTime() - deadline < 0) {
+                            if (singleFlight.waiting() == followers) {
+                                allJoined.countDown();
+                            }
+                            Thread.yield();
+                        }
+                        return "https://example.com/" + k;
+                    });
+                }));
+            }
+        }
+        start.countDown();
+
+        assertTrue(allJoined.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals("https://example.com/" + keys.get(i / THREADS_PER_KEY), results.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(keys.size(), loads.get());
+        assertEquals(0, singleFlight.inFlight());
+
+        // The next burst loads again: nothing is cached.
+        singleFlight.execute("abc", k -> {
+            loads.incrementAndGet();
+            return "https://example.com/" + k;
+        });
+        assertEquals(keys.size() + 1, loads.get());
+    }
+
+    @Test
+    void failureReachesEveryWaiterAndIsNotCached() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(10, TimeUnit.SECONDS);
+        IllegalStateException failure = new IllegalStateException("database down");
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> leader = executor.submit(() -> singleFlight.execute("abc", k -> {
+            leaderStarted.countDown();
+            awaitUninterruptibly(release);
+            throw failure;
+        }));
+        assertTrue(leaderStarted.await(10, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> singleFlight.execute("abc", k -> "not called"));
+        awaitWaiting(singleFlight, 1);
+        release.countDown();
+
+        Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(10, TimeUnit.SECONDS));
+        assertSame(failure, leaderFailure.getCause());
+        Exception followerFailure = assertThrows(Exception.class, () -> follower.get(10, TimeUnit.SECONDS));
+        assertSame(failure, followerFailure.getCause());
+        assertEquals("loaded", singleFlight.execute("abc", k -> "loaded"));
+    }
+
+    @Test
+    void waiterLoadsItselfAfterTimeout() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(50, TimeUnit.MILLISECONDS);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute("abc", k -> {
+            leaderStarted.countDown();
+            awaitUninterruptibly(release);
+            return "slow";
+        }));
+        assertTrue(leaderStarted.await(10, TimeUnit.SECONDS));
+
+        assertEquals("fast", singleFlight.execute("abc", k -> "fast"));
+        release.countDown();
+        assertEquals("slow", leader.get(10, TimeUnit.SECONDS));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitWaiting(SingleFlight<?, ?> singleFlight, int callers) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (singleFlight.waiting() < callers && System.nanoTime() - deadline < 0) {
+            Thread.yield();
+        }
+        assertTrue(singleFlight.waiting() >= callers, "callers waiting: " + singleFlight.waiting());
+    }
+}